@@ -39,7 +39,7 @@ public class App {
         CompraController compraCtrl = context.getBean(CompraController.class);
 
         // Datos de prueba
-        String nifSesion = "54321678K";
+        String nifSesion = "54321678W";
         String telefonoUnico = "655443322";
 
         System.out.println("\n>>> INICIANDO SISTEMA DE GESTIÓN (MODO LIBRERÍA) <<<");
@@ -54,7 +54,7 @@ public class App {
             // GESTIÓN DE ARTÍCULOS
             System.out.println("[INFO] Insertando nuevo artículo en el catálogo...");
             ArticuloDTO nuevoArt = new ArticuloDTO(null, "Monitor Gaming 144Hz", "Panel IPS 27 pulgadas", 
-                                                 new BigDecimal("299.99"), 50, true);
+                                                 new BigDecimal("299.99"), 50, true, null);
             
             ArticuloDTO artGuardado = articuloCtrl.crearArticulo(nuevoArt);
             System.out.println("[OK] Artículo '" + artGuardado.getNombre() + "' creado con ID: " + artGuardado.getId());
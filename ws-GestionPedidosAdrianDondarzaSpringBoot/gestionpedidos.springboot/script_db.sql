@@ -15,58 +15,135 @@ END;
 -- 2. ELIMINACIÓN DE TABLAS (En orden inverso de jerarquía)
 BEGIN
     FOR t IN (SELECT table_name FROM all_tables WHERE owner = 'USUARIOS_ADMIN' 
-              AND table_name IN ('ARTICULO_COMPRA', 'COMPRAS', 'CLIENTES', 'INFORMACION_FISCAL', 'ARTICULOS'))
+              AND table_name IN ('CLIENTES_ELIMINADOS', 'RESUMEN_CLIENTE', 'COMPRAS_IDEMPOTENCIA', 'ARTICULO_COMPRA_ARCHIVO', 'COMPRAS_ARCHIVO',
+                                 'ARTICULO_COMPRA', 'COMPRAS', 'CLIENTES', 'INFORMACION_FISCAL',
+                                 'ARTICULO_STOCK_FRAGMENTO', 'ARTICULOS'))
     LOOP
         EXECUTE IMMEDIATE 'DROP TABLE USUARIOS_ADMIN.' || t.table_name || ' CASCADE CONSTRAINTS';
     END LOOP;
 END;
 /
 
--- 3. CREACIÓN DE TABLAS
+BEGIN
+    FOR s IN (SELECT sequence_name FROM all_sequences WHERE sequence_owner = 'USUARIOS_ADMIN'
+              AND sequence_name IN ('SEQ_ARTICULOS', 'SEQ_COMPRAS', 'SEQ_CAMBIOS'))
+    LOOP
+        EXECUTE IMMEDIATE 'DROP SEQUENCE USUARIOS_ADMIN.' || s.sequence_name;
+    END LOOP;
+END;
+/
+
+-- 3. CREACIÓN DE SECUENCIAS
+-- El incremento debe coincidir con el allocationSize de las entidades: la aplicación
+-- reserva bloques de 50 identificadores y los asigna en memoria (optimizador pooled).
+CREATE SEQUENCE USUARIOS_ADMIN.seq_articulos START WITH 1 INCREMENT BY 50 CACHE 20;
+CREATE SEQUENCE USUARIOS_ADMIN.seq_compras START WITH 1 INCREMENT BY 50 CACHE 20;
+
+-- Versiones de cambio para la sincronización por diferencias. ORDER garantiza valores
+-- crecientes también entre instancias RAC; la caché evita contención en el diccionario.
+CREATE SEQUENCE USUARIOS_ADMIN.seq_cambios START WITH 1 INCREMENT BY 1 CACHE 1000 ORDER;
+
+-- 4. CREACIÓN DE TABLAS
 
 -- Tabla independiente: Artículos con restricción de nombre único
 CREATE TABLE USUARIOS_ADMIN.articulos (
-    id              NUMBER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    id              NUMBER CONSTRAINT pk_articulos PRIMARY KEY, -- Asignado desde seq_articulos
     nombre          VARCHAR2(100) NOT NULL,
     descripcion     CLOB NOT NULL,
     precio_actual   NUMBER(10,2) NOT NULL,
     stock           NUMBER(10) NOT NULL,
     activo          NUMBER(1) DEFAULT 1 NOT NULL,
-    CONSTRAINT uk_articulo_nombre UNIQUE (nombre) -- Evita duplicar productos
+    version         NUMBER(19) DEFAULT 0 NOT NULL, -- Control de concurrencia optimista
+    fragmentos_stock NUMBER(3) DEFAULT 0 NOT NULL, -- 0 = stock normal; N = stock repartido en N ranuras
+    version_cambio  NUMBER(19) DEFAULT 0 NOT NULL -- Asignada por trigger desde seq_cambios
+);
+
+-- Evita duplicar productos sin distinguir mayúsculas. La aplicación inserta sin consulta 
+-- previa y reconoce la violación por el nombre del índice (TraductorRestricciones)
+CREATE UNIQUE INDEX USUARIOS_ADMIN.uk_articulo_nombre ON USUARIOS_ADMIN.articulos (UPPER(nombre));
+
+-- Ranuras de stock fragmentado para artículos de alta demanda
+CREATE TABLE USUARIOS_ADMIN.articulo_stock_fragmento (
+    id_articulo     NUMBER NOT NULL,
+    fragmento       NUMBER(3) NOT NULL,
+    stock           NUMBER(10) NOT NULL,
+    version_cambio  NUMBER(19) DEFAULT 0 NOT NULL, -- Asignada por trigger desde seq_cambios
+    CONSTRAINT pk_articulo_stock_fragmento PRIMARY KEY (id_articulo, fragmento),
+    CONSTRAINT fk_asf_articulo FOREIGN KEY (id_articulo)
+        REFERENCES USUARIOS_ADMIN.articulos(id),
+    CONSTRAINT ck_asf_stock CHECK (stock >= 0)
 );
 
 -- Tabla PADRE: Información Fiscal con restricción de teléfono único
 CREATE TABLE USUARIOS_ADMIN.informacion_fiscal (
-    nif_cif           VARCHAR2(20) PRIMARY KEY,
+    nif_cif           VARCHAR2(20) CONSTRAINT pk_informacion_fiscal PRIMARY KEY,
     direccion_fiscal  VARCHAR2(255) NOT NULL,
     telefono          VARCHAR2(20) NOT NULL,
+    version_cambio    NUMBER(19) DEFAULT 0 NOT NULL, -- Asignada por trigger desde seq_cambios
     CONSTRAINT uk_fiscal_telefono UNIQUE (telefono) -- Evita que dos sujetos compartan teléfono
 );
 
 -- Tabla HIJA: Clientes
 CREATE TABLE USUARIOS_ADMIN.clientes (
-    nif_cif         VARCHAR2(20) PRIMARY KEY,
+    nif_cif         VARCHAR2(20) CONSTRAINT pk_clientes PRIMARY KEY,
     nombre          VARCHAR2(100) NOT NULL,
-    email           VARCHAR2(100) NOT NULL UNIQUE,
+    email           VARCHAR2(100) NOT NULL CONSTRAINT uk_cliente_email UNIQUE,
     fecha_registro  DATE DEFAULT SYSDATE NOT NULL,
+    version_cambio  NUMBER(19) DEFAULT 0 NOT NULL, -- Asignada por trigger desde seq_cambios
     CONSTRAINT fk_cliente_fiscal FOREIGN KEY (nif_cif) 
         REFERENCES USUARIOS_ADMIN.informacion_fiscal(nif_cif) 
         ON DELETE CASCADE
 );
 
+-- Filtros de prefijo del directorio de clientes (nombre sin distinguir mayúsculas y email)
+CREATE INDEX USUARIOS_ADMIN.idx_clientes_nombre ON USUARIOS_ADMIN.clientes (UPPER(nombre), nif_cif);
+CREATE INDEX USUARIOS_ADMIN.idx_clientes_email ON USUARIOS_ADMIN.clientes (LOWER(email), nif_cif);
+
+-- Lápidas de clientes eliminados, para que la sincronización por diferencias los retire
+CREATE TABLE USUARIOS_ADMIN.clientes_eliminados (
+    version_cambio    NUMBER(19) PRIMARY KEY, -- Tomada de seq_cambios al borrar
+    nif_cif           VARCHAR2(20) NOT NULL,
+    fecha_eliminacion TIMESTAMP DEFAULT SYSTIMESTAMP NOT NULL
+);
+
+-- Índices para leer solo las filas cambiadas desde una versión
+CREATE INDEX USUARIOS_ADMIN.idx_articulos_cambio ON USUARIOS_ADMIN.articulos (version_cambio);
+CREATE INDEX USUARIOS_ADMIN.idx_asf_cambio ON USUARIOS_ADMIN.articulo_stock_fragmento (version_cambio);
+CREATE INDEX USUARIOS_ADMIN.idx_fiscal_cambio ON USUARIOS_ADMIN.informacion_fiscal (version_cambio);
+CREATE INDEX USUARIOS_ADMIN.idx_clientes_cambio ON USUARIOS_ADMIN.clientes (version_cambio);
+
+-- Resumen de compras por cliente, mantenido de forma incremental por la aplicación
+CREATE TABLE USUARIOS_ADMIN.resumen_cliente (
+    nif_cif         VARCHAR2(20) PRIMARY KEY,
+    num_compras     NUMBER(10) DEFAULT 0 NOT NULL,
+    total_gastado   NUMBER(14,2) DEFAULT 0 NOT NULL,
+    ultima_compra   TIMESTAMP NULL,
+    revision        NUMBER(19) DEFAULT 0 NOT NULL, -- Orden de las instantáneas de la vista en memoria
+    CONSTRAINT fk_resumen_cliente FOREIGN KEY (nif_cif)
+        REFERENCES USUARIOS_ADMIN.clientes(nif_cif)
+        ON DELETE CASCADE
+);
+
 -- Tabla de Compras
 CREATE TABLE USUARIOS_ADMIN.compras (
-    id                NUMBER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    id                NUMBER PRIMARY KEY, -- Asignado desde seq_compras
     fecha_realizada   TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL,
     estado            VARCHAR2(20) NOT NULL,
     direccion_envio   VARCHAR2(255),
     precio_total      NUMBER(10,2),
     cliente_nif       VARCHAR2(20) NULL,
+    version           NUMBER(19) DEFAULT 0 NOT NULL, -- Control de concurrencia optimista
     CONSTRAINT fk_compra_cliente FOREIGN KEY (cliente_nif) 
         REFERENCES USUARIOS_ADMIN.clientes(nif_cif) 
         ON DELETE SET NULL
 );
 
+-- Índices de los listados paginados por clave (más recientes primero)
+CREATE INDEX USUARIOS_ADMIN.idx_compras_fecha_id ON USUARIOS_ADMIN.compras (fecha_realizada, id);
+CREATE INDEX USUARIOS_ADMIN.idx_compras_cliente_fecha_id ON USUARIOS_ADMIN.compras (cliente_nif, fecha_realizada, id);
+-- Índice para localizar las compras anuladas (estado poco frecuente) desde la analítica de ventas
+CREATE INDEX USUARIOS_ADMIN.idx_compras_estado ON USUARIOS_ADMIN.compras (estado);
+
 -- Tabla de Detalle (Relación N:M)
 CREATE TABLE USUARIOS_ADMIN.articulo_compra (
     id_articulo      NUMBER NOT NULL,
@@ -80,7 +157,58 @@ CREATE TABLE USUARIOS_ADMIN.articulo_compra (
         REFERENCES USUARIOS_ADMIN.compras(id) ON DELETE CASCADE
 );
 
--- 4. TRIGGERS DE SEGURIDAD (Protección contra borrado físico)
+-- Claves de idempotencia de pedidos (copia duradera del índice de reenvíos)
+CREATE TABLE USUARIOS_ADMIN.compras_idempotencia (
+    clave            VARCHAR2(64) CONSTRAINT pk_compras_idempotencia PRIMARY KEY, -- Generada por el cliente para cada envío
+    id_compra        NUMBER NOT NULL,
+    fecha_registro   TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL,
+    CONSTRAINT fk_ci_compra FOREIGN KEY (id_compra)
+        REFERENCES USUARIOS_ADMIN.compras(id) ON DELETE CASCADE
+);
+
+-- Índice para la purga periódica de claves caducadas
+CREATE INDEX USUARIOS_ADMIN.idx_ci_fecha ON USUARIOS_ADMIN.compras_idempotencia (fecha_registro);
+
+-- Archivo de compras cerradas (ENTREGADO / ANULADA) trasladadas desde las tablas principales.
+-- Particionado por mes de realización: las particiones nuevas se crean solas (INTERVAL) y 
+-- las consultas por rango de fechas solo recorren las particiones afectadas.
+CREATE TABLE USUARIOS_ADMIN.compras_archivo (
+    id                NUMBER NOT NULL,
+    fecha_realizada   TIMESTAMP NOT NULL,
+    estado            VARCHAR2(20) NOT NULL,
+    direccion_envio   VARCHAR2(255),
+    precio_total      NUMBER(10,2),
+    cliente_nif       VARCHAR2(20) NULL,
+    version           NUMBER(19) NOT NULL,
+    CONSTRAINT pk_compras_archivo PRIMARY KEY (id),
+    CONSTRAINT fk_compra_archivo_cliente FOREIGN KEY (cliente_nif)
+        REFERENCES USUARIOS_ADMIN.clientes(nif_cif)
+        ON DELETE SET NULL
+)
+PARTITION BY RANGE (fecha_realizada) INTERVAL (NUMTOYMINTERVAL(1, 'MONTH'))
+(PARTITION p_inicial VALUES LESS THAN (TIMESTAMP '2026-01-01 00:00:00'));
+
+CREATE INDEX USUARIOS_ADMIN.idx_ca_fecha_id ON USUARIOS_ADMIN.compras_archivo (fecha_realizada, id) LOCAL;
+CREATE INDEX USUARIOS_ADMIN.idx_ca_cliente_fecha_id ON USUARIOS_ADMIN.compras_archivo (cliente_nif, fecha_realizada, id) LOCAL;
+CREATE INDEX USUARIOS_ADMIN.idx_ca_estado ON USUARIOS_ADMIN.compras_archivo (estado) LOCAL;
+
+-- Líneas archivadas: particionadas por referencia, en la misma partición que su cabecera
+CREATE TABLE USUARIOS_ADMIN.articulo_compra_archivo (
+    id_articulo      NUMBER NOT NULL,
+    id_compra        NUMBER NOT NULL,
+    precio_congelado NUMBER(10,2) NOT NULL,
+    unidades         NUMBER(10) NOT NULL,
+    CONSTRAINT pk_articulo_compra_archivo PRIMARY KEY (id_articulo, id_compra),
+    CONSTRAINT fk_aca_articulo FOREIGN KEY (id_articulo)
+        REFERENCES USUARIOS_ADMIN.articulos(id),
+    CONSTRAINT fk_aca_compra FOREIGN KEY (id_compra)
+        REFERENCES USUARIOS_ADMIN.compras_archivo(id)
+)
+PARTITION BY REFERENCE (fk_aca_compra);
+
+CREATE INDEX USUARIOS_ADMIN.idx_aca_compra ON USUARIOS_ADMIN.articulo_compra_archivo (id_compra) LOCAL;
+
+-- 5. TRIGGERS DE SEGURIDAD (Protección contra borrado físico)
 
 CREATE OR REPLACE TRIGGER USUARIOS_ADMIN.TRG_NO_BORRAR_ARTICULOS
 BEFORE DELETE ON USUARIOS_ADMIN.articulos
@@ -89,16 +217,92 @@ BEGIN
 END;
 /
 
+-- Las compras y sus líneas solo pueden salir de las tablas principales si ya están en el archivo
 CREATE OR REPLACE TRIGGER USUARIOS_ADMIN.TRG_NO_BORRAR_COMPRAS
 BEFORE DELETE ON USUARIOS_ADMIN.compras
+FOR EACH ROW
+DECLARE
+    v_archivada NUMBER;
 BEGIN
-    RAISE_APPLICATION_ERROR(-20002, 'SEGURIDAD: Las compras son registros contables permanentes y no se pueden eliminar.');
+    SELECT COUNT(*) INTO v_archivada FROM USUARIOS_ADMIN.compras_archivo WHERE id = :OLD.id;
+    IF v_archivada = 0 THEN
+        RAISE_APPLICATION_ERROR(-20002, 'SEGURIDAD: Las compras son registros contables permanentes y no se pueden eliminar.');
+    END IF;
 END;
 /
 
 CREATE OR REPLACE TRIGGER USUARIOS_ADMIN.TRG_NO_BORRAR_DETALLES
 BEFORE DELETE ON USUARIOS_ADMIN.articulo_compra
+FOR EACH ROW
+DECLARE
+    v_archivada NUMBER;
+BEGIN
+    SELECT COUNT(*) INTO v_archivada FROM USUARIOS_ADMIN.articulo_compra_archivo
+     WHERE id_articulo = :OLD.id_articulo AND id_compra = :OLD.id_compra;
+    IF v_archivada = 0 THEN
+        RAISE_APPLICATION_ERROR(-20003, 'SEGURIDAD: No se pueden eliminar líneas de detalle de una compra existente.');
+    END IF;
+END;
+/
+
+CREATE OR REPLACE TRIGGER USUARIOS_ADMIN.TRG_NO_BORRAR_COMPRAS_ARCHIVO
+BEFORE DELETE ON USUARIOS_ADMIN.compras_archivo
+BEGIN
+    RAISE_APPLICATION_ERROR(-20004, 'SEGURIDAD: Las compras archivadas son registros contables permanentes y no se pueden eliminar.');
+END;
+/
+
+CREATE OR REPLACE TRIGGER USUARIOS_ADMIN.TRG_NO_BORRAR_DETALLES_ARCHIVO
+BEFORE DELETE ON USUARIOS_ADMIN.articulo_compra_archivo
+BEGIN
+    RAISE_APPLICATION_ERROR(-20005, 'SEGURIDAD: No se pueden eliminar líneas de detalle de una compra archivada.');
+END;
+/
+
+-- 6. TRIGGERS DE VERSIÓN DE CAMBIO (Sincronización por diferencias)
+-- Cada inserción o modificación toma una versión nueva de seq_cambios. Las ranuras de stock
+-- llevan su propia versión para no serializar los descuentos concurrentes sobre la fila
+-- del artículo.
+
+CREATE OR REPLACE TRIGGER USUARIOS_ADMIN.TRG_CAMBIO_ARTICULOS
+BEFORE INSERT OR UPDATE ON USUARIOS_ADMIN.articulos
+FOR EACH ROW
 BEGIN
-    RAISE_APPLICATION_ERROR(-20003, 'SEGURIDAD: No se pueden eliminar líneas de detalle de una compra existente.');
+    :NEW.version_cambio := USUARIOS_ADMIN.seq_cambios.NEXTVAL;
 END;
-/
\ No newline at end of file
+/
+
+CREATE OR REPLACE TRIGGER USUARIOS_ADMIN.TRG_CAMBIO_STOCK_FRAGMENTO
+BEFORE INSERT OR UPDATE ON USUARIOS_ADMIN.articulo_stock_fragmento
+FOR EACH ROW
+BEGIN
+    :NEW.version_cambio := USUARIOS_ADMIN.seq_cambios.NEXTVAL;
+END;
+/
+
+CREATE OR REPLACE TRIGGER USUARIOS_ADMIN.TRG_CAMBIO_FISCAL
+BEFORE INSERT OR UPDATE ON USUARIOS_ADMIN.informacion_fiscal
+FOR EACH ROW
+BEGIN
+    :NEW.version_cambio := USUARIOS_ADMIN.seq_cambios.NEXTVAL;
+END;
+/
+
+CREATE OR REPLACE TRIGGER USUARIOS_ADMIN.TRG_CAMBIO_CLIENTES
+BEFORE INSERT OR UPDATE ON USUARIOS_ADMIN.clientes
+FOR EACH ROW
+BEGIN
+    :NEW.version_cambio := USUARIOS_ADMIN.seq_cambios.NEXTVAL;
+END;
+/
+
+-- El borrado de la información fiscal se propaga en cascada a clientes, así que este
+-- trigger registra la lápida en ambos casos
+CREATE OR REPLACE TRIGGER USUARIOS_ADMIN.TRG_CLIENTES_ELIMINADOS
+AFTER DELETE ON USUARIOS_ADMIN.clientes
+FOR EACH ROW
+BEGIN
+    INSERT INTO USUARIOS_ADMIN.clientes_eliminados (version_cambio, nif_cif)
+    VALUES (USUARIOS_ADMIN.seq_cambios.NEXTVAL, :OLD.nif_cif);
+END;
+/
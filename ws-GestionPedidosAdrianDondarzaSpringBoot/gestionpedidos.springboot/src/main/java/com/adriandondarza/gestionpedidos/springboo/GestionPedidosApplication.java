@@ -4,6 +4,7 @@ import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.domain.EntityScan;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * Clase principal de configuración y arranque de la aplicación de Gestión de Pedidos.
@@ -25,6 +26,7 @@ import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 @SpringBootApplication(scanBasePackages = "com.adriandondarza.gestionpedidos.springboot")
 @EnableJpaRepositories(basePackages = "com.adriandondarza.gestionpedidos.springboot.repository")
 @EntityScan(basePackages = "com.adriandondarza.gestionpedidos.springboot.model")
+@EnableScheduling
 public class GestionPedidosApplication {
 
     /**
@@ -0,0 +1,78 @@
+package com.adriandondarza.gestionpedidos.springboot.controller;
+
+import com.adriandondarza.gestionpedidos.springboot.dto.VentaArticuloDTO;
+import com.adriandondarza.gestionpedidos.springboot.dto.VentaDiariaDTO;
+import com.adriandondarza.gestionpedidos.springboot.service.AnaliticaVentasService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Controller;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Controlador de las consultas de analítica de ventas para los informes de la 
+ * aplicación de escritorio.
+ * <p>
+ * Las consultas se resuelven en memoria sobre la última instantánea de ventas, por lo 
+ * que pueden no reflejar las compras de los últimos segundos hasta el siguiente refresco.
+ * </p>
+ *
+ * @author Adrian Dondarza
+ * @version 1.0
+ * @since 2026-10-16
+ */
+@Controller
+public class AnaliticaController {
+
+    @Autowired
+    private AnaliticaVentasService analiticaVentasService;
+
+    /**
+     * Obtiene la facturación diaria de un rango de fechas.
+     *
+     * @param desde Primer día del rango (incluido).
+     * @param hasta Último día del rango (incluido).
+     * @return {@link List} de {@link VentaDiariaDTO} de los días con ventas.
+     */
+    public List<VentaDiariaDTO> ventasPorDia(LocalDate desde, LocalDate hasta) {
+        return analiticaVentasService.ventasPorDia(desde, hasta);
+    }
+
+    /**
+     * Obtiene las unidades vendidas por artículo en un rango de fechas, de más a menos vendido.
+     *
+     * @param desde Primer día del rango (incluido).
+     * @param hasta Último día del rango (incluido).
+     * @return {@link List} de {@link VentaArticuloDTO}.
+     */
+    public List<VentaArticuloDTO> ventasPorArticulo(LocalDate desde, LocalDate hasta) {
+        return analiticaVentasService.ventasPorArticulo(desde, hasta);
+    }
+
+    /**
+     * Obtiene el importe medio por compra en un rango de fechas.
+     *
+     * @param desde Primer día del rango (incluido).
+     * @param hasta Último día del rango (incluido).
+     * @return Cesta media de las compras no anuladas.
+     */
+    public BigDecimal cestaMedia(LocalDate desde, LocalDate hasta) {
+        return analiticaVentasService.cestaMedia(desde, hasta);
+    }
+
+    /**
+     * Fuerza el refresco inmediato de la instantánea de ventas.
+     */
+    public void refrescar() {
+        analiticaVentasService.refrescar();
+    }
+
+    /**
+     * Vuelve a cargar desde cero la instantánea de ventas, por ejemplo tras importar 
+     * compras históricas.
+     */
+    public void recargar() {
+        analiticaVentasService.recargar();
+    }
+}
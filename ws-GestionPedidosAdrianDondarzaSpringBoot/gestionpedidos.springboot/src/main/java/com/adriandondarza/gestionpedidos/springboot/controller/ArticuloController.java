@@ -1,7 +1,10 @@
 package com.adriandondarza.gestionpedidos.springboot.controller;
 
 import com.adriandondarza.gestionpedidos.springboot.dto.ArticuloDTO;
+import com.adriandondarza.gestionpedidos.springboot.dto.ArticuloResumenDTO;
+import com.adriandondarza.gestionpedidos.springboot.dto.PaginaDTO;
 import com.adriandondarza.gestionpedidos.springboot.service.ArticuloService;
+import com.adriandondarza.gestionpedidos.springboot.service.EjecutorReintentos;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 
@@ -24,6 +27,9 @@ public class ArticuloController {
     @Autowired
     private ArticuloService articuloService;
 
+    @Autowired
+    private EjecutorReintentos ejecutorReintentos;
+
     /**
      * Procesa la creación de un nuevo artículo en el catálogo.
      * <p>
@@ -34,7 +40,7 @@ public class ArticuloController {
      * @return {@link ArticuloDTO} que representa el artículo tras ser persistido.
      */
     public ArticuloDTO crearArticulo(ArticuloDTO articuloDTO) {
-        return articuloService.guardarArticulo(articuloDTO);
+        return ejecutorReintentos.ejecutar(() -> articuloService.guardarArticulo(articuloDTO));
     }
 
     /**
@@ -55,6 +61,41 @@ public class ArticuloController {
         return articuloService.obtenerActivos();
     }
 
+    /**
+     * Recupera una página del catálogo sin descripciones, por orden de identificador.
+     * <p>
+     * Para la primera página, {@code id} es {@code null}; para las siguientes, el del 
+     * último artículo de la página anterior. La descripción de un artículo se obtiene 
+     * con {@link #obtenerDescripcion(Integer)}.
+     * </p>
+     *
+     * @param id Identificador del último artículo de la página anterior.
+     * @param tamano Número de artículos por página.
+     * @return {@link PaginaDTO} de {@link ArticuloResumenDTO}.
+     */
+    public PaginaDTO<ArticuloResumenDTO> listarResumen(Integer id, int tamano) {
+        return articuloService.obtenerResumenes(id, tamano, false);
+    }
+
+    /**
+     * Recupera una página de los artículos activos sin descripciones.
+     *
+     * @see #listarResumen(Integer, int)
+     */
+    public PaginaDTO<ArticuloResumenDTO> listarResumenActivos(Integer id, int tamano) {
+        return articuloService.obtenerResumenes(id, tamano, true);
+    }
+
+    /**
+     * Recupera la descripción de un artículo.
+     *
+     * @param id Identificador numérico del artículo.
+     * @return Descripción del artículo.
+     */
+    public String obtenerDescripcion(Integer id) {
+        return articuloService.obtenerDescripcion(id);
+    }
+
     /**
      * Busca y devuelve la información de un artículo específico basado en su identificador único.
      *
@@ -65,10 +106,37 @@ public class ArticuloController {
         return articuloService.obtenerPorId(id);
     }
 
+    /**
+     * Busca artículos activos cuyo nombre contiene un texto, ordenados por relevancia 
+     * (coincidencia exacta, comienzo del nombre, comienzo de palabra y resto).
+     *
+     * @param texto Texto a buscar; con menos de tres caracteres se busca como comienzo de palabra.
+     * @param limite Número máximo de resultados.
+     * @return {@link List} de {@link ArticuloDTO} encontrados.
+     */
+    public List<ArticuloDTO> buscar(String texto, int limite) {
+        return articuloService.buscarPorNombre(texto, false, limite);
+    }
+
+    /**
+     * Busca artículos activos cuyo nombre empieza por un texto (autocompletado).
+     *
+     * @param texto Comienzo del nombre.
+     * @param limite Número máximo de resultados.
+     * @return {@link List} de {@link ArticuloDTO} encontrados.
+     */
+    public List<ArticuloDTO> buscarPorPrefijo(String texto, int limite) {
+        return articuloService.buscarPorNombre(texto, true, limite);
+    }
+
     /**
      * Actualiza un artículo existente en la base de datos.
+     * <p>
+     * No se reintenta ante conflictos de versión: el conflicto indica que el artículo 
+     * cambió desde que se leyó, y la edición debe repetirse sobre los datos actuales.
+     * </p>
      *
-     * @param articuloDTO Objeto con los datos actualizados.
+     * @param articuloDTO Objeto con los datos actualizados y la versión leída.
      * @return {@link ArticuloDTO} persistido.
      */
     public ArticuloDTO guardar(ArticuloDTO articuloDTO) {
@@ -83,4 +151,23 @@ public class ArticuloController {
     public void eliminarLogico(Integer id) {
         articuloService.desactivarArticulo(id);
     }
+
+    /**
+     * Activa el modo de stock fragmentado para un artículo con mucha concurrencia de pedidos.
+     *
+     * @param id Identificador numérico del artículo.
+     * @param fragmentos Número de ranuras entre las que repartir el stock.
+     */
+    public void fragmentarStock(Integer id, int fragmentos) {
+        articuloService.fragmentarStock(id, fragmentos);
+    }
+
+    /**
+     * Devuelve un artículo al modo de stock normal.
+     *
+     * @param id Identificador numérico del artículo.
+     */
+    public void consolidarStock(Integer id) {
+        articuloService.consolidarStock(id);
+    }
 }
\ No newline at end of file
@@ -1,6 +1,9 @@
 package com.adriandondarza.gestionpedidos.springboot.controller;
 
 import com.adriandondarza.gestionpedidos.springboot.dto.ClienteDTO;
+import com.adriandondarza.gestionpedidos.springboot.dto.PaginaDTO;
+import com.adriandondarza.gestionpedidos.springboot.dto.ResultadoValidacionDTO;
+import com.adriandondarza.gestionpedidos.springboot.dto.ResumenClienteDTO;
 import com.adriandondarza.gestionpedidos.springboot.service.ClienteService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
@@ -47,4 +50,57 @@ public class ClienteController {
     public List<ClienteDTO> listarClientes() {
         return clienteService.obtenerTodos();
     }
-}
\ No newline at end of file
+
+    /**
+     * Recupera una página del directorio de clientes, por orden de NIF/CIF.
+     * <p>
+     * Para la primera página, {@code nif} es {@code null}; para las siguientes, el del 
+     * último cliente de la página anterior.
+     * </p>
+     *
+     * @param nif NIF/CIF del último cliente de la página anterior.
+     * @param tamano Número de clientes por página.
+     * @return {@link PaginaDTO} de {@link ClienteDTO}.
+     */
+    public PaginaDTO<ClienteDTO> listarPagina(String nif, int tamano) {
+        return clienteService.obtenerPagina(nif, null, null, tamano);
+    }
+
+    /**
+     * Recupera una página de los clientes cuyo nombre y/o email empiezan por un texto.
+     * <p>
+     * El nombre se compara sin distinguir mayúsculas. Un filtro {@code null} o vacío no 
+     * se aplica. La paginación es la de {@link #listarPagina(String, int)}.
+     * </p>
+     *
+     * @param prefijoNombre Comienzo del nombre.
+     * @param prefijoEmail Comienzo del email.
+     * @param nif NIF/CIF del último cliente de la página anterior.
+     * @param tamano Número de clientes por página.
+     * @return {@link PaginaDTO} de {@link ClienteDTO}.
+     */
+    public PaginaDTO<ClienteDTO> buscarPagina(String prefijoNombre, String prefijoEmail, String nif, int tamano) {
+        return clienteService.obtenerPagina(nif, prefijoNombre, prefijoEmail, tamano);
+    }
+
+    /**
+     * Valida un fichero de importación de clientes antes de darlo de alta.
+     *
+     * @param registros Registros en el orden del fichero.
+     * @return Un {@link ResultadoValidacionDTO} por registro, con todos sus errores.
+     */
+    public List<ResultadoValidacionDTO> validarClientes(List<ClienteDTO> registros) {
+        return clienteService.validarClientes(registros);
+    }
+
+    /**
+     * Obtiene el resumen de compras de un cliente para su ficha: número de pedidos, 
+     * gasto acumulado y fecha de la última compra.
+     *
+     * @param nif El NIF/CIF del cliente.
+     * @return {@link ResumenClienteDTO} del cliente.
+     */
+    public ResumenClienteDTO obtenerResumen(String nif) {
+        return clienteService.obtenerResumen(nif);
+    }
+}
@@ -1,12 +1,26 @@
 package com.adriandondarza.gestionpedidos.springboot.controller;
 
+import com.adriandondarza.gestionpedidos.springboot.dto.CompraDetalleDTO;
 import com.adriandondarza.gestionpedidos.springboot.dto.CompraRegistroDTO;
 import com.adriandondarza.gestionpedidos.springboot.dto.CompraRespuestaDTO;
+import com.adriandondarza.gestionpedidos.springboot.dto.FormatoExportacion;
+import com.adriandondarza.gestionpedidos.springboot.dto.PaginaDTO;
+import com.adriandondarza.gestionpedidos.springboot.dto.ResultadoCompraDTO;
+import com.adriandondarza.gestionpedidos.springboot.dto.ResultadoExportacionDTO;
+import com.adriandondarza.gestionpedidos.springboot.dto.ResultadoTransicionDTO;
+import com.adriandondarza.gestionpedidos.springboot.dto.TicketCompraDTO;
 import com.adriandondarza.gestionpedidos.springboot.service.CompraService;
+import com.adriandondarza.gestionpedidos.springboot.service.ConfirmacionAgrupadaCompras;
+import com.adriandondarza.gestionpedidos.springboot.service.EjecutorReintentos;
+import com.adriandondarza.gestionpedidos.springboot.service.IndiceIdempotenciaCompras;
+import com.adriandondarza.gestionpedidos.springboot.service.RecepcionAsincronaCompras;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 
+import java.nio.file.Path;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Controlador encargado de la gestión y procesamiento de órdenes de compra.
@@ -24,10 +38,26 @@ public class CompraController {
     @Autowired
     private CompraService compraService;
 
+    @Autowired
+    private EjecutorReintentos ejecutorReintentos;
+
+    @Autowired
+    private ConfirmacionAgrupadaCompras confirmacionAgrupada;
+
+    @Autowired
+    private RecepcionAsincronaCompras recepcionAsincrona;
+
+    @Autowired
+    private IndiceIdempotenciaCompras indiceIdempotencia;
+
     /**
      * Procesa la creación de un nuevo pedido en el sistema.
      * <p>
      * Se ha renombrado a 'procesarPedido' para coincidir con la llamada desde la App de escritorio.
+     * Los conflictos de concurrencia optimista se reintentan automáticamente. Si la 
+     * confirmación agrupada está activa, el pedido se registra junto con otros pedidos 
+     * concurrentes en una misma transacción. Un reenvío cuya clave de idempotencia está 
+     * en memoria se responde con la compra original sin abrir ninguna transacción.
      * </p>
      *
      * @param peticion Objeto {@link CompraRegistroDTO} con la información del pedido.
@@ -36,12 +66,64 @@ public class CompraController {
      */
     public CompraRespuestaDTO procesarPedido(CompraRegistroDTO peticion) {
         try {
-            return compraService.procesarCompra(peticion);
+            if (peticion.getClaveIdempotencia() != null) {
+                CompraRespuestaDTO original = indiceIdempotencia.buscar(peticion.getClaveIdempotencia());
+                if (original != null) {
+                    return original;
+                }
+            }
+            if (confirmacionAgrupada.isHabilitada()) {
+                return confirmacionAgrupada.procesar(peticion);
+            }
+            return ejecutorReintentos.ejecutar(() -> compraService.procesarCompra(peticion));
         } catch (RuntimeException e) {
             throw e;
         }
     }
 
+    /**
+     * Acepta un pedido para su registro en segundo plano sin bloquear al llamante.
+     *
+     * @param peticion Objeto {@link CompraRegistroDTO} con la información del pedido.
+     * @return {@link TicketCompraDTO} con el que consultar el resultado del pedido.
+     * @throws RuntimeException si la cola de pedidos está llena.
+     */
+    public TicketCompraDTO procesarPedidoAsincrono(CompraRegistroDTO peticion) {
+        return recepcionAsincrona.enviar(peticion);
+    }
+
+    /**
+     * Acepta un pedido para su registro en segundo plano y notifica su resultado.
+     *
+     * @param peticion Objeto {@link CompraRegistroDTO} con la información del pedido.
+     * @param alCompletar Acción invocada, desde un hilo trabajador, con el ticket finalizado.
+     * @return {@link TicketCompraDTO} con el que consultar el resultado del pedido.
+     * @throws RuntimeException si la cola de pedidos está llena.
+     */
+    public TicketCompraDTO procesarPedidoAsincrono(CompraRegistroDTO peticion, Consumer<TicketCompraDTO> alCompletar) {
+        return recepcionAsincrona.enviar(peticion, alCompletar);
+    }
+
+    /**
+     * Consulta la situación de un pedido enviado de forma asíncrona.
+     */
+    public TicketCompraDTO consultarPedido(String ticket) {
+        return recepcionAsincrona.consultar(ticket);
+    }
+
+    /**
+     * Procesa en bloque un fichero de pedidos (integraciones con marketplaces).
+     * <p>
+     * Un pedido erróneo no aborta el resto: cada entrada recibe su propio resultado.
+     * </p>
+     *
+     * @param peticiones Pedidos a registrar.
+     * @return Un {@link ResultadoCompraDTO} por pedido, en el mismo orden de entrada.
+     */
+    public List<ResultadoCompraDTO> procesarPedidos(List<CompraRegistroDTO> peticiones) {
+        return compraService.procesarCompras(peticiones);
+    }
+
     /**
      * Recupera el histórico de compras realizadas por un cliente específico.
      */
@@ -56,10 +138,72 @@ public class CompraController {
         return compraService.obtenerTodas();
     }
 
+    /**
+     * Obtiene el detalle completo de una compra, con sus líneas de artículos.
+     */
+    public CompraDetalleDTO obtenerDetalle(Integer compraId) {
+        return compraService.obtenerDetalle(compraId);
+    }
+
+    /**
+     * Obtiene el detalle completo de varias compras, en el orden solicitado.
+     */
+    public List<CompraDetalleDTO> obtenerDetalles(List<Integer> compraIds) {
+        return compraService.obtenerDetalles(compraIds);
+    }
+
+    /**
+     * Recupera una página del histórico de compras de un cliente, más recientes primero.
+     * <p>
+     * Para la primera página, {@code fecha} e {@code id} son {@code null}; para las 
+     * siguientes, los del último pedido de la página anterior.
+     * </p>
+     */
+    public PaginaDTO<CompraRespuestaDTO> historialPorCliente(String nif, LocalDateTime fecha, Integer id, int tamano) {
+        return compraService.obtenerPaginaPorCliente(nif, fecha, id, tamano);
+    }
+
+    /**
+     * Recupera una página del listado global de compras, más recientes primero.
+     *
+     * @see #historialPorCliente(String, LocalDateTime, Integer, int)
+     */
+    public PaginaDTO<CompraRespuestaDTO> listarCompras(LocalDateTime fecha, Integer id, int tamano) {
+        return compraService.obtenerPagina(fecha, id, tamano);
+    }
+
+    /**
+     * Exporta el histórico completo de compras a fichero (extracción nocturna de contabilidad).
+     *
+     * @param rutaFichero Ruta del fichero de salida.
+     * @param formato Formato NDJSON o CSV.
+     * @param comprimir {@code true} para comprimir la salida con gzip.
+     * @return {@link ResultadoExportacionDTO} con el volumen exportado y el rendimiento obtenido.
+     */
+    public ResultadoExportacionDTO exportarCompras(String rutaFichero, FormatoExportacion formato, boolean comprimir) {
+        return compraService.exportarCompras(Path.of(rutaFichero), formato, comprimir);
+    }
+
     /**
      * Actualiza el estado logístico de una compra específica.
      */
     public CompraRespuestaDTO actualizarEstado(Integer compraId, String nuevoEstado) {
-        return compraService.cambiarEstado(compraId, nuevoEstado);
+        return ejecutorReintentos.ejecutar(() -> compraService.cambiarEstado(compraId, nuevoEstado));
+    }
+
+    /**
+     * Actualiza el estado logístico de un conjunto de compras (por ejemplo, una oleada 
+     * de expedición marcada como ENVIADO).
+     * <p>
+     * Las compras cuyo estado actual no admite la transición se informan como rechazadas 
+     * sin afectar al resto.
+     * </p>
+     *
+     * @param compraIds Identificadores de las compras.
+     * @param nuevoEstado Nombre del nuevo estado.
+     * @return {@link List} de {@link ResultadoTransicionDTO} con el resultado de cada compra.
+     */
+    public List<ResultadoTransicionDTO> actualizarEstados(List<Integer> compraIds, String nuevoEstado) {
+        return compraService.cambiarEstados(compraIds, nuevoEstado);
     }
 }
\ No newline at end of file
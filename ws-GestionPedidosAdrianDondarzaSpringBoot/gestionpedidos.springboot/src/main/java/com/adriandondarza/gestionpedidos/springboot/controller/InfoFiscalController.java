@@ -1,10 +1,14 @@
 package com.adriandondarza.gestionpedidos.springboot.controller;
 
 import com.adriandondarza.gestionpedidos.springboot.dto.InfoFiscalDTO;
+import com.adriandondarza.gestionpedidos.springboot.dto.ResultadoValidacionDTO;
+import com.adriandondarza.gestionpedidos.springboot.dto.ResumenAltaClientesDTO;
 import com.adriandondarza.gestionpedidos.springboot.service.InfoFiscalService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 
+import java.util.List;
+
 /**
  * Controlador principal para la gestión de la identidad fiscal y legal de los usuarios.
  * <p>
@@ -38,6 +42,31 @@ public class InfoFiscalController {
         return infoFiscalService.registrarInfoFiscal(infoFiscalDTO);
     }
 
+    /**
+     * Da de alta en bloque un fichero de clientes de un socio.
+     * <p>
+     * Los registros erróneos o duplicados se rechazan individualmente sin interrumpir 
+     * el alta del resto.
+     * </p>
+     *
+     * @param registros Registros en el orden del fichero.
+     * @return {@link ResumenAltaClientesDTO} con el resultado de cada registro y la 
+     * duración total del alta.
+     */
+    public ResumenAltaClientesDTO registrarLote(List<InfoFiscalDTO> registros) {
+        return infoFiscalService.registrarLote(registros);
+    }
+
+    /**
+     * Valida un fichero de importación de registros fiscales antes de darlo de alta.
+     *
+     * @param registros Registros en el orden del fichero.
+     * @return Un {@link ResultadoValidacionDTO} por registro, con todos sus errores.
+     */
+    public List<ResultadoValidacionDTO> validarRegistros(List<InfoFiscalDTO> registros) {
+        return infoFiscalService.validarRegistros(registros);
+    }
+
     /**
      * Elimina la información fiscal del sistema. 
      * <p>
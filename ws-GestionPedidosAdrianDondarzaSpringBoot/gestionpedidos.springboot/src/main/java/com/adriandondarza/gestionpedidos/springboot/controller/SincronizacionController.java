@@ -0,0 +1,35 @@
+package com.adriandondarza.gestionpedidos.springboot.controller;
+
+import com.adriandondarza.gestionpedidos.springboot.dto.CambiosDTO;
+import com.adriandondarza.gestionpedidos.springboot.service.SincronizacionService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Controller;
+
+/**
+ * Controlador de la sincronización por diferencias del catálogo y los clientes.
+ * <p>
+ * Sustituye en los refrescos periódicos de la aplicación de escritorio a los listados 
+ * completos: tras una carga inicial con versión {@code 0}, cada refresco envía la 
+ * versión recibida en el anterior y recibe solo los registros cambiados.
+ * </p>
+ *
+ * @author Adrian Dondarza
+ * @version 1.0
+ * @since 2026-10-16
+ */
+@Controller
+public class SincronizacionController {
+
+    @Autowired
+    private SincronizacionService sincronizacionService;
+
+    /**
+     * Obtiene los artículos y clientes cambiados y los clientes eliminados desde una versión.
+     *
+     * @param version Versión devuelta por la sincronización anterior ({@code 0} para la carga inicial).
+     * @return {@link CambiosDTO} con los cambios y la versión para la siguiente consulta.
+     */
+    public CambiosDTO cambiosDesde(long version) {
+        return sincronizacionService.cambiosDesde(version);
+    }
+}
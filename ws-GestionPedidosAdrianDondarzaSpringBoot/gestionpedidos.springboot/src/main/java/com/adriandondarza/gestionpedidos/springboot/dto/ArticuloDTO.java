@@ -53,4 +53,10 @@ public class ArticuloDTO {
      * Representa si el producto está habilitado para la venta (Borrado lógico).
      */
     private Boolean activo;
+
+    /**
+     * Versión del artículo cuando se leyó. Las actualizaciones deben devolverla sin 
+     * cambios para que se rechacen si el artículo se modificó entretanto.
+     */
+    private Long version;
 }
\ No newline at end of file
@@ -0,0 +1,50 @@
+package com.adriandondarza.gestionpedidos.springboot.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.math.BigDecimal;
+
+/**
+ * Objeto de Transferencia de Datos (DTO) con los datos de un artículo necesarios para 
+ * los listados del catálogo.
+ * <p>
+ * A diferencia de {@link ArticuloDTO}, no incluye la descripción: es un {@code CLOB} que 
+ * obligaría a leer el LOB de cada fila. La descripción se solicita aparte, solo para el 
+ * artículo que se consulta en detalle.
+ * </p>
+ *
+ * @author Adrian Dondarza
+ * @version 1.0
+ * @since 2026-10-16
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ArticuloResumenDTO {
+
+    /**
+     * Identificador único del artículo.
+     */
+    private Integer id;
+
+    /**
+     * Nombre comercial del artículo.
+     */
+    private String nombre;
+
+    /**
+     * Valor monetario unitario actual del artículo.
+     */
+    private BigDecimal precioActual;
+
+    /**
+     * Cantidad de unidades disponibles en el inventario.
+     */
+    private Integer stock;
+
+    /**
+     * Estado de disponibilidad del artículo (borrado lógico).
+     */
+    private Boolean activo;
+}
@@ -0,0 +1,47 @@
+package com.adriandondarza.gestionpedidos.springboot.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Objeto de Transferencia de Datos (DTO) con los cambios del catálogo y de los clientes 
+ * posteriores a una versión de cambio.
+ * <p>
+ * Las aplicaciones de escritorio aplican a su copia local primero las eliminaciones y 
+ * después los artículos y clientes cambiados, y guardan {@link #version} para pedir los 
+ * siguientes cambios. Un mismo registro puede llegar repetido en dos sincronizaciones 
+ * consecutivas; aplicarlo de nuevo no tiene efecto.
+ * </p>
+ *
+ * @author Adrian Dondarza
+ * @version 1.0
+ * @since 2026-10-16
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CambiosDTO {
+
+    /**
+     * Versión hasta la que la copia local queda sincronizada; se envía en la siguiente consulta.
+     */
+    private long version;
+
+    /**
+     * Artículos dados de alta, modificados o desactivados (con su stock actual).
+     */
+    private List<ArticuloDTO> articulos;
+
+    /**
+     * Clientes dados de alta o modificados.
+     */
+    private List<ClienteDTO> clientes;
+
+    /**
+     * NIF/CIF de los clientes eliminados.
+     */
+    private List<String> clientesEliminados;
+}
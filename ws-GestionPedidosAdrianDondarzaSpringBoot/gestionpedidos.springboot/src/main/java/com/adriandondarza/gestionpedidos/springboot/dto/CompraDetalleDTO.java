@@ -0,0 +1,33 @@
+package com.adriandondarza.gestionpedidos.springboot.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+
+/**
+ * Objeto de Transferencia de Datos (DTO) con el detalle completo de una compra.
+ * <p>
+ * Reúne la cabecera del pedido, tal como se muestra en los listados, y sus líneas con 
+ * el artículo, las unidades y el precio congelado en el momento de la compra.
+ * </p>
+ *
+ * @author Adrian Dondarza
+ * @version 1.0
+ * @since 2026-10-16
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CompraDetalleDTO {
+
+    /**
+     * Datos de cabecera del pedido (fecha, estado, importe, cliente...).
+     */
+    private CompraRespuestaDTO cabecera;
+
+    /**
+     * Líneas del pedido, ordenadas por identificador de artículo.
+     */
+    private List<LineaCompraDTO> lineas;
+}
@@ -38,4 +38,25 @@ public class CompraRegistroDTO {
      * Cada elemento de la lista representa una línea de detalle en el pedido final.
      */
     private List<LineaCompraDTO> lineas; 
+
+    /**
+     * Clave de idempotencia opcional generada por el cliente para este envío.
+     * <p>
+     * Si el cliente reenvía el mismo pedido (por ejemplo, tras agotar el tiempo de espera) 
+     * con la misma clave, el servidor devuelve la compra original en lugar de registrarla 
+     * de nuevo. Máximo 64 caracteres.
+     * </p>
+     */
+    private String claveIdempotencia;
+
+    /**
+     * Constructor de un pedido sin clave de idempotencia.
+     *
+     * @param clienteNif NIF/CIF del cliente.
+     * @param direccionEnvio Dirección de entrega.
+     * @param lineas Líneas del pedido.
+     */
+    public CompraRegistroDTO(String clienteNif, String direccionEnvio, List<LineaCompraDTO> lineas) {
+        this(clienteNif, direccionEnvio, lineas, null);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,20 @@
+package com.adriandondarza.gestionpedidos.springboot.dto;
+
+/**
+ * Formatos de fichero disponibles para la exportación masiva de compras.
+ *
+ * @author Adrian Dondarza
+ * @version 1.0
+ * @since 2026-10-16
+ */
+public enum FormatoExportacion {
+    /**
+     * Un objeto JSON por línea (JSON delimitado por saltos de línea).
+     */
+    NDJSON,
+
+    /**
+     * Valores separados por comas con fila de cabecera (RFC 4180).
+     */
+    CSV
+}
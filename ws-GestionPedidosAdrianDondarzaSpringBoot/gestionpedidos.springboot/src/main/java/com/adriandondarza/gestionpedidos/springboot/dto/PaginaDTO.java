@@ -0,0 +1,52 @@
+package com.adriandondarza.gestionpedidos.springboot.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+
+/**
+ * Objeto de Transferencia de Datos (DTO) que representa una página de un listado.
+ * <p>
+ * Los listados paginados por clave (keyset) no calculan el número total de registros 
+ * ni de páginas: la página siguiente se solicita a partir del último elemento recibido, 
+ * y {@code hayMas} indica si existe.
+ * </p>
+ *
+ * @param <T> Tipo de los elementos listados.
+ * @author Adrian Dondarza
+ * @version 1.0
+ * @since 2026-10-16
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaginaDTO<T> {
+
+    /**
+     * Elementos de la página, en el orden del listado.
+     */
+    private List<T> elementos;
+
+    /**
+     * Indica si existen más elementos a continuación del último de esta página.
+     */
+    private boolean hayMas;
+
+    /**
+     * Construye una página a partir de una consulta que ha leído un elemento de más.
+     * <p>
+     * Pedir {@code tamano + 1} filas permite saber si hay página siguiente sin 
+     * una consulta de recuento adicional.
+     * </p>
+     *
+     * @param leidos Elementos leídos (como máximo {@code tamano + 1}).
+     * @param tamano Tamaño de página solicitado.
+     * @param <T> Tipo de los elementos.
+     * @return Página con, como máximo, {@code tamano} elementos.
+     */
+    public static <T> PaginaDTO<T> de(List<T> leidos, int tamano) {
+        boolean hayMas = leidos.size() > tamano;
+        return new PaginaDTO<>(hayMas ? leidos.subList(0, tamano) : leidos, hayMas);
+    }
+}
@@ -0,0 +1,67 @@
+package com.adriandondarza.gestionpedidos.springboot.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Objeto de Transferencia de Datos (DTO) con el resultado individual de un registro 
+ * dentro de un alta masiva de clientes.
+ * <p>
+ * Un registro rechazado recoge todos sus errores de formato, o el motivo del rechazo 
+ * si el formato es correcto pero el NIF, el email o el teléfono ya están en uso.
+ * </p>
+ *
+ * @author Adrian Dondarza
+ * @version 1.0
+ * @since 2026-10-16
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResultadoAltaClienteDTO {
+
+    /**
+     * Posición del registro dentro de la lista de entrada (base 0).
+     */
+    private int indice;
+
+    /**
+     * Indica si el cliente se dio de alta correctamente.
+     */
+    private boolean exito;
+
+    /**
+     * Datos del cliente dado de alta; {@code null} si el registro fue rechazado.
+     */
+    private ClienteDTO cliente;
+
+    /**
+     * Motivos del rechazo; vacía si el cliente se dio de alta correctamente.
+     */
+    private List<String> errores;
+
+    /**
+     * Crea el resultado de un cliente dado de alta correctamente.
+     *
+     * @param indice Posición del registro en la entrada.
+     * @param cliente Datos del cliente dado de alta.
+     * @return Resultado satisfactorio.
+     */
+    public static ResultadoAltaClienteDTO correcto(int indice, ClienteDTO cliente) {
+        return new ResultadoAltaClienteDTO(indice, true, cliente, List.of());
+    }
+
+    /**
+     * Crea el resultado de un registro rechazado.
+     *
+     * @param indice Posición del registro en la entrada.
+     * @param errores Motivos del rechazo.
+     * @return Resultado fallido.
+     */
+    public static ResultadoAltaClienteDTO fallido(int indice, List<String> errores) {
+        return new ResultadoAltaClienteDTO(indice, false, null, errores);
+    }
+}
@@ -0,0 +1,65 @@
+package com.adriandondarza.gestionpedidos.springboot.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Objeto de Transferencia de Datos (DTO) con el resultado individual de un pedido 
+ * procesado dentro de una carga masiva.
+ * <p>
+ * Permite informar de los pedidos aceptados y rechazados de un mismo fichero sin 
+ * que un pedido erróneo interrumpa el procesamiento del resto.
+ * </p>
+ *
+ * @author Adrian Dondarza
+ * @version 1.0
+ * @since 2026-10-16
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResultadoCompraDTO {
+
+    /**
+     * Posición del pedido dentro de la lista de entrada (base 0).
+     */
+    private int indice;
+
+    /**
+     * Indica si el pedido se registró correctamente.
+     */
+    private boolean exito;
+
+    /**
+     * Resumen del pedido registrado; {@code null} si fue rechazado.
+     */
+    private CompraRespuestaDTO compra;
+
+    /**
+     * Motivo del rechazo; {@code null} si el pedido se registró correctamente.
+     */
+    private String error;
+
+    /**
+     * Crea el resultado de un pedido registrado correctamente.
+     *
+     * @param indice Posición del pedido en la entrada.
+     * @param compra Resumen del pedido registrado.
+     * @return Resultado satisfactorio.
+     */
+    public static ResultadoCompraDTO correcto(int indice, CompraRespuestaDTO compra) {
+        return new ResultadoCompraDTO(indice, true, compra, null);
+    }
+
+    /**
+     * Crea el resultado de un pedido rechazado.
+     *
+     * @param indice Posición del pedido en la entrada.
+     * @param error Motivo del rechazo.
+     * @return Resultado fallido.
+     */
+    public static ResultadoCompraDTO fallido(int indice, String error) {
+        return new ResultadoCompraDTO(indice, false, null, error);
+    }
+}
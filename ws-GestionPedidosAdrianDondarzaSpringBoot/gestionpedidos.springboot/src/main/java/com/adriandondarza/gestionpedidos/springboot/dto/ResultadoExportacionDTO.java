@@ -0,0 +1,47 @@
+package com.adriandondarza.gestionpedidos.springboot.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Objeto de Transferencia de Datos (DTO) con el resumen de una exportación masiva de compras.
+ * <p>
+ * Además de confirmar el volumen exportado, informa del rendimiento obtenido para 
+ * poder seguir su evolución en las ejecuciones nocturnas.
+ * </p>
+ *
+ * @author Adrian Dondarza
+ * @version 1.0
+ * @since 2026-10-16
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResultadoExportacionDTO {
+
+    /**
+     * Ruta del fichero generado.
+     */
+    private String fichero;
+
+    /**
+     * Número de compras exportadas.
+     */
+    private long filas;
+
+    /**
+     * Tamaño final del fichero en bytes (comprimido, si se solicitó compresión).
+     */
+    private long bytes;
+
+    /**
+     * Duración total de la exportación en milisegundos.
+     */
+    private long duracionMs;
+
+    /**
+     * Rendimiento medio de la exportación en compras por segundo.
+     */
+    private double filasPorSegundo;
+}
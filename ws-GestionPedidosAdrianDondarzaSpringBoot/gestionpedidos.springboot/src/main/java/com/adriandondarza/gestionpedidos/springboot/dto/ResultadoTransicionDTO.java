@@ -0,0 +1,59 @@
+package com.adriandondarza.gestionpedidos.springboot.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Objeto de Transferencia de Datos (DTO) con el resultado individual de una compra 
+ * dentro de un cambio de estado masivo.
+ * <p>
+ * Permite informar de las compras actualizadas y de las rechazadas (inexistentes o con 
+ * una transición no permitida) sin que estas interrumpan el resto de la operación.
+ * </p>
+ *
+ * @author Adrian Dondarza
+ * @version 1.0
+ * @since 2026-10-16
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResultadoTransicionDTO {
+
+    /**
+     * Identificador de la compra.
+     */
+    private Integer compraId;
+
+    /**
+     * Indica si el cambio de estado se aplicó.
+     */
+    private boolean exito;
+
+    /**
+     * Motivo del rechazo; {@code null} si el cambio se aplicó.
+     */
+    private String error;
+
+    /**
+     * Crea el resultado de una compra actualizada correctamente.
+     *
+     * @param compraId Identificador de la compra.
+     * @return Resultado satisfactorio.
+     */
+    public static ResultadoTransicionDTO correcto(Integer compraId) {
+        return new ResultadoTransicionDTO(compraId, true, null);
+    }
+
+    /**
+     * Crea el resultado de una compra rechazada.
+     *
+     * @param compraId Identificador de la compra.
+     * @param error Motivo del rechazo.
+     * @return Resultado fallido.
+     */
+    public static ResultadoTransicionDTO fallido(Integer compraId, String error) {
+        return new ResultadoTransicionDTO(compraId, false, error);
+    }
+}
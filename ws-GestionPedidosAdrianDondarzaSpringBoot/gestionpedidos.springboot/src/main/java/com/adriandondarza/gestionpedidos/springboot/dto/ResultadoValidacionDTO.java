@@ -0,0 +1,42 @@
+package com.adriandondarza.gestionpedidos.springboot.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Objeto de Transferencia de Datos (DTO) con el resultado de validar un registro de un
+ * fichero de importación.
+ * <p>
+ * Recoge todos los errores del registro, no solo el primero, para que el fichero pueda
+ * corregirse de una sola vez.
+ * </p>
+ *
+ * @author Adrian Dondarza
+ * @version 1.0
+ * @since 2026-10-16
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResultadoValidacionDTO {
+
+    /**
+     * Posición del registro dentro de la lista de entrada (base 0).
+     */
+    private int indice;
+
+    /**
+     * Errores encontrados; vacía si el registro es válido.
+     */
+    private List<String> errores;
+
+    /**
+     * @return {@code true} si el registro no tiene errores.
+     */
+    public boolean isValido() {
+        return errores.isEmpty();
+    }
+}
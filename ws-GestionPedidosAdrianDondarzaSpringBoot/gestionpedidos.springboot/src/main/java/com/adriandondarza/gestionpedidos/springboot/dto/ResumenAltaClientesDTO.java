@@ -0,0 +1,49 @@
+package com.adriandondarza.gestionpedidos.springboot.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Objeto de Transferencia de Datos (DTO) con el resumen de un alta masiva de clientes.
+ * <p>
+ * Junto al resultado de cada registro informa de la duración total del proceso, de 
+ * principio a fin, para poder seguir el rendimiento de las cargas de ficheros de socios.
+ * </p>
+ *
+ * @author Adrian Dondarza
+ * @version 1.0
+ * @since 2026-10-16
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResumenAltaClientesDTO {
+
+    /**
+     * Un resultado por registro, en el orden del fichero.
+     */
+    private List<ResultadoAltaClienteDTO> resultados;
+
+    /**
+     * Número de clientes dados de alta.
+     */
+    private int altas;
+
+    /**
+     * Número de registros rechazados.
+     */
+    private int rechazos;
+
+    /**
+     * Duración total del alta en milisegundos.
+     */
+    private long duracionMs;
+
+    /**
+     * Rendimiento medio del alta en registros procesados por segundo.
+     */
+    private double registrosPorSegundo;
+}
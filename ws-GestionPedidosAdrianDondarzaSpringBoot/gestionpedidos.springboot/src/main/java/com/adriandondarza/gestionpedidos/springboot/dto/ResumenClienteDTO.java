@@ -0,0 +1,44 @@
+package com.adriandondarza.gestionpedidos.springboot.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Objeto de Transferencia de Datos (DTO) con el resumen de compras de un cliente.
+ * <p>
+ * Alimenta la ficha de cliente de la aplicación de escritorio: número de pedidos, 
+ * gasto acumulado y fecha de la última compra, sin contar los pedidos anulados.
+ * </p>
+ *
+ * @author Adrian Dondarza
+ * @version 1.0
+ * @since 2026-10-16
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResumenClienteDTO {
+
+    /**
+     * NIF/CIF del cliente.
+     */
+    private String nifCif;
+
+    /**
+     * Número de compras no anuladas.
+     */
+    private long numCompras;
+
+    /**
+     * Importe total gastado en compras no anuladas.
+     */
+    private BigDecimal totalGastado;
+
+    /**
+     * Fecha de la última compra no anulada; {@code null} si el cliente no tiene ninguna.
+     */
+    private LocalDateTime ultimaCompra;
+}
@@ -0,0 +1,44 @@
+package com.adriandondarza.gestionpedidos.springboot.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Objeto de Transferencia de Datos (DTO) con la situación de un pedido enviado por la
+ * vía de recepción asíncrona.
+ * <p>
+ * La aplicación de escritorio recibe este objeto inmediatamente al enviar el pedido y
+ * lo consulta después (o recibe una notificación) para conocer su resultado sin
+ * bloquear la interfaz durante el acceso a base de datos.
+ * </p>
+ *
+ * @author Adrian Dondarza
+ * @version 1.0
+ * @since 2026-10-16
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TicketCompraDTO {
+
+    /**
+     * Identificador del ticket asignado al pedido en el momento de su recepción.
+     */
+    private String ticket;
+
+    /**
+     * Situación del pedido: PENDIENTE, EN_PROCESO, COMPLETADO o RECHAZADO.
+     */
+    private String estado;
+
+    /**
+     * Resumen del pedido registrado; sólo informado cuando el estado es COMPLETADO.
+     */
+    private CompraRespuestaDTO compra;
+
+    /**
+     * Motivo del rechazo; sólo informado cuando el estado es RECHAZADO.
+     */
+    private String error;
+}
@@ -0,0 +1,34 @@
+package com.adriandondarza.gestionpedidos.springboot.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.math.BigDecimal;
+
+/**
+ * Objeto de Transferencia de Datos (DTO) con las ventas acumuladas de un artículo.
+ *
+ * @author Adrian Dondarza
+ * @version 1.0
+ * @since 2026-10-16
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VentaArticuloDTO {
+
+    /**
+     * Identificador del artículo.
+     */
+    private Integer articuloId;
+
+    /**
+     * Unidades vendidas en compras no anuladas.
+     */
+    private long unidades;
+
+    /**
+     * Importe facturado por el artículo, a los precios congelados de cada compra.
+     */
+    private BigDecimal ingresos;
+}
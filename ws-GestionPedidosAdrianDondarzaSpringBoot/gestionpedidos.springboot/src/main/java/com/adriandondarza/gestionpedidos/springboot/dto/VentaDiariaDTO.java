@@ -0,0 +1,35 @@
+package com.adriandondarza.gestionpedidos.springboot.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Objeto de Transferencia de Datos (DTO) con la facturación de un día.
+ *
+ * @author Adrian Dondarza
+ * @version 1.0
+ * @since 2026-10-16
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VentaDiariaDTO {
+
+    /**
+     * Día natural de las compras.
+     */
+    private LocalDate fecha;
+
+    /**
+     * Importe facturado ese día (compras no anuladas).
+     */
+    private BigDecimal ingresos;
+
+    /**
+     * Número de compras no anuladas realizadas ese día.
+     */
+    private long compras;
+}
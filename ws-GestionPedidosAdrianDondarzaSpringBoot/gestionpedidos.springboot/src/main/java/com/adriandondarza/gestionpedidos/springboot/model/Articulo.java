@@ -27,10 +27,13 @@ public class Articulo {
 
     /**
      * Identificador único del artículo.
-     * Mapeado como una columna de identidad (auto-incremental) en la base de datos.
+     * Obtenido de la secuencia {@code seq_articulos} con optimizador agrupado: Hibernate 
+     * reserva bloques de 50 valores y los asigna en memoria, lo que permite agrupar 
+     * las inserciones en lotes JDBC.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "seq_articulos")
+    @SequenceGenerator(name = "seq_articulos", sequenceName = "seq_articulos", allocationSize = 50)
     private Integer id;
 
     /**
@@ -67,4 +70,33 @@ public class Articulo {
      */
     @Column(nullable = false)
     private Boolean activo = true;
-}
\ No newline at end of file
+
+    /**
+     * Número de ranuras en las que se reparte el stock (modo fragmentado).
+     * <p>
+     * Con el valor {@code 0} el artículo trabaja en modo normal y su inventario es 
+     * el campo {@link #stock}. Con un valor positivo el inventario real es la suma 
+     * de sus filas {@link StockFragmento} y {@link #stock} permanece a cero.
+     * </p>
+     */
+    @Column(name = "fragmentos_stock", nullable = false)
+    private Integer fragmentosStock = 0;
+
+    /**
+     * Versión del registro para el control de concurrencia optimista.
+     * <p>
+     * Hibernate la incrementa en cada actualización y rechaza la escritura si 
+     * otra transacción ha modificado el artículo desde que fue leído.
+     * </p>
+     */
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
+    /**
+     * Versión de cambio asignada por trigger desde {@code seq_cambios} en cada alta o 
+     * modificación de la fila. Solo lectura: la mantiene la base de datos.
+     */
+    @Column(name = "version_cambio", insertable = false, updatable = false)
+    private Long versionCambio;
+}
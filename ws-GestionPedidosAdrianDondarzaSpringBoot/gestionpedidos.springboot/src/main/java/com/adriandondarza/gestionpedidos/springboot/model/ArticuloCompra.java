@@ -9,6 +9,8 @@ import jakarta.persistence.ManyToOne;
 import jakarta.persistence.MapsId;
 import jakarta.persistence.Table;
 import lombok.Data;
+import lombok.ToString;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 import java.math.BigDecimal;
 
@@ -59,6 +61,8 @@ public class ArticuloCompra {
     @ManyToOne(fetch = FetchType.LAZY)
     @MapsId("compraId")
     @JoinColumn(name = "id_compra")
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private Compra compra;
 
     /**
@@ -0,0 +1,71 @@
+package com.adriandondarza.gestionpedidos.springboot.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.EmbeddedId;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.MapsId;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.Immutable;
+import java.math.BigDecimal;
+
+/**
+ * Entidad de solo lectura que representa una línea de detalle de una compra archivada.
+ * <p>
+ * Mapea la tabla {@code articulo_compra_archivo}, con las mismas columnas y la misma 
+ * clave compuesta que {@code articulo_compra}.
+ * </p>
+ *
+ * @author Adrian Dondarza
+ * @version 1.0
+ * @since 2026-10-16
+ */
+@Entity
+@Table(name = "articulo_compra_archivo")
+@Immutable
+@Data
+@NoArgsConstructor
+public class ArticuloCompraArchivada {
+
+    /**
+     * Identificador compuesto de artículo y compra.
+     */
+    @EmbeddedId
+    private ArticuloCompraId id = new ArticuloCompraId();
+
+    /**
+     * Artículo de la línea.
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @MapsId("articuloId")
+    @JoinColumn(name = "id_articulo")
+    private Articulo articulo;
+
+    /**
+     * Compra archivada a la que pertenece la línea.
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @MapsId("compraId")
+    @JoinColumn(name = "id_compra")
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private CompraArchivada compra;
+
+    /**
+     * Precio unitario congelado en el momento de la compra.
+     */
+    @Column(name = "precio_congelado", precision = 10, scale = 2, nullable = false)
+    private BigDecimal precioCompra;
+
+    /**
+     * Número de unidades adquiridas.
+     */
+    @Column(nullable = false)
+    private Integer unidades;
+}
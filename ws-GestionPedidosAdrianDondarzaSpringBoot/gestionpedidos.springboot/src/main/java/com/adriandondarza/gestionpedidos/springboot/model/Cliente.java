@@ -2,6 +2,8 @@ package com.adriandondarza.gestionpedidos.springboot.model;
 
 import jakarta.persistence.*;
 import lombok.Data;
+import lombok.ToString;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 import java.time.LocalDate;
 import java.util.ArrayList;
@@ -20,7 +22,7 @@ import java.util.List;
  * @since 2026-01-14
  */
 @Entity
-@Table(name = "clientes")
+@Table(name = "clientes", uniqueConstraints = @UniqueConstraint(name = "uk_cliente_email", columnNames = "email"))
 @Data
 @NoArgsConstructor
 public class Cliente {
@@ -41,9 +43,9 @@ public class Cliente {
 
     /**
      * Dirección de correo electrónico única para el cliente.
-     * Dispone de una restricción de unicidad (UNIQUE) a nivel de base de datos.
+     * Dispone de una restricción de unicidad ({@code uk_cliente_email}) a nivel de base de datos.
      */
-    @Column(nullable = false, unique = true, length = 100)
+    @Column(nullable = false, length = 100)
     private String email;
 
     /**
@@ -64,11 +66,20 @@ public class Cliente {
     @JoinColumn(name = "nif_cif")
     private InfoFiscal informacionFiscal;
 
+    /**
+     * Versión de cambio asignada por trigger desde {@code seq_cambios} en cada alta o 
+     * modificación de la fila. Solo lectura: la mantiene la base de datos.
+     */
+    @Column(name = "version_cambio", insertable = false, updatable = false)
+    private Long versionCambio;
+
     /**
      * Listado de órdenes de compra asociadas históricamente a este cliente.
      * La carga se realiza de forma perezosa (LAZY) para optimizar el rendimiento.
      */
     @OneToMany(mappedBy = "cliente", fetch = FetchType.LAZY)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private List<Compra> compras = new ArrayList<>();
 
     /**
@@ -0,0 +1,51 @@
+package com.adriandondarza.gestionpedidos.springboot.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Immutable;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entidad que registra la eliminación física de un cliente (lápida).
+ * <p>
+ * Esta clase mapea la tabla {@code clientes_eliminados}, que rellena un trigger de la 
+ * base de datos al borrar una fila de {@code clientes}. Las aplicaciones de escritorio 
+ * que sincronizan por diferencias la consultan para retirar de su copia local los 
+ * clientes que ya no existen. La aplicación nunca escribe en ella.
+ * </p>
+ *
+ * @author Adrian Dondarza
+ * @version 1.0
+ * @since 2026-10-16
+ */
+@Entity
+@Immutable
+@Table(name = "clientes_eliminados")
+@Data
+@NoArgsConstructor
+public class ClienteEliminado {
+
+    /**
+     * Versión de cambio de la eliminación, tomada de {@code seq_cambios}.
+     */
+    @Id
+    @Column(name = "version_cambio")
+    private Long versionCambio;
+
+    /**
+     * NIF/CIF del cliente eliminado.
+     */
+    @Column(name = "nif_cif", nullable = false, length = 20)
+    private String nifCif;
+
+    /**
+     * Momento de la eliminación.
+     */
+    @Column(name = "fecha_eliminacion", nullable = false)
+    private LocalDateTime fechaEliminacion;
+}
@@ -28,10 +28,12 @@ public class Compra {
 
     /**
      * Identificador único de la compra.
-     * Generado automáticamente por la base de datos mediante una estrategia de identidad.
+     * Obtenido de la secuencia {@code seq_compras} con optimizador agrupado (bloques de 50 
+     * valores en memoria), de modo que cabeceras y líneas pueden insertarse en lotes JDBC.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "seq_compras")
+    @SequenceGenerator(name = "seq_compras", sequenceName = "seq_compras", allocationSize = 50)
     private Integer id;
 
     /**
@@ -79,4 +81,15 @@ public class Compra {
      */
     @OneToMany(mappedBy = "compra", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<ArticuloCompra> lineasArticulos = new ArrayList<>();
-}
\ No newline at end of file
+
+    /**
+     * Versión del registro para el control de concurrencia optimista.
+     * <p>
+     * Evita que dos instancias de escritorio sobrescriban en silencio el estado 
+     * de un mismo pedido.
+     * </p>
+     */
+    @Version
+    @Column(nullable = false)
+    private Long version;
+}
@@ -0,0 +1,73 @@
+package com.adriandondarza.gestionpedidos.springboot.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Immutable;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Entidad de solo lectura que representa una compra cerrada trasladada al archivo histórico.
+ * <p>
+ * Mapea la tabla {@code compras_archivo}, con las mismas columnas que {@code compras}. 
+ * Las compras entregadas o anuladas con cierta antigüedad se mueven a esta tabla para 
+ * que la tabla principal y sus índices se mantengan pequeños; las consultas de 
+ * {@code CompraService} combinan ambas de forma transparente.
+ * </p>
+ *
+ * @author Adrian Dondarza
+ * @version 1.0
+ * @since 2026-10-16
+ */
+@Entity
+@Table(name = "compras_archivo")
+@Immutable
+@Data
+@NoArgsConstructor
+public class CompraArchivada {
+
+    /**
+     * Identificador original de la compra (asignado desde {@code seq_compras}).
+     */
+    @Id
+    private Integer id;
+
+    /**
+     * Fecha y hora en la que se registró la compra.
+     */
+    @Column(name = "fecha_realizada", nullable = false)
+    private LocalDateTime fechaRealizada;
+
+    /**
+     * Estado final de la compra (ENTREGADO o ANULADA).
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(length = 20)
+    private EstadoCompra estado;
+
+    /**
+     * Dirección postal de entrega.
+     */
+    @Column(name = "direccion_envio", length = 255)
+    private String direccionEnvio;
+
+    /**
+     * Importe total de la compra.
+     */
+    @Column(name = "precio_total", precision = 10, scale = 2)
+    private BigDecimal precioTotal;
+
+    /**
+     * Cliente que realizó el pedido.
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "cliente_nif")
+    private Cliente cliente;
+
+    /**
+     * Última versión que tuvo la compra en la tabla principal.
+     */
+    @Column(nullable = false)
+    private Long version;
+}
@@ -0,0 +1,56 @@
+package com.adriandondarza.gestionpedidos.springboot.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import java.time.LocalDateTime;
+
+/**
+ * Entidad que registra la clave de idempotencia con la que se envió un pedido.
+ * <p>
+ * Esta clase mapea la tabla {@code compras_idempotencia}. Es la copia duradera del 
+ * índice de deduplicación: si un cliente reenvía un pedido tras un tiempo de espera 
+ * agotado, la clave permite localizar la compra original en lugar de registrarla 
+ * (y descontar su stock) por segunda vez.
+ * </p>
+ *
+ * @author Adrian Dondarza
+ * @version 1.0
+ * @since 2026-10-16
+ */
+@Entity
+@Table(name = "compras_idempotencia")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CompraIdempotencia {
+
+    /**
+     * Clave de idempotencia proporcionada por el cliente.
+     */
+    @Id
+    @Column(length = 64)
+    private String clave;
+
+    /**
+     * Compra registrada con esta clave.
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "id_compra", nullable = false)
+    @ToString.Exclude
+    private Compra compra;
+
+    /**
+     * Momento en el que se registró la clave; determina su caducidad.
+     */
+    @Column(name = "fecha_registro", nullable = false)
+    private LocalDateTime fechaRegistro;
+}
@@ -6,6 +6,11 @@ package com.adriandondarza.gestionpedidos.springboot.model;
  * Estos estados controlan el flujo lógico del pedido desde su creación hasta su 
  * finalización o cancelación, permitiendo realizar el seguimiento logístico.
  * </p>
+ * <p>
+ * Las transiciones permitidas forman una máquina de estados (ver {@link #puedeTransitarA}): 
+ * PENDIENTE pasa a ENVIADO o ANULADA y ENVIADO pasa a ENTREGADO. ENTREGADO y ANULADA 
+ * son finales; una compra anulada ya ha devuelto su stock y no puede reactivarse.
+ * </p>
  *
  * @author Adrian Dondarza
  * @version 1.0
@@ -35,5 +40,19 @@ public enum EstadoCompra {
      * El pedido ha sido cancelado, ya sea por solicitud del cliente o por 
      * problemas en el procesamiento (ej. falta de pago o stock).
      */
-    ANULADA
-}
\ No newline at end of file
+    ANULADA;
+
+    /**
+     * Indica si una compra en este estado puede pasar al estado indicado.
+     *
+     * @param destino Estado al que se quiere llevar la compra.
+     * @return {@code true} si la transición está permitida.
+     */
+    public boolean puedeTransitarA(EstadoCompra destino) {
+        return switch (this) {
+            case PENDIENTE -> destino == ENVIADO || destino == ANULADA;
+            case ENVIADO -> destino == ENTREGADO;
+            case ENTREGADO, ANULADA -> false;
+        };
+    }
+}
@@ -2,6 +2,7 @@ package com.adriandondarza.gestionpedidos.springboot.model;
 
 import jakarta.persistence.*;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 import lombok.ToString;
 
@@ -18,7 +19,7 @@ import lombok.ToString;
  * @since 2026-01-14
  */
 @Entity
-@Table(name = "informacion_fiscal")
+@Table(name = "informacion_fiscal", uniqueConstraints = @UniqueConstraint(name = "uk_fiscal_telefono", columnNames = "telefono"))
 @Data
 @NoArgsConstructor
 public class InfoFiscal {
@@ -39,10 +40,18 @@ public class InfoFiscal {
 
     /**
      * Número telefónico de contacto asociado a la identidad fiscal.
+     * Único entre todos los registros ({@code uk_fiscal_telefono}).
      */
     @Column(nullable = false)
     private String telefono;
 
+    /**
+     * Versión de cambio asignada por trigger desde {@code seq_cambios} en cada alta o 
+     * modificación de la fila. Solo lectura: la mantiene la base de datos.
+     */
+    @Column(name = "version_cambio", insertable = false, updatable = false)
+    private Long versionCambio;
+
     /**
      * Relación bidireccional uno a uno con la entidad {@link Cliente}.
      * <p>
@@ -54,6 +63,7 @@ public class InfoFiscal {
      */
     @OneToOne(mappedBy = "informacionFiscal", cascade = CascadeType.ALL, orphanRemoval = true)
     @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private Cliente cliente;
 
     /**
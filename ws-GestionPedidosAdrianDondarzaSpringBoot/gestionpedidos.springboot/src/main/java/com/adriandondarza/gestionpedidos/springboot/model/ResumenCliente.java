@@ -0,0 +1,63 @@
+package com.adriandondarza.gestionpedidos.springboot.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Entidad que almacena el resumen de actividad de compra de un cliente.
+ * <p>
+ * Esta clase mapea la tabla {@code resumen_cliente}. Sus valores se mantienen de forma 
+ * incremental con cada compra registrada o anulada, de modo que la ficha del cliente 
+ * no necesita recorrer su histórico de pedidos. Las compras anuladas no computan.
+ * </p>
+ *
+ * @author Adrian Dondarza
+ * @version 1.0
+ * @since 2026-10-16
+ */
+@Entity
+@Table(name = "resumen_cliente")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResumenCliente {
+
+    /**
+     * NIF/CIF del cliente resumido (clave compartida con {@link Cliente}).
+     */
+    @Id
+    @Column(name = "nif_cif", length = 20)
+    private String nifCif;
+
+    /**
+     * Número de compras no anuladas del cliente.
+     */
+    @Column(name = "num_compras", nullable = false)
+    private Long numCompras;
+
+    /**
+     * Importe acumulado de las compras no anuladas.
+     */
+    @Column(name = "total_gastado", precision = 14, scale = 2, nullable = false)
+    private BigDecimal totalGastado;
+
+    /**
+     * Fecha de la compra no anulada más reciente; {@code null} si no hay ninguna.
+     */
+    @Column(name = "ultima_compra")
+    private LocalDateTime ultimaCompra;
+
+    /**
+     * Contador de modificaciones de la fila. Permite a la vista en memoria descartar 
+     * instantáneas más antiguas que la que ya tiene.
+     */
+    @Column(nullable = false)
+    private Long revision;
+}
@@ -0,0 +1,54 @@
+package com.adriandondarza.gestionpedidos.springboot.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.EmbeddedId;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Entidad que representa una ranura del contador de stock fragmentado de un artículo.
+ * <p>
+ * Esta clase mapea la tabla {@code articulo_stock_fragmento}. Cuando un artículo activa 
+ * el modo fragmentado, su stock deja de residir en la fila de {@code articulos} y se 
+ * reparte entre varias filas independientes, de forma que los pedidos concurrentes 
+ * sobre un mismo artículo muy demandado bloquean filas distintas en lugar de 
+ * serializarse sobre una sola.
+ * </p>
+ *
+ * @author Adrian Dondarza
+ * @version 1.0
+ * @since 2026-10-16
+ */
+@Entity
+@Table(name = "articulo_stock_fragmento")
+@Data
+@NoArgsConstructor
+public class StockFragmento {
+
+    /**
+     * Identificador compuesto por el artículo y el número de ranura.
+     */
+    @EmbeddedId
+    private StockFragmentoId id;
+
+    /**
+     * Unidades disponibles en esta ranura.
+     */
+    @Column(nullable = false)
+    private Integer stock;
+
+    /**
+     * Versión de cambio asignada por trigger desde {@code seq_cambios} en cada 
+     * modificación de la ranura. Permite detectar cambios de stock de artículos 
+     * fragmentados sin tocar la fila del artículo. Solo lectura.
+     */
+    @Column(name = "version_cambio", insertable = false, updatable = false)
+    private Long versionCambio;
+
+    public StockFragmento(StockFragmentoId id, Integer stock) {
+        this.id = id;
+        this.stock = stock;
+    }
+}
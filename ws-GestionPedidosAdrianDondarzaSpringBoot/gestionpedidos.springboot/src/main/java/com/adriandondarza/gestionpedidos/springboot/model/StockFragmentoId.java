@@ -0,0 +1,41 @@
+package com.adriandondarza.gestionpedidos.springboot.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.io.Serializable;
+
+/**
+ * Clase que representa la clave primaria compuesta para la entidad {@link StockFragmento}.
+ * <p>
+ * Identifica cada una de las ranuras en las que se reparte el stock de un artículo 
+ * que trabaja en modo fragmentado.
+ * </p>
+ *
+ * @author Adrian Dondarza
+ * @version 1.0
+ * @since 2026-10-16
+ */
+@Embeddable
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockFragmentoId implements Serializable {
+
+	// Identificador de versión para la serialización
+	static final long serialVersionUID = 1L;
+
+    /**
+     * Identificador del artículo al que pertenece el fragmento.
+     */
+    @Column(name = "id_articulo")
+    private Integer articuloId;
+
+    /**
+     * Número de ranura dentro del artículo, de {@code 0} a {@code fragmentos - 1}.
+     */
+    @Column(name = "fragmento")
+    private Integer fragmento;
+}
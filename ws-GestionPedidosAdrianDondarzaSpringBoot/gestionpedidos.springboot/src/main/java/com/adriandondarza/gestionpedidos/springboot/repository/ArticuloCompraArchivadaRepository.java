@@ -0,0 +1,74 @@
+package com.adriandondarza.gestionpedidos.springboot.repository;
+
+import com.adriandondarza.gestionpedidos.springboot.model.ArticuloCompraArchivada;
+import com.adriandondarza.gestionpedidos.springboot.model.ArticuloCompraId;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Repositorio de las líneas de compras archivadas ({@code articulo_compra_archivo}).
+ * <p>
+ * Ofrece las mismas proyecciones de lectura que {@link ArticuloCompraRepository}.
+ * </p>
+ *
+ * @author Adrian Dondarza
+ * @version 1.0
+ * @since 2026-10-16
+ */
+@Repository
+public interface ArticuloCompraArchivadaRepository extends JpaRepository<ArticuloCompraArchivada, ArticuloCompraId> {
+
+    /**
+     * Recupera en una única consulta las líneas de varias compras archivadas junto con el 
+     * nombre de cada artículo.
+     *
+     * @param compraIds Identificadores de las compras.
+     * @return Filas {@code [compraId, articuloId, articuloNombre, unidades, precioCongelado]} 
+     *         ordenadas por compra y artículo.
+     */
+    @Query("SELECT l.id.compraId, a.id, a.nombre, l.unidades, l.precioCompra "
+            + "FROM ArticuloCompraArchivada l JOIN l.articulo a "
+            + "WHERE l.id.compraId IN :compraIds ORDER BY l.id.compraId, a.id")
+    List<Object[]> buscarLineas(@Param("compraIds") Collection<Integer> compraIds);
+
+    /**
+     * Recorre las líneas de las compras archivadas realizadas en un intervalo de fechas 
+     * (ver {@link ArticuloCompraRepository#recorrerLineas}).
+     *
+     * @param desde Inicio del intervalo (incluido).
+     * @param hasta Fin del intervalo (excluido).
+     * @return Flujo de filas {@code [compraId, fechaRealizada, articuloId, unidades, precioCongelado]}.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "5000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT l.id.compraId, c.fechaRealizada, l.id.articuloId, l.unidades, l.precioCompra "
+            + "FROM ArticuloCompraArchivada l JOIN l.compra c "
+            + "WHERE c.fechaRealizada >= :desde AND c.fechaRealizada < :hasta ORDER BY l.id.compraId")
+    Stream<Object[]> recorrerLineas(@Param("desde") LocalDateTime desde, @Param("hasta") LocalDateTime hasta);
+
+    /**
+     * Copia al archivo, en una única sentencia, las líneas de un bloque de compras.
+     * Las cabeceras deben haberse copiado antes.
+     *
+     * @param ids Identificadores de las compras a archivar.
+     * @return Número de líneas copiadas.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO {h-schema}articulo_compra_archivo "
+            + "(id_articulo, id_compra, precio_congelado, unidades) "
+            + "SELECT id_articulo, id_compra, precio_congelado, unidades "
+            + "FROM {h-schema}articulo_compra WHERE id_compra IN (:ids)", nativeQuery = true)
+    int copiarLineas(@Param("ids") Collection<Integer> ids);
+}
@@ -2,8 +2,18 @@ package com.adriandondarza.gestionpedidos.springboot.repository;
 
 import com.adriandondarza.gestionpedidos.springboot.model.ArticuloCompra;
 import com.adriandondarza.gestionpedidos.springboot.model.ArticuloCompraId;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Repositorio para la gestión de la persistencia de la entidad {@link ArticuloCompra}.
@@ -24,4 +34,61 @@ import org.springframework.stereotype.Repository;
 @Repository
 public interface ArticuloCompraRepository extends JpaRepository<ArticuloCompra, ArticuloCompraId> {
     // JpaRepository hereda automáticamente métodos como save(), deleteById(), y findById().
-}
\ No newline at end of file
+
+    /**
+     * Recupera en una única consulta las líneas de varias compras junto con el nombre 
+     * de cada artículo.
+     * <p>
+     * Devuelve valores escalares en lugar de entidades: no se cargan los artículos 
+     * completos (su descripción es un CLOB) ni quedan proxies pendientes de inicializar.
+     * </p>
+     *
+     * @param compraIds Identificadores de las compras.
+     * @return Filas {@code [compraId, articuloId, articuloNombre, unidades, precioCongelado]} 
+     *         ordenadas por compra y artículo.
+     */
+    @Query("SELECT l.id.compraId, a.id, a.nombre, l.unidades, l.precioCompra "
+            + "FROM ArticuloCompra l JOIN l.articulo a "
+            + "WHERE l.id.compraId IN :compraIds ORDER BY l.id.compraId, a.id")
+    List<Object[]> buscarLineas(@Param("compraIds") Collection<Integer> compraIds);
+
+    /**
+     * Suma por artículo las unidades de las líneas de un bloque de compras.
+     *
+     * @param compraIds Identificadores de las compras.
+     * @return Filas {@code [articuloId, unidades]} ordenadas por artículo.
+     */
+    @Query("SELECT l.id.articuloId, SUM(l.unidades) FROM ArticuloCompra l "
+            + "WHERE l.id.compraId IN :compraIds GROUP BY l.id.articuloId ORDER BY l.id.articuloId")
+    List<Object[]> sumarUnidadesPorArticulo(@Param("compraIds") Collection<Integer> compraIds);
+
+    /**
+     * Recorre, como cursor de solo avance, las líneas de las compras realizadas en un 
+     * intervalo de fechas, con los valores que necesita el módulo de analítica.
+     * <p>
+     * Las líneas de una misma compra salen consecutivas (orden por compra).
+     * </p>
+     *
+     * @param desde Inicio del intervalo (incluido).
+     * @param hasta Fin del intervalo (excluido).
+     * @return Flujo de filas {@code [compraId, fechaRealizada, articuloId, unidades, precioCongelado]}.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "5000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT l.id.compraId, c.fechaRealizada, l.id.articuloId, l.unidades, l.precioCompra "
+            + "FROM ArticuloCompra l JOIN l.compra c "
+            + "WHERE c.fechaRealizada >= :desde AND c.fechaRealizada < :hasta ORDER BY l.id.compraId")
+    Stream<Object[]> recorrerLineas(@Param("desde") LocalDateTime desde, @Param("hasta") LocalDateTime hasta);
+
+    /**
+     * Elimina las líneas de un bloque de compras ya copiadas al archivo.
+     *
+     * @param compraIds Identificadores de las compras archivadas.
+     * @return Número de líneas eliminadas.
+     */
+    @Modifying
+    @Query("DELETE FROM ArticuloCompra l WHERE l.id.compraId IN :compraIds")
+    int eliminarArchivadas(@Param("compraIds") Collection<Integer> compraIds);
+}
@@ -1,15 +1,25 @@
 package com.adriandondarza.gestionpedidos.springboot.repository;
 
 import com.adriandondarza.gestionpedidos.springboot.model.Articulo;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Repositorio encargado de gestionar la persistencia de la entidad {@link Articulo}.
  * <p>
  * Proporciona acceso a la tabla de artículos en Oracle, incluyendo métodos para 
- * validar la existencia de nombres duplicados y filtrar por estado de actividad.
+ * filtrar por estado de actividad. Los nombres duplicados los detecta el índice 
+ * único {@code uk_articulo_nombre} al insertar.
  * </p>
  *
  * @author Adrian Dondarza
@@ -20,28 +30,143 @@ import java.util.List;
 public interface ArticuloRepository extends JpaRepository<Articulo, Integer> {
     
     /**
-     * Verifica si ya existe un artículo con un nombre específico, ignorando mayúsculas y minúsculas.
+     * Recupera todos los artículos que se encuentran en estado activo.
+     *
+     * @return {@link List} de {@link Articulo} disponibles para la venta.
+     */
+    List<Articulo> findByActivoTrue();
+    
+    /**
+     * Página del catálogo sin la descripción, por orden de identificador.
      * <p>
-     * Se utiliza para prevenir la duplicidad de productos en el catálogo.
+     * Proyección escalar que no toca la columna {@code CLOB}. Paginación por clave: la 
+     * página siguiente arranca tras el último identificador recibido.
      * </p>
      *
-     * @param nombre El nombre del artículo a comprobar.
-     * @return {@code true} si el nombre ya existe, {@code false} en caso contrario.
+     * @param id Último identificador de la página anterior ({@code 0} para la primera).
+     * @param pagina Límite de filas.
+     * @return Filas {@code [id, nombre, precioActual, stock, activo, fragmentosStock]}.
      */
-    boolean existsByNombreIgnoreCase(String nombre);
-    
+    @Query("SELECT a.id, a.nombre, a.precioActual, a.stock, a.activo, a.fragmentosStock "
+            + "FROM Articulo a WHERE a.id > :id ORDER BY a.id")
+    List<Object[]> buscarResumenes(@Param("id") Integer id, Pageable pagina);
+
     /**
-     * Recupera todos los artículos que se encuentran en estado activo.
+     * Página de los artículos activos sin la descripción, por orden de identificador.
      *
-     * @return {@link List} de {@link Articulo} disponibles para la venta.
+     * @see #buscarResumenes(Integer, Pageable)
      */
-    List<Articulo> findByActivoTrue();
-    
+    @Query("SELECT a.id, a.nombre, a.precioActual, a.stock, a.activo, a.fragmentosStock "
+            + "FROM Articulo a WHERE a.activo = true AND a.id > :id ORDER BY a.id")
+    List<Object[]> buscarResumenesActivos(@Param("id") Integer id, Pageable pagina);
+
+    /**
+     * Identificadores de los artículos modificados después de una versión de cambio.
+     *
+     * @param version Versión de cambio ya sincronizada.
+     * @return Identificadores de los artículos con versión posterior.
+     */
+    @Query("SELECT a.id FROM Articulo a WHERE a.versionCambio > :version")
+    List<Integer> buscarIdsCambiados(@Param("version") long version);
+
+    /**
+     * Lee únicamente la descripción de un artículo.
+     *
+     * @param id Identificador del artículo.
+     * @return Descripción, o vacío si el artículo no existe.
+     */
+    @Query("SELECT a.descripcion FROM Articulo a WHERE a.id = :id")
+    Optional<String> buscarDescripcion(@Param("id") Integer id);
+
+    /**
+     * Recorre los nombres de todo el catálogo para construir el índice de búsqueda.
+     * <p>
+     * Proyección escalar sin la descripción (CLOB), leída en bloques grandes.
+     * </p>
+     *
+     * @return Flujo de filas {@code [id, nombre, activo, version]}.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "5000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT a.id, a.nombre, a.activo, a.version FROM Articulo a ORDER BY a.id")
+    Stream<Object[]> recorrerNombres();
+
+    /**
+     * Identificadores de los artículos que trabajan con stock fragmentado.
+     * <p>
+     * Proyección escalar: el reequilibrado periódico no necesita la entidad (ni su CLOB).
+     * </p>
+     *
+     * @return Identificadores de los artículos con al menos una ranura de stock.
+     */
+    @Query("SELECT a.id FROM Articulo a WHERE a.fragmentosStock > 0 ORDER BY a.id")
+    List<Integer> buscarIdsFragmentados();
+
     /**
-     * Realiza una búsqueda de artículos cuyo nombre contenga una cadena específica.
+     * Lee y bloquea ({@code SELECT ... FOR UPDATE}) el modo de stock de un artículo.
+     * <p>
+     * Los cambios de modo y el reequilibrado toman este bloqueo antes que el de las 
+     * ranuras, de modo que se serializan entre sí.
+     * </p>
+     *
+     * @param id Identificador del artículo.
+     * @return Número de ranuras ({@code 0} en modo normal), o {@code null} si no existe.
+     */
+    @Query(value = "SELECT fragmentos_stock FROM {h-schema}articulos WHERE id = :id FOR UPDATE", nativeQuery = true)
+    Integer bloquearModoStock(@Param("id") Integer id);
+
+    /**
+     * Lee en una única consulta, sin bloqueo, el modo de stock de un artículo y sus 
+     * unidades en ambos modos.
+     * <p>
+     * Al ser una sola sentencia, el modo y las cantidades corresponden al mismo estado 
+     * confirmado aunque un cambio de modo se confirme en paralelo.
+     * </p>
+     *
+     * @param id Identificador del artículo.
+     * @return Fila {@code [fragmentosStock, stock, sumaRanuras, maximoRanura]}, o vacía si 
+     * el artículo no existe.
+     */
+    @Query("SELECT a.fragmentosStock, a.stock, "
+            + "(SELECT COALESCE(SUM(f.stock), 0) FROM StockFragmento f WHERE f.id.articuloId = a.id), "
+            + "(SELECT COALESCE(MAX(f.stock), 0) FROM StockFragmento f WHERE f.id.articuloId = a.id) "
+            + "FROM Articulo a WHERE a.id = :id")
+    List<Object[]> leerEstadoStock(@Param("id") Integer id);
+
+    /**
+     * Descuenta unidades del stock de un artículo de forma atómica y condicional.
+     * <p>
+     * La comprobación y la resta se resuelven en una única sentencia {@code UPDATE}, 
+     * de modo que dos pedidos concurrentes sobre el mismo artículo nunca pueden 
+     * dejar el stock en negativo ni perder actualizaciones. No requiere leer 
+     * previamente la entidad ni bloquearla con {@code SELECT ... FOR UPDATE}.
+     * La versión se incrementa para que una edición concurrente del artículo 
+     * basada en un stock ya obsoleto sea rechazada por el bloqueo optimista.
+     * </p>
+     *
+     * @param id Identificador del artículo.
+     * @param unidades Número de unidades a descontar.
+     * @return {@code 1} si el descuento se aplicó, {@code 0} si no había stock suficiente.
+     */
+    @Modifying
+    @Query("UPDATE Articulo a SET a.stock = a.stock - :unidades, a.version = a.version + 1 "
+            + "WHERE a.id = :id AND a.stock >= :unidades")
+    int descontarStock(@Param("id") Integer id, @Param("unidades") int unidades);
+
+    /**
+     * Devuelve unidades al stock de un artículo en una única sentencia relativa.
+     * <p>
+     * Solo aplica en modo normal: en modo fragmentado las unidades deben ir a una ranura.
+     * </p>
      *
-     * @param nombre Cadena de texto a buscar.
-     * @return {@link List} de {@link Articulo} que coinciden con el criterio.
+     * @param id Identificador del artículo.
+     * @param unidades Número de unidades a devolver.
+     * @return {@code 1} si el artículo existe y está en modo normal, {@code 0} en caso contrario.
      */
-    List<Articulo> findByNombreContainingIgnoreCase(String nombre);
-}
\ No newline at end of file
+    @Modifying
+    @Query("UPDATE Articulo a SET a.stock = a.stock + :unidades, a.version = a.version + 1 "
+            + "WHERE a.id = :id AND a.fragmentosStock = 0")
+    int devolverStock(@Param("id") Integer id, @Param("unidades") int unidades);
+}
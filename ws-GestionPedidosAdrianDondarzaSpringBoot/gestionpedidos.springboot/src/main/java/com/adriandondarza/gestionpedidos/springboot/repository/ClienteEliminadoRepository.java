@@ -0,0 +1,40 @@
+package com.adriandondarza.gestionpedidos.springboot.repository;
+
+import com.adriandondarza.gestionpedidos.springboot.model.ClienteEliminado;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Repositorio de las lápidas de clientes eliminados y de la secuencia de versiones de 
+ * cambio que comparten las tablas sincronizadas.
+ *
+ * @author Adrian Dondarza
+ * @version 1.0
+ * @since 2026-10-16
+ */
+@Repository
+public interface ClienteEliminadoRepository extends JpaRepository<ClienteEliminado, Long> {
+
+    /**
+     * Clientes eliminados después de una versión de cambio.
+     *
+     * @param version Versión de cambio ya sincronizada.
+     * @return Filas {@code [nifCif, versionCambio]}, en orden de versión.
+     */
+    @Query("SELECT e.nifCif, e.versionCambio FROM ClienteEliminado e "
+            + "WHERE e.versionCambio > :version ORDER BY e.versionCambio")
+    List<Object[]> buscarDesde(@Param("version") long version);
+
+    /**
+     * Toma el siguiente valor de {@code seq_cambios}, mayor que cualquier versión de 
+     * cambio asignada hasta el momento.
+     *
+     * @return Valor de la secuencia.
+     */
+    @Query(value = "SELECT {h-schema}seq_cambios.NEXTVAL FROM dual", nativeQuery = true)
+    long siguienteVersionCambio();
+}
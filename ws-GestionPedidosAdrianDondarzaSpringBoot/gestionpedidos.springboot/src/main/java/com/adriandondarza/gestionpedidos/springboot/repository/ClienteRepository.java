@@ -1,8 +1,14 @@
 package com.adriandondarza.gestionpedidos.springboot.repository;
 
+import com.adriandondarza.gestionpedidos.springboot.dto.ClienteDTO;
 import com.adriandondarza.gestionpedidos.springboot.model.Cliente;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -19,6 +25,52 @@ import java.util.Optional;
  */
 @Repository
 public interface ClienteRepository extends JpaRepository<Cliente, String> {
+
+    /**
+     * Proyección de un cliente al DTO aplanado, con su información fiscal unida en la 
+     * misma consulta. Evita la lectura adicional de {@code informacion_fiscal} por cliente 
+     * que provoca la relación {@code @OneToOne} al cargar entidades.
+     */
+    String PROYECCION_DTO = "SELECT new com.adriandondarza.gestionpedidos.springboot.dto.ClienteDTO("
+            + "c.nifCif, c.nombre, c.email, c.fechaRegistro, f.direccionFiscal, f.telefono) "
+            + "FROM Cliente c JOIN c.informacionFiscal f ";
+
+    /**
+     * Lista todos los clientes con su información fiscal en una única consulta.
+     *
+     * @return {@link List} de {@link ClienteDTO} ordenada por NIF/CIF.
+     */
+    @Query(PROYECCION_DTO + "ORDER BY c.nifCif")
+    List<ClienteDTO> listarDTOs();
+
+    /**
+     * Proyecta un conjunto de clientes con su información fiscal en una única consulta.
+     *
+     * @param nifs NIF/CIF de los clientes (como máximo 1000, límite de Oracle para {@code IN}).
+     * @return {@link List} de {@link ClienteDTO} de los clientes existentes.
+     */
+    @Query(PROYECCION_DTO + "WHERE c.nifCif IN :nifs")
+    List<ClienteDTO> buscarDTOs(@Param("nifs") Collection<String> nifs);
+
+    /**
+     * Página del directorio de clientes, por orden de NIF/CIF.
+     * <p>
+     * Paginación por clave: la página siguiente arranca tras el último NIF recibido. Los 
+     * filtros son patrones {@code LIKE} sobre el nombre en mayúsculas y el email en 
+     * minúsculas (con {@code \} como carácter de escape); {@code %} no filtra.
+     * </p>
+     *
+     * @param nif Último NIF/CIF de la página anterior (un espacio para la primera).
+     * @param nombre Patrón del nombre, en mayúsculas.
+     * @param email Patrón del email, en minúsculas.
+     * @param pagina Límite de filas.
+     * @return {@link List} de {@link ClienteDTO}.
+     */
+    @Query(PROYECCION_DTO + "WHERE c.nifCif > :nif "
+            + "AND UPPER(c.nombre) LIKE :nombre ESCAPE '\\' AND LOWER(c.email) LIKE :email ESCAPE '\\' "
+            + "ORDER BY c.nifCif")
+    List<ClienteDTO> buscarPagina(@Param("nif") String nif, @Param("nombre") String nombre,
+                                  @Param("email") String email, Pageable pagina);
     
     /**
      * Busca un cliente en la base de datos a través de su dirección de correo electrónico.
@@ -31,16 +83,46 @@ public interface ClienteRepository extends JpaRepository<Cliente, String> {
      * @return Un {@link Optional} que contiene al cliente si es encontrado, o vacío en caso contrario.
      */
     Optional<Cliente> findByEmail(String email);
-    
+
+    /**
+     * Filtra, de un conjunto de emails, los que ya están registrados, para detectar los 
+     * duplicados de un alta en lote antes de insertarla.
+     *
+     * @param emails Emails a comprobar (como máximo 1000 por consulta).
+     * @return Emails ya registrados.
+     */
+    @Query("SELECT c.email FROM Cliente c WHERE c.email IN :emails")
+    List<String> buscarEmailsExistentes(@Param("emails") Collection<String> emails);
+
     /**
-     * Verifica si ya existe un registro asociado a una dirección de correo electrónico específica.
+     * Lista los identificadores fiscales de todos los clientes, ordenados.
      * <p>
-     * Se utiliza como mecanismo de validación previa en la capa de servicio para 
-     * evitar violaciones de restricciones de unicidad (UNIQUE) en la base de datos.
+     * Devuelve solo la clave, sin cargar entidades, para repartir en bloques los 
+     * procesos que recorren todos los clientes.
      * </p>
      *
-     * @param email Correo electrónico a comprobar.
-     * @return {@code true} si el email ya está registrado, {@code false} en caso contrario.
+     * @return {@link List} de NIF/CIF.
+     */
+    @Query("SELECT c.nifCif FROM Cliente c ORDER BY c.nifCif")
+    List<String> listarNifs();
+
+    /**
+     * Identificadores de los clientes cuyos datos personales o fiscales se han modificado 
+     * después de una versión de cambio.
+     *
+     * @param version Versión de cambio ya sincronizada.
+     * @return {@link List} de NIF/CIF, sin repetir.
+     */
+    @Query("SELECT c.nifCif FROM Cliente c WHERE c.versionCambio > :version "
+            + "UNION SELECT f.nifCif FROM InfoFiscal f WHERE f.versionCambio > :version")
+    List<String> buscarNifsCambiados(@Param("version") long version);
+
+    /**
+     * Carga un conjunto de clientes junto con su información fiscal en una sola consulta.
+     *
+     * @param nifs NIF/CIF de los clientes (como máximo 1000, límite de Oracle para {@code IN}).
+     * @return Clientes encontrados.
      */
-    boolean existsByEmail(String email);
-}
\ No newline at end of file
+    @Query("SELECT c FROM Cliente c JOIN FETCH c.informacionFiscal WHERE c.nifCif IN :nifs")
+    List<Cliente> buscarConInfoFiscal(@Param("nifs") Collection<String> nifs);
+}
@@ -0,0 +1,159 @@
+package com.adriandondarza.gestionpedidos.springboot.repository;
+
+import com.adriandondarza.gestionpedidos.springboot.dto.CompraRespuestaDTO;
+import com.adriandondarza.gestionpedidos.springboot.model.CompraArchivada;
+import com.adriandondarza.gestionpedidos.springboot.model.EstadoCompra;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static com.adriandondarza.gestionpedidos.springboot.repository.CompraRepository.ORDEN_RECIENTES;
+import static com.adriandondarza.gestionpedidos.springboot.repository.CompraRepository.TRAS_CURSOR;
+
+/**
+ * Repositorio de las compras archivadas ({@code compras_archivo}).
+ * <p>
+ * Ofrece las mismas proyecciones de lectura que {@link CompraRepository}, con el mismo 
+ * orden y el mismo cursor de paginación, para que el servicio pueda combinar los 
+ * resultados de la tabla principal y del archivo.
+ * </p>
+ *
+ * @author Adrian Dondarza
+ * @version 1.0
+ * @since 2026-10-16
+ */
+@Repository
+public interface CompraArchivadaRepository extends JpaRepository<CompraArchivada, Integer> {
+
+    /**
+     * Proyección de una compra archivada al DTO de respuesta (equivalente a 
+     * {@link CompraRepository#PROYECCION_RESPUESTA}).
+     */
+    String PROYECCION_RESPUESTA = "SELECT new com.adriandondarza.gestionpedidos.springboot.dto.CompraRespuestaDTO("
+            + "c.id, c.fechaRealizada, CAST(c.estado AS String), c.direccionEnvio, c.precioTotal, "
+            + "COALESCE(cl.nombre, 'Cliente eliminado')) "
+            + "FROM CompraArchivada c LEFT JOIN c.cliente cl ";
+
+    /**
+     * Primera página del listado global de compras archivadas.
+     *
+     * @param pagina Límite de filas ({@link Pageable#unpaged()} para el listado completo).
+     * @return Compras archivadas más recientes proyectadas a DTO.
+     */
+    @Query(PROYECCION_RESPUESTA + ORDEN_RECIENTES)
+    List<CompraRespuestaDTO> buscarRecientes(Pageable pagina);
+
+    /**
+     * Página siguiente del listado global de compras archivadas.
+     *
+     * @param fecha Fecha del último pedido de la página anterior.
+     * @param id Identificador del último pedido de la página anterior.
+     * @param pagina Límite de filas.
+     * @return Compras archivadas siguientes proyectadas a DTO.
+     */
+    @Query(PROYECCION_RESPUESTA + "WHERE " + TRAS_CURSOR + ORDEN_RECIENTES)
+    List<CompraRespuestaDTO> buscarRecientesTras(@Param("fecha") LocalDateTime fecha, @Param("id") Integer id,
+                                                 Pageable pagina);
+
+    /**
+     * Primera página de las compras archivadas de un cliente.
+     *
+     * @param nif Identificador fiscal del cliente.
+     * @param pagina Límite de filas ({@link Pageable#unpaged()} para el histórico completo).
+     * @return Compras archivadas más recientes del cliente proyectadas a DTO.
+     */
+    @Query(PROYECCION_RESPUESTA + "WHERE cl.nifCif = :nif" + ORDEN_RECIENTES)
+    List<CompraRespuestaDTO> buscarRecientesPorCliente(@Param("nif") String nif, Pageable pagina);
+
+    /**
+     * Página siguiente de las compras archivadas de un cliente.
+     *
+     * @param nif Identificador fiscal del cliente.
+     * @param fecha Fecha del último pedido de la página anterior.
+     * @param id Identificador del último pedido de la página anterior.
+     * @param pagina Límite de filas.
+     * @return Compras archivadas siguientes del cliente proyectadas a DTO.
+     */
+    @Query(PROYECCION_RESPUESTA + "WHERE cl.nifCif = :nif AND " + TRAS_CURSOR + ORDEN_RECIENTES)
+    List<CompraRespuestaDTO> buscarRecientesPorClienteTras(@Param("nif") String nif,
+                                                           @Param("fecha") LocalDateTime fecha,
+                                                           @Param("id") Integer id, Pageable pagina);
+
+    /**
+     * Recupera varias compras archivadas por identificador, proyectadas a DTO.
+     *
+     * @param ids Identificadores de las compras.
+     * @return Cabeceras de las compras encontradas, sin orden garantizado.
+     */
+    @Query(PROYECCION_RESPUESTA + "WHERE c.id IN :ids")
+    List<CompraRespuestaDTO> buscarResumenes(@Param("ids") Collection<Integer> ids);
+
+    /**
+     * Recorre todas las compras archivadas, de la más antigua a la más reciente, como un 
+     * cursor de solo avance (ver {@link CompraRepository#recorrerTodas()}).
+     *
+     * @return Flujo perezoso de compras archivadas proyectadas a DTO.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(PROYECCION_RESPUESTA + "ORDER BY c.fechaRealizada, c.id")
+    Stream<CompraRespuestaDTO> recorrerTodas();
+
+    /**
+     * Agrega por cliente el número, el importe y la fecha más reciente de sus compras 
+     * archivadas que no estén en el estado indicado.
+     *
+     * @param nifs NIF/CIF de los clientes.
+     * @param excluido Estado de las compras que no computan (anuladas).
+     * @return Filas {@code [nifCif, numCompras, totalGastado, ultimaCompra]}.
+     */
+    @Query("SELECT cl.nifCif, COUNT(c), SUM(c.precioTotal), MAX(c.fechaRealizada) "
+            + "FROM CompraArchivada c JOIN c.cliente cl WHERE cl.nifCif IN :nifs AND c.estado <> :excluido "
+            + "GROUP BY cl.nifCif")
+    List<Object[]> agregarPorCliente(@Param("nifs") Collection<String> nifs,
+                                     @Param("excluido") EstadoCompra excluido);
+
+    /**
+     * Fecha de la compra archivada más reciente de un cliente que no esté en el estado indicado.
+     *
+     * @param nif NIF/CIF del cliente.
+     * @param excluido Estado de las compras que no computan (anuladas).
+     * @return Fecha más reciente, o {@code null} si no hay ninguna.
+     */
+    @Query("SELECT MAX(c.fechaRealizada) FROM CompraArchivada c WHERE c.cliente.nifCif = :nif AND c.estado <> :excluido")
+    LocalDateTime ultimaFecha(@Param("nif") String nif, @Param("excluido") EstadoCompra excluido);
+
+    /**
+     * Lista los identificadores de las compras archivadas que se encuentran en un estado.
+     *
+     * @param estado Estado buscado.
+     * @return Identificadores de las compras archivadas en ese estado.
+     */
+    @Query("SELECT c.id FROM CompraArchivada c WHERE c.estado = :estado")
+    List<Integer> buscarIdsPorEstado(@Param("estado") EstadoCompra estado);
+
+    /**
+     * Copia al archivo, en una única sentencia, las cabeceras de un bloque de compras.
+     *
+     * @param ids Identificadores de las compras a archivar.
+     * @return Número de compras copiadas.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO {h-schema}compras_archivo "
+            + "(id, fecha_realizada, estado, direccion_envio, precio_total, cliente_nif, version) "
+            + "SELECT id, fecha_realizada, estado, direccion_envio, precio_total, cliente_nif, version "
+            + "FROM {h-schema}compras WHERE id IN (:ids)", nativeQuery = true)
+    int copiarCompras(@Param("ids") Collection<Integer> ids);
+}
@@ -0,0 +1,52 @@
+package com.adriandondarza.gestionpedidos.springboot.repository;
+
+import com.adriandondarza.gestionpedidos.springboot.model.CompraIdempotencia;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repositorio encargado de gestionar las claves de idempotencia de pedidos ({@link CompraIdempotencia}).
+ *
+ * @author Adrian Dondarza
+ * @version 1.0
+ * @since 2026-10-16
+ */
+@Repository
+public interface CompraIdempotenciaRepository extends JpaRepository<CompraIdempotencia, String> {
+
+    /**
+     * Recupera varias claves junto con su compra en una única consulta.
+     *
+     * @param claves Claves de idempotencia buscadas.
+     * @return Registros encontrados, con la compra y su cliente ya cargados.
+     */
+    @Query("SELECT i FROM CompraIdempotencia i JOIN FETCH i.compra c LEFT JOIN FETCH c.cliente "
+            + "WHERE i.clave IN :claves")
+    List<CompraIdempotencia> buscarConCompra(@Param("claves") Collection<String> claves);
+
+    /**
+     * Elimina las claves registradas antes de un instante dado.
+     *
+     * @param limite Fecha de registro a partir de la cual las claves se conservan.
+     * @return Número de claves eliminadas.
+     */
+    @Modifying
+    @Query("DELETE FROM CompraIdempotencia i WHERE i.fechaRegistro < :limite")
+    int eliminarAnterioresA(@Param("limite") LocalDateTime limite);
+
+    /**
+     * Elimina las claves que apuntan a un bloque de compras que se va a archivar.
+     *
+     * @param compraIds Identificadores de las compras.
+     * @return Número de claves eliminadas.
+     */
+    @Modifying
+    @Query("DELETE FROM CompraIdempotencia i WHERE i.compra.id IN :compraIds")
+    int eliminarDeCompras(@Param("compraIds") Collection<Integer> compraIds);
+}
@@ -1,12 +1,22 @@
 package com.adriandondarza.gestionpedidos.springboot.repository;
 
+import com.adriandondarza.gestionpedidos.springboot.dto.CompraRespuestaDTO;
 import com.adriandondarza.gestionpedidos.springboot.model.Compra;
+import com.adriandondarza.gestionpedidos.springboot.model.EstadoCompra;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Repositorio encargado de gestionar la persistencia y consultas complejas de la entidad {@link Compra}.
@@ -46,4 +56,192 @@ public interface CompraRepository extends JpaRepository<Compra, Integer> {
      */
     @Query("SELECT c FROM Compra c JOIN FETCH c.cliente WHERE c.id = :id")
     Optional<Compra> findByIdWithCliente(@Param("id") Integer id);
-}
\ No newline at end of file
+
+    /**
+     * Proyección de un pedido al DTO de respuesta, con el nombre del cliente resuelto en 
+     * la misma consulta. Sin entidades gestionadas ni cargas perezosas posteriores.
+     */
+    String PROYECCION_RESPUESTA = "SELECT new com.adriandondarza.gestionpedidos.springboot.dto.CompraRespuestaDTO("
+            + "c.id, c.fechaRealizada, CAST(c.estado AS String), c.direccionEnvio, c.precioTotal, "
+            + "COALESCE(cl.nombre, 'Cliente eliminado')) "
+            + "FROM Compra c LEFT JOIN c.cliente cl ";
+
+    /**
+     * Orden estable de los listados: más recientes primero, con el identificador como desempate.
+     */
+    String ORDEN_RECIENTES = " ORDER BY c.fechaRealizada DESC, c.id DESC";
+
+    /**
+     * Condición de búsqueda por clave (keyset): pedidos estrictamente posteriores, en el 
+     * orden del listado, al último pedido recibido. La primera comparación acota el 
+     * recorrido del índice {@code (fecha_realizada, id)}; la segunda resuelve los empates.
+     */
+    String TRAS_CURSOR = "c.fechaRealizada <= :fecha "
+            + "AND (c.fechaRealizada < :fecha OR c.id < :id)";
+
+    /**
+     * Primera página del listado global de pedidos.
+     *
+     * @param pagina Límite de filas ({@link Pageable#unpaged()} para el listado completo).
+     * @return Pedidos más recientes proyectados a DTO.
+     */
+    @Query(PROYECCION_RESPUESTA + ORDEN_RECIENTES)
+    List<CompraRespuestaDTO> buscarRecientes(Pageable pagina);
+
+    /**
+     * Página siguiente del listado global de pedidos, a partir del último recibido.
+     *
+     * @param fecha Fecha del último pedido de la página anterior.
+     * @param id Identificador del último pedido de la página anterior.
+     * @param pagina Límite de filas.
+     * @return Pedidos siguientes proyectados a DTO.
+     */
+    @Query(PROYECCION_RESPUESTA + "WHERE " + TRAS_CURSOR + ORDEN_RECIENTES)
+    List<CompraRespuestaDTO> buscarRecientesTras(@Param("fecha") LocalDateTime fecha, @Param("id") Integer id,
+                                                 Pageable pagina);
+
+    /**
+     * Primera página de los pedidos de un cliente.
+     *
+     * @param nif Identificador fiscal del cliente.
+     * @param pagina Límite de filas ({@link Pageable#unpaged()} para el histórico completo).
+     * @return Pedidos más recientes del cliente proyectados a DTO.
+     */
+    @Query(PROYECCION_RESPUESTA + "WHERE cl.nifCif = :nif" + ORDEN_RECIENTES)
+    List<CompraRespuestaDTO> buscarRecientesPorCliente(@Param("nif") String nif, Pageable pagina);
+
+    /**
+     * Página siguiente de los pedidos de un cliente, a partir del último recibido.
+     *
+     * @param nif Identificador fiscal del cliente.
+     * @param fecha Fecha del último pedido de la página anterior.
+     * @param id Identificador del último pedido de la página anterior.
+     * @param pagina Límite de filas.
+     * @return Pedidos siguientes del cliente proyectados a DTO.
+     */
+    @Query(PROYECCION_RESPUESTA + "WHERE cl.nifCif = :nif AND " + TRAS_CURSOR + ORDEN_RECIENTES)
+    List<CompraRespuestaDTO> buscarRecientesPorClienteTras(@Param("nif") String nif,
+                                                           @Param("fecha") LocalDateTime fecha,
+                                                           @Param("id") Integer id, Pageable pagina);
+
+    /**
+     * Recupera varias compras por identificador, proyectadas a DTO.
+     *
+     * @param ids Identificadores de las compras.
+     * @return Cabeceras de las compras encontradas, sin orden garantizado.
+     */
+    @Query(PROYECCION_RESPUESTA + "WHERE c.id IN :ids")
+    List<CompraRespuestaDTO> buscarResumenes(@Param("ids") Collection<Integer> ids);
+
+    /**
+     * Agrega por cliente el número, el importe y la fecha más reciente de sus compras 
+     * que no estén en el estado indicado.
+     *
+     * @param nifs NIF/CIF de los clientes.
+     * @param excluido Estado de las compras que no computan (anuladas).
+     * @return Filas {@code [nifCif, numCompras, totalGastado, ultimaCompra]}; los clientes 
+     *         sin compras no aparecen.
+     */
+    @Query("SELECT cl.nifCif, COUNT(c), SUM(c.precioTotal), MAX(c.fechaRealizada) "
+            + "FROM Compra c JOIN c.cliente cl WHERE cl.nifCif IN :nifs AND c.estado <> :excluido "
+            + "GROUP BY cl.nifCif")
+    List<Object[]> agregarPorCliente(@Param("nifs") Collection<String> nifs,
+                                     @Param("excluido") EstadoCompra excluido);
+
+    /**
+     * Lee y bloquea ({@code SELECT ... FOR UPDATE}) los datos de un bloque de compras 
+     * necesarios para validar y aplicar un cambio de estado.
+     * <p>
+     * El bloqueo impide que dos cambios concurrentes sobre la misma compra validen ambos 
+     * la transición contra el mismo estado de partida.
+     * </p>
+     *
+     * @param ids Identificadores de las compras.
+     * @return Filas {@code [id, estado, clienteNif, precioTotal]} de las compras existentes.
+     */
+    @Query(value = "SELECT id, estado, cliente_nif, precio_total FROM {h-schema}compras "
+            + "WHERE id IN (:ids) FOR UPDATE", nativeQuery = true)
+    List<Object[]> bloquearParaTransicion(@Param("ids") Collection<Integer> ids);
+
+    /**
+     * Fija en una única sentencia el estado de un bloque de compras, incrementando su 
+     * versión para invalidar las ediciones optimistas basadas en el estado anterior.
+     *
+     * @param ids Identificadores de las compras (ya validadas y bloqueadas).
+     * @param estado Nuevo estado.
+     * @return Número de compras actualizadas.
+     */
+    @Modifying
+    @Query("UPDATE Compra c SET c.estado = :estado, c.version = c.version + 1 WHERE c.id IN :ids")
+    int actualizarEstado(@Param("ids") Collection<Integer> ids, @Param("estado") EstadoCompra estado);
+
+    /**
+     * Selecciona, en orden de antigüedad, el siguiente bloque de compras que pueden 
+     * archivarse a partir de un cursor {@code (fecha_realizada, id)}.
+     *
+     * @param estados Estados finales que se archivan.
+     * @param limite Solo compras anteriores a esta fecha.
+     * @param fecha Fecha de la última compra del bloque anterior.
+     * @param id Identificador de la última compra del bloque anterior.
+     * @param pagina Tamaño del bloque.
+     * @return Filas {@code [id, fechaRealizada, clienteNif]} en orden ascendente.
+     */
+    @Query("SELECT c.id, c.fechaRealizada, c.cliente.nifCif FROM Compra c "
+            + "WHERE c.estado IN :estados AND c.fechaRealizada < :limite "
+            + "AND c.fechaRealizada >= :fecha AND (c.fechaRealizada > :fecha OR c.id > :id) "
+            + "ORDER BY c.fechaRealizada, c.id")
+    List<Object[]> buscarArchivables(@Param("estados") Collection<EstadoCompra> estados,
+                                     @Param("limite") LocalDateTime limite, @Param("fecha") LocalDateTime fecha,
+                                     @Param("id") Integer id, Pageable pagina);
+
+    /**
+     * Elimina de la tabla principal un bloque de compras ya copiadas al archivo. Sus líneas 
+     * y claves de idempotencia deben haberse eliminado antes.
+     *
+     * @param ids Identificadores de las compras.
+     * @return Número de compras eliminadas.
+     */
+    @Modifying
+    @Query("DELETE FROM Compra c WHERE c.id IN :ids")
+    int eliminarArchivadas(@Param("ids") Collection<Integer> ids);
+
+    /**
+     * Fecha de la compra más reciente de un cliente que no esté en el estado indicado.
+     *
+     * @param nif NIF/CIF del cliente.
+     * @param excluido Estado de las compras que no computan (anuladas).
+     * @return Fecha más reciente, o {@code null} si no hay ninguna.
+     */
+    @Query("SELECT MAX(c.fechaRealizada) FROM Compra c WHERE c.cliente.nifCif = :nif AND c.estado <> :excluido")
+    LocalDateTime ultimaFecha(@Param("nif") String nif, @Param("excluido") EstadoCompra excluido);
+
+    /**
+     * Lista los identificadores de las compras que se encuentran en un estado.
+     * <p>
+     * Pensado para estados poco frecuentes (anuladas), apoyándose en el índice por estado.
+     * </p>
+     *
+     * @param estado Estado buscado.
+     * @return Identificadores de las compras en ese estado.
+     */
+    @Query("SELECT c.id FROM Compra c WHERE c.estado = :estado")
+    List<Integer> buscarIdsPorEstado(@Param("estado") EstadoCompra estado);
+
+    /**
+     * Recorre todas las compras, de la más antigua a la más reciente, como un cursor de 
+     * solo avance.
+     * <p>
+     * Las filas se proyectan a DTO, de modo que el contexto de persistencia no retiene 
+     * ninguna entidad, y se traen de la base de datos en bloques de 1000 por viaje de red. 
+     * El flujo debe consumirse y cerrarse dentro de una transacción.
+     * </p>
+     *
+     * @return Flujo perezoso de compras proyectadas a DTO.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(PROYECCION_RESPUESTA + "ORDER BY c.fechaRealizada, c.id")
+    Stream<CompraRespuestaDTO> recorrerTodas();
+}
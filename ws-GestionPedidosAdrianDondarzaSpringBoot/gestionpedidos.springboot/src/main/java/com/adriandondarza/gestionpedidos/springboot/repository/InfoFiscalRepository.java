@@ -2,7 +2,11 @@ package com.adriandondarza.gestionpedidos.springboot.repository;
 
 import com.adriandondarza.gestionpedidos.springboot.model.InfoFiscal;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
+import java.util.List;
 
 /**
  * Repositorio encargado de gestionar la persistencia de la entidad {@link InfoFiscal}.
@@ -21,4 +25,23 @@ import org.springframework.stereotype.Repository;
 public interface InfoFiscalRepository extends JpaRepository<InfoFiscal, String> {
     // Al extender de JpaRepository, hereda automáticamente todos los métodos CRUD
     // necesarios para la gestión fiscal utilizando el NIF como clave primaria.
+
+    /**
+     * Filtra, de un conjunto de NIF/CIF, los que ya tienen información fiscal registrada.
+     *
+     * @param nifs NIF/CIF a comprobar (como máximo 1000 por consulta).
+     * @return NIF/CIF ya registrados.
+     */
+    @Query("SELECT f.nifCif FROM InfoFiscal f WHERE f.nifCif IN :nifs")
+    List<String> buscarNifsExistentes(@Param("nifs") Collection<String> nifs);
+
+    /**
+     * Filtra, de un conjunto de teléfonos, los que ya están asignados a otro registro fiscal 
+     * (restricción {@code uk_fiscal_telefono}).
+     *
+     * @param telefonos Teléfonos a comprobar (como máximo 1000 por consulta).
+     * @return Teléfonos ya registrados.
+     */
+    @Query("SELECT f.telefono FROM InfoFiscal f WHERE f.telefono IN :telefonos")
+    List<String> buscarTelefonosExistentes(@Param("telefonos") Collection<String> telefonos);
 }
\ No newline at end of file
@@ -0,0 +1,106 @@
+package com.adriandondarza.gestionpedidos.springboot.repository;
+
+import com.adriandondarza.gestionpedidos.springboot.model.ResumenCliente;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repositorio encargado de mantener los resúmenes de compra por cliente ({@link ResumenCliente}).
+ * <p>
+ * Las modificaciones se expresan como sentencias {@code UPDATE} relativas (sumas y restas), 
+ * que la base de datos aplica de forma atómica sobre la fila sin necesidad de leerla antes.
+ * </p>
+ *
+ * @author Adrian Dondarza
+ * @version 1.0
+ * @since 2026-10-16
+ */
+@Repository
+public interface ResumenClienteRepository extends JpaRepository<ResumenCliente, String> {
+
+    /**
+     * Suma compras al resumen de un cliente.
+     *
+     * @param nif NIF/CIF del cliente.
+     * @param compras Número de compras a sumar.
+     * @param importe Importe a sumar.
+     * @param fecha Fecha de la compra más reciente sumada.
+     * @return {@code 1} si el resumen existía y se actualizó, {@code 0} en caso contrario.
+     */
+    @Modifying
+    @Query("UPDATE ResumenCliente r SET r.numCompras = r.numCompras + :compras, "
+            + "r.totalGastado = r.totalGastado + :importe, "
+            + "r.ultimaCompra = CASE WHEN r.ultimaCompra IS NULL OR r.ultimaCompra < :fecha "
+            + "THEN :fecha ELSE r.ultimaCompra END, "
+            + "r.revision = r.revision + 1 WHERE r.nifCif = :nif")
+    int acumular(@Param("nif") String nif, @Param("compras") long compras,
+                 @Param("importe") BigDecimal importe, @Param("fecha") LocalDateTime fecha);
+
+    /**
+     * Resta compras anuladas del resumen de un cliente.
+     *
+     * @param nif NIF/CIF del cliente.
+     * @param compras Número de compras anuladas.
+     * @param importe Importe total de las compras anuladas.
+     * @param ultima Fecha de la compra no anulada más reciente que queda (tabla principal y archivo).
+     * @return {@code 1} si el resumen existía y se actualizó, {@code 0} en caso contrario.
+     */
+    @Modifying
+    @Query("UPDATE ResumenCliente r SET r.numCompras = r.numCompras - :compras, "
+            + "r.totalGastado = r.totalGastado - :importe, r.ultimaCompra = :ultima, "
+            + "r.revision = r.revision + 1 WHERE r.nifCif = :nif")
+    int descontar(@Param("nif") String nif, @Param("compras") long compras, @Param("importe") BigDecimal importe,
+                  @Param("ultima") LocalDateTime ultima);
+
+    /**
+     * Fija los valores de un resumen (reconstrucción).
+     *
+     * @return Número de filas actualizadas.
+     */
+    @Modifying
+    @Query("UPDATE ResumenCliente r SET r.numCompras = :compras, r.totalGastado = :importe, "
+            + "r.ultimaCompra = :fecha, r.revision = r.revision + 1 WHERE r.nifCif = :nif")
+    int fijar(@Param("nif") String nif, @Param("compras") long compras,
+              @Param("importe") BigDecimal importe, @Param("fecha") LocalDateTime fecha);
+
+    /**
+     * Crea a cero los resúmenes que falten para los clientes indicados.
+     *
+     * @param nifs NIF/CIF de clientes existentes.
+     * @return Número de resúmenes creados.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO {h-schema}resumen_cliente (nif_cif, num_compras, total_gastado, ultima_compra, revision) "
+            + "SELECT cl.nif_cif, 0, 0, NULL, 0 FROM {h-schema}clientes cl WHERE cl.nif_cif IN (:nifs) "
+            + "AND NOT EXISTS (SELECT 1 FROM {h-schema}resumen_cliente r WHERE r.nif_cif = cl.nif_cif)",
+            nativeQuery = true)
+    int crearSiFaltan(@Param("nifs") Collection<String> nifs);
+
+    /**
+     * Bloquea ({@code SELECT ... FOR UPDATE}) los resúmenes de un bloque de clientes, de 
+     * modo que las compras en curso sobre ellos esperen a que termine la reconstrucción.
+     *
+     * @param nifs NIF/CIF de los clientes.
+     * @return NIF/CIF de los resúmenes bloqueados.
+     */
+    @Query(value = "SELECT nif_cif FROM {h-schema}resumen_cliente WHERE nif_cif IN (:nifs) FOR UPDATE",
+            nativeQuery = true)
+    List<String> bloquear(@Param("nifs") Collection<String> nifs);
+
+    /**
+     * Lee los valores actuales de varios resúmenes sin cargar entidades.
+     *
+     * @param nifs NIF/CIF de los clientes.
+     * @return Filas {@code [nifCif, numCompras, totalGastado, ultimaCompra, revision]}.
+     */
+    @Query("SELECT r.nifCif, r.numCompras, r.totalGastado, r.ultimaCompra, r.revision "
+            + "FROM ResumenCliente r WHERE r.nifCif IN :nifs")
+    List<Object[]> leer(@Param("nifs") Collection<String> nifs);
+}
@@ -0,0 +1,137 @@
+package com.adriandondarza.gestionpedidos.springboot.repository;
+
+import com.adriandondarza.gestionpedidos.springboot.model.StockFragmento;
+import com.adriandondarza.gestionpedidos.springboot.model.StockFragmentoId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repositorio encargado de gestionar las ranuras de stock fragmentado ({@link StockFragmento}).
+ * <p>
+ * Expone operaciones atómicas por ranura para que los descuentos concurrentes sobre 
+ * un mismo artículo se repartan entre filas distintas.
+ * </p>
+ *
+ * @author Adrian Dondarza
+ * @version 1.0
+ * @since 2026-10-16
+ */
+@Repository
+public interface StockFragmentoRepository extends JpaRepository<StockFragmento, StockFragmentoId> {
+
+    /**
+     * Descuenta unidades de una ranura concreta si dispone de stock suficiente.
+     *
+     * @param articuloId Identificador del artículo.
+     * @param fragmento Número de ranura.
+     * @param unidades Unidades a descontar.
+     * @return {@code 1} si el descuento se aplicó, {@code 0} en caso contrario.
+     */
+    @Modifying
+    @Query("UPDATE StockFragmento f SET f.stock = f.stock - :unidades "
+            + "WHERE f.id.articuloId = :articuloId AND f.id.fragmento = :fragmento AND f.stock >= :unidades")
+    int descontar(@Param("articuloId") Integer articuloId, @Param("fragmento") Integer fragmento,
+                  @Param("unidades") int unidades);
+
+    /**
+     * Suma unidades a una ranura concreta (devoluciones de stock).
+     *
+     * @param articuloId Identificador del artículo.
+     * @param fragmento Número de ranura.
+     * @param unidades Unidades a sumar.
+     * @return Número de filas actualizadas.
+     */
+    @Modifying
+    @Query("UPDATE StockFragmento f SET f.stock = f.stock + :unidades "
+            + "WHERE f.id.articuloId = :articuloId AND f.id.fragmento = :fragmento")
+    int incrementar(@Param("articuloId") Integer articuloId, @Param("fragmento") Integer fragmento,
+                    @Param("unidades") int unidades);
+
+    /**
+     * Calcula el stock total de un artículo fragmentado sumando todas sus ranuras.
+     *
+     * @param articuloId Identificador del artículo.
+     * @return Unidades disponibles en total.
+     */
+    @Query("SELECT COALESCE(SUM(f.stock), 0) FROM StockFragmento f WHERE f.id.articuloId = :articuloId")
+    long sumarStock(@Param("articuloId") Integer articuloId);
+
+    /**
+     * Calcula en una única consulta el stock total de varios artículos fragmentados.
+     *
+     * @param ids Identificadores de los artículos.
+     * @return Filas {@code [articuloId, stockTotal]}.
+     */
+    @Query("SELECT f.id.articuloId, SUM(f.stock) FROM StockFragmento f "
+            + "WHERE f.id.articuloId IN :ids GROUP BY f.id.articuloId")
+    List<Object[]> sumarStockPorArticulo(@Param("ids") Collection<Integer> ids);
+
+    /**
+     * Establece el stock de una ranura concreta (reparto y reequilibrado).
+     *
+     * @param articuloId Identificador del artículo.
+     * @param fragmento Número de ranura.
+     * @param stock Nuevo valor de la ranura.
+     * @return Número de filas actualizadas.
+     */
+    @Modifying
+    @Query("UPDATE StockFragmento f SET f.stock = :stock "
+            + "WHERE f.id.articuloId = :articuloId AND f.id.fragmento = :fragmento")
+    int fijar(@Param("articuloId") Integer articuloId, @Param("fragmento") Integer fragmento,
+              @Param("stock") int stock);
+
+    /**
+     * Elimina todas las ranuras de un artículo (vuelta al modo normal o re-fragmentado).
+     *
+     * @param articuloId Identificador del artículo.
+     * @return Número de filas eliminadas.
+     */
+    @Modifying
+    @Query("DELETE FROM StockFragmento f WHERE f.id.articuloId = :articuloId")
+    int eliminarFragmentos(@Param("articuloId") Integer articuloId);
+
+    /**
+     * Lee y bloquea ({@code SELECT ... FOR UPDATE}) todas las ranuras de un artículo.
+     * <p>
+     * Solo se utiliza en operaciones poco frecuentes que necesitan una visión consistente 
+     * del conjunto: consolidación de un descuento que no cabe en una sola ranura, 
+     * reequilibrado y cambios de modo. Devuelve valores escalares en lugar de entidades 
+     * para no dejar en el contexto de persistencia copias que las sentencias 
+     * {@code UPDATE} posteriores dejarían obsoletas.
+     * </p>
+     *
+     * @param articuloId Identificador del artículo.
+     * @return Filas {@code [fragmento, stock]} ordenadas por número de ranura.
+     */
+    @Query(value = "SELECT fragmento, stock FROM {h-schema}articulo_stock_fragmento "
+            + "WHERE id_articulo = :articuloId ORDER BY fragmento FOR UPDATE", nativeQuery = true)
+    List<Object[]> bloquearFragmentos(@Param("articuloId") Integer articuloId);
+
+    /**
+     * Lee sin bloqueo todas las ranuras de un artículo.
+     * <p>
+     * Permite al reequilibrado descartar los artículos ya equilibrados sin bloquear 
+     * sus ranuras.
+     * </p>
+     *
+     * @param articuloId Identificador del artículo.
+     * @return Filas {@code [fragmento, stock]} ordenadas por número de ranura.
+     */
+    @Query("SELECT f.id.fragmento, f.stock FROM StockFragmento f "
+            + "WHERE f.id.articuloId = :articuloId ORDER BY f.id.fragmento")
+    List<Object[]> leerFragmentos(@Param("articuloId") Integer articuloId);
+
+    /**
+     * Artículos con alguna ranura de stock modificada después de una versión de cambio.
+     *
+     * @param version Versión de cambio ya sincronizada.
+     * @return Identificadores de artículo, sin repetir.
+     */
+    @Query("SELECT DISTINCT f.id.articuloId FROM StockFragmento f WHERE f.versionCambio > :version")
+    List<Integer> buscarArticulosCambiados(@Param("version") long version);
+}
@@ -0,0 +1,554 @@
+package com.adriandondarza.gestionpedidos.springboot.service;
+
+import com.adriandondarza.gestionpedidos.springboot.dto.VentaArticuloDTO;
+import com.adriandondarza.gestionpedidos.springboot.dto.VentaDiariaDTO;
+import com.adriandondarza.gestionpedidos.springboot.model.EstadoCompra;
+import com.adriandondarza.gestionpedidos.springboot.repository.ArticuloCompraArchivadaRepository;
+import com.adriandondarza.gestionpedidos.springboot.repository.ArticuloCompraRepository;
+import com.adriandondarza.gestionpedidos.springboot.repository.CompraArchivadaRepository;
+import com.adriandondarza.gestionpedidos.springboot.repository.CompraRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Servicio de analítica de ventas sobre las líneas de compra.
+ * <p>
+ * Las consultas (facturación por día, unidades por artículo y cesta media en un rango
+ * de fechas) no acceden a base de datos: se resuelven sobre una instantánea en memoria
+ * en formato columnar, con una columna de tipos primitivos por dato de la línea
+ * (compra, día, artículo, unidades e importe en céntimos). Cada consulta reparte las
+ * líneas en tramos que se recorren en paralelo en el {@link ForkJoinPool} común y
+ * combina los acumulados parciales.
+ * </p>
+ * <p>
+ * La instantánea se refresca de forma incremental y periódica
+ * ({@code gestionpedidos.analitica.refresco-ms}):
+ * <ul>
+ * <li>Las compras anteriores a un corte ({@code gestionpedidos.analitica.margen-consolidacion-ms}
+ * antes del refresco) forman la parte consolidada, que solo crece: cada refresco carga
+ * únicamente las compras entre el corte anterior y el nuevo. El corte va por fecha de
+ * realización y no por identificador porque los identificadores se reservan por bloques
+ * y una compra con identificador menor puede confirmarse después que otra mayor; con
+ * el margen, toda compra anterior al corte está ya confirmada.</li>
+ * <li>Las compras posteriores al corte forman la cola, pequeña, que se vuelve a cargar
+ * entera en cada refresco.</li>
+ * <li>Las compras anuladas se excluyen con un mapa de bits por línea, que solo se
+ * recalcula entero cuando cambia el conjunto de compras anuladas.</li>
+ * </ul>
+ * Cada refresco lee la tabla principal antes que el archivo de compras, con el aislamiento 
+ * por defecto para que la carga completa no retenga una instantánea antigua: las líneas 
+ * archivadas de compras ya leídas de la tabla principal se descartan, de modo que una 
+ * compra que se archive durante el refresco se cuenta exactamente una vez. Las consultas
+ * leen siempre una instantánea completa y coherente, publicada de una vez al terminar
+ * cada refresco; hasta la primera carga devuelven resultados vacíos.
+ * Las compras con fecha anterior al corte que se inserten después (importaciones de
+ * histórico) solo se incorporan con una recarga completa ({@link #recargar()}).
+ * </p>
+ * <p>
+ * Es opcional y se activa con {@code gestionpedidos.analitica.habilitada=true}, pensado
+ * para una instancia de servidor: la instantánea ocupa memoria en proporción a todas las
+ * líneas de compra, y las aplicaciones de escritorio que embeben la librería no deben
+ * cargarla ni refrescarla. Con la analítica desactivada, las consultas se rechazan.
+ * </p>
+ *
+ * @author Adrian Dondarza
+ * @version 1.0
+ * @since 2026-10-16
+ */
+@Service
+public class AnaliticaVentasService {
+
+    private static final LocalDateTime INICIO = LocalDateTime.of(1900, 1, 1, 0, 0);
+    private static final LocalDateTime FIN = LocalDateTime.of(9999, 12, 31, 0, 0);
+
+    /**
+     * Mínimo de líneas por tramo paralelo; por debajo no compensa repartir.
+     */
+    private static final int TRAMO_MINIMO = 1 << 16;
+
+    /**
+     * Máximo de días de un rango de consulta por día (unos cien años).
+     */
+    private static final int MAX_DIAS_CONSULTA = 36600;
+
+    @Value("${gestionpedidos.analitica.habilitada:false}")
+    private boolean habilitada;
+
+    @Value("${gestionpedidos.analitica.margen-consolidacion-ms:300000}")
+    private long margenConsolidacionMs;
+
+    @Autowired
+    private ArticuloCompraRepository articuloCompraRepository;
+
+    @Autowired
+    private CompraRepository compraRepository;
+
+    @Autowired
+    private ArticuloCompraArchivadaRepository articuloCompraArchivadaRepository;
+
+    @Autowired
+    private CompraArchivadaRepository compraArchivadaRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private TransactionTemplate lectura;
+
+    private volatile Instantanea actual = new Instantanea(new Columnas(0).segmento(new long[0]),
+            new Columnas(0).segmento(new long[0]), new int[0], 0);
+
+    private volatile long duracionUltimoRefrescoMs;
+
+    // Estado de construcción: solo se modifica dentro de refrescar(), bajo este cerrojo
+    private final Object cerrojoRefresco = new Object();
+    private Columnas consolidadas = new Columnas(1024);
+    private LocalDateTime consolidadoHasta = INICIO;
+    private final Map<Integer, Integer> indiceArticulos = new HashMap<>();
+    private int[] idsArticulos = new int[64];
+    private int[] anuladas = new int[0];
+    private long[] excluidasConsolidadas = new long[0];
+    private int lineasMarcadas;
+
+    /**
+     * Columnas publicadas de una parte de la instantánea. Los arreglos pueden ser más
+     * largos que {@code n}: las posiciones a partir de {@code n} no pertenecen a este
+     * segmento y las consultas nunca las leen.
+     */
+    private record Segmento(int n, int[] compra, int[] dia, int[] articulo, int[] unidades,
+                            long[] centimos, long[] excluidas) {
+
+        boolean excluida(int i) {
+            return (excluidas[i >>> 6] & (1L << i)) != 0;
+        }
+
+        boolean primeraDeCompra(int i) {
+            return i == 0 || compra[i - 1] != compra[i];
+        }
+    }
+
+    /**
+     * Instantánea publicada: parte consolidada, cola reciente y tabla de artículos
+     * (posición densa a identificador).
+     */
+    private record Instantanea(Segmento consolidado, Segmento cola, int[] idsArticulos, int numArticulos) {
+    }
+
+    /**
+     * Tramo de líneas {@code [desde, hasta)} de un segmento, unidad de trabajo paralelo.
+     */
+    private record Tramo(Segmento segmento, int desde, int hasta) {
+    }
+
+    /**
+     * Columnas en construcción. Solo se añaden líneas al final, de modo que los segmentos
+     * ya publicados, que ven un prefijo, no se alteran aunque compartan los arreglos.
+     */
+    private static final class Columnas {
+        private int[] compra;
+        private int[] dia;
+        private int[] articulo;
+        private int[] unidades;
+        private long[] centimos;
+        private int n;
+
+        private Columnas(int capacidad) {
+            compra = new int[capacidad];
+            dia = new int[capacidad];
+            articulo = new int[capacidad];
+            unidades = new int[capacidad];
+            centimos = new long[capacidad];
+        }
+
+        private void anadir(int idCompra, int diaEpoca, int posicionArticulo, int numUnidades, long importe) {
+            if (n == compra.length) {
+                int capacidad = Math.max(1024, n + (n >> 1));
+                compra = Arrays.copyOf(compra, capacidad);
+                dia = Arrays.copyOf(dia, capacidad);
+                articulo = Arrays.copyOf(articulo, capacidad);
+                unidades = Arrays.copyOf(unidades, capacidad);
+                centimos = Arrays.copyOf(centimos, capacidad);
+            }
+            compra[n] = idCompra;
+            dia[n] = diaEpoca;
+            articulo[n] = posicionArticulo;
+            unidades[n] = numUnidades;
+            centimos[n] = importe;
+            n++;
+        }
+
+        private Segmento segmento(long[] excluidas) {
+            return new Segmento(n, compra, dia, articulo, unidades, centimos, excluidas);
+        }
+    }
+
+    @PostConstruct
+    void iniciar() {
+        lectura = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        lectura.setReadOnly(true);
+    }
+
+    /**
+     * Facturación y número de compras por día en un rango de fechas.
+     *
+     * @param desde Primer día del rango (incluido).
+     * @param hasta Último día del rango (incluido).
+     * @return Días con alguna venta, en orden cronológico.
+     * @throws RuntimeException Si la analítica no está activa o el rango no es válido.
+     */
+    public List<VentaDiariaDTO> ventasPorDia(LocalDate desde, LocalDate hasta) {
+        exigirHabilitada();
+        validarRango(desde, hasta);
+        int primerDia = (int) desde.toEpochDay();
+        int ultimoDia = (int) hasta.toEpochDay();
+        int dias = ultimoDia - primerDia + 1;
+        if (dias > MAX_DIAS_CONSULTA) {
+            throw new RuntimeException("El rango de consulta no puede superar " + MAX_DIAS_CONSULTA + " días");
+        }
+        // Por día: importe en [0, dias) y número de compras en [dias, 2 * dias)
+        long[] totales = tramos(actual).parallel().map(t -> {
+            Segmento s = t.segmento();
+            int[] dia = s.dia();
+            long[] centimos = s.centimos();
+            long[] acumulado = new long[2 * dias];
+            for (int i = t.desde(); i < t.hasta(); i++) {
+                int d = dia[i];
+                if (d >= primerDia && d <= ultimoDia && !s.excluida(i)) {
+                    acumulado[d - primerDia] += centimos[i];
+                    if (s.primeraDeCompra(i)) {
+                        acumulado[dias + d - primerDia]++;
+                    }
+                }
+            }
+            return acumulado;
+        }).reduce(AnaliticaVentasService::sumar).orElse(new long[2 * dias]);
+
+        List<VentaDiariaDTO> resultado = new ArrayList<>();
+        for (int k = 0; k < dias; k++) {
+            if (totales[dias + k] > 0) {
+                resultado.add(new VentaDiariaDTO(LocalDate.ofEpochDay(primerDia + k),
+                        BigDecimal.valueOf(totales[k], 2), totales[dias + k]));
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Unidades vendidas e importe facturado por artículo en un rango de fechas.
+     *
+     * @param desde Primer día del rango (incluido).
+     * @param hasta Último día del rango (incluido).
+     * @return Artículos con alguna venta, de más a menos unidades vendidas.
+     * @throws RuntimeException Si la analítica no está activa o el rango no es válido.
+     */
+    public List<VentaArticuloDTO> ventasPorArticulo(LocalDate desde, LocalDate hasta) {
+        exigirHabilitada();
+        validarRango(desde, hasta);
+        int primerDia = (int) desde.toEpochDay();
+        int ultimoDia = (int) hasta.toEpochDay();
+        Instantanea instantanea = actual;
+        int articulos = instantanea.numArticulos();
+        // Por artículo: unidades en [0, articulos) e importe en [articulos, 2 * articulos)
+        long[] totales = tramos(instantanea).parallel().map(t -> {
+            Segmento s = t.segmento();
+            int[] dia = s.dia();
+            int[] articulo = s.articulo();
+            int[] unidades = s.unidades();
+            long[] centimos = s.centimos();
+            long[] acumulado = new long[2 * articulos];
+            for (int i = t.desde(); i < t.hasta(); i++) {
+                int d = dia[i];
+                if (d >= primerDia && d <= ultimoDia && !s.excluida(i)) {
+                    acumulado[articulo[i]] += unidades[i];
+                    acumulado[articulos + articulo[i]] += centimos[i];
+                }
+            }
+            return acumulado;
+        }).reduce(AnaliticaVentasService::sumar).orElse(new long[2 * articulos]);
+
+        List<VentaArticuloDTO> resultado = new ArrayList<>();
+        for (int k = 0; k < articulos; k++) {
+            if (totales[k] > 0) {
+                resultado.add(new VentaArticuloDTO(instantanea.idsArticulos()[k], totales[k],
+                        BigDecimal.valueOf(totales[articulos + k], 2)));
+            }
+        }
+        resultado.sort((a, b) -> Long.compare(b.getUnidades(), a.getUnidades()));
+        return resultado;
+    }
+
+    /**
+     * Importe medio por compra (cesta media) en un rango de fechas.
+     *
+     * @param desde Primer día del rango (incluido).
+     * @param hasta Último día del rango (incluido).
+     * @return Importe medio de las compras no anuladas del rango; cero si no hay ninguna.
+     * @throws RuntimeException Si la analítica no está activa o el rango no es válido.
+     */
+    public BigDecimal cestaMedia(LocalDate desde, LocalDate hasta) {
+        exigirHabilitada();
+        validarRango(desde, hasta);
+        int primerDia = (int) desde.toEpochDay();
+        int ultimoDia = (int) hasta.toEpochDay();
+        // [importe total, número de compras]
+        long[] totales = tramos(actual).parallel().map(t -> {
+            Segmento s = t.segmento();
+            int[] dia = s.dia();
+            long[] centimos = s.centimos();
+            long[] acumulado = new long[2];
+            for (int i = t.desde(); i < t.hasta(); i++) {
+                int d = dia[i];
+                if (d >= primerDia && d <= ultimoDia && !s.excluida(i)) {
+                    acumulado[0] += centimos[i];
+                    if (s.primeraDeCompra(i)) {
+                        acumulado[1]++;
+                    }
+                }
+            }
+            return acumulado;
+        }).reduce(AnaliticaVentasService::sumar).orElse(new long[2]);
+
+        if (totales[1] == 0) {
+            return BigDecimal.ZERO.setScale(2);
+        }
+        return BigDecimal.valueOf(totales[0], 2).divide(BigDecimal.valueOf(totales[1]), 2, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * Refresco periódico de la instantánea, solo con la analítica activa.
+     */
+    @Scheduled(fixedDelayString = "${gestionpedidos.analitica.refresco-ms:60000}")
+    public void refrescarProgramado() {
+        if (habilitada) {
+            refrescar();
+        }
+    }
+
+    /**
+     * @return {@code true} si la analítica de ventas está activa.
+     */
+    public boolean isHabilitada() {
+        return habilitada;
+    }
+
+    /**
+     * Incorpora a la instantánea las compras consolidadas desde el último refresco,
+     * recarga la cola reciente y actualiza las exclusiones por anulación.
+     *
+     * @throws RuntimeException Si la analítica no está activa o falla la lectura; la 
+     *         instantánea publicada no cambia.
+     */
+    public void refrescar() {
+        exigirHabilitada();
+        synchronized (cerrojoRefresco) {
+            long inicio = System.nanoTime();
+            LocalDateTime desde = consolidadoHasta;
+            LocalDateTime corte = LocalDateTime.now().minus(margenConsolidacionMs, ChronoUnit.MILLIS);
+            LocalDateTime hasta = corte.isAfter(desde) ? corte : desde;
+            int lineasPrevias = consolidadas.n;
+            Columnas cola = new Columnas(1024);
+            int[] idsAnuladas;
+            try {
+                idsAnuladas = lectura.execute(estado -> {
+                    // Compras leídas de la tabla principal: sus líneas en el archivo ya están contadas
+                    BitSet principal = new BitSet();
+                    cargar(articuloCompraRepository.recorrerLineas(desde, hasta), consolidadas, principal, false);
+                    cargar(articuloCompraArchivadaRepository.recorrerLineas(desde, hasta), consolidadas, principal, true);
+                    cargar(articuloCompraRepository.recorrerLineas(hasta, FIN), cola, principal, false);
+                    cargar(articuloCompraArchivadaRepository.recorrerLineas(hasta, FIN), cola, principal, true);
+                    return Stream.concat(compraRepository.buscarIdsPorEstado(EstadoCompra.ANULADA).stream(),
+                                    compraArchivadaRepository.buscarIdsPorEstado(EstadoCompra.ANULADA).stream())
+                            .mapToInt(Integer::intValue).sorted().distinct().toArray();
+                });
+            } catch (RuntimeException e) {
+                // Se descarta lo añadido para no duplicarlo en el siguiente intento
+                consolidadas.n = lineasPrevias;
+                throw new RuntimeException("Error al refrescar la analítica de ventas: " + e.getMessage(), e);
+            }
+            consolidadoHasta = hasta;
+
+            int palabras = (consolidadas.n + 63) >>> 6;
+            if (!Arrays.equals(idsAnuladas, anuladas)) {
+                anuladas = idsAnuladas;
+                excluidasConsolidadas = new long[palabras];
+                lineasMarcadas = 0;
+            } else if (palabras > excluidasConsolidadas.length) {
+                excluidasConsolidadas = Arrays.copyOf(excluidasConsolidadas,
+                        Math.max(palabras, excluidasConsolidadas.length + (excluidasConsolidadas.length >> 1)));
+            }
+            marcarAnuladas(consolidadas, excluidasConsolidadas, lineasMarcadas);
+            lineasMarcadas = consolidadas.n;
+            long[] excluidasCola = new long[(cola.n + 63) >>> 6];
+            marcarAnuladas(cola, excluidasCola, 0);
+
+            actual = new Instantanea(consolidadas.segmento(excluidasConsolidadas), cola.segmento(excluidasCola),
+                    idsArticulos, indiceArticulos.size());
+            duracionUltimoRefrescoMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+        }
+    }
+
+    /**
+     * Descarta la parte consolidada y vuelve a cargar la instantánea completa.
+     * <p>
+     * Las consultas siguen respondiendo con la instantánea anterior hasta que termina la carga.
+     * </p>
+     *
+     * @throws RuntimeException Si la analítica no está activa o falla la lectura.
+     */
+    public void recargar() {
+        exigirHabilitada();
+        synchronized (cerrojoRefresco) {
+            // Arreglos nuevos: los de la instantánea publicada no deben reescribirse
+            consolidadas = new Columnas(1024);
+            consolidadoHasta = INICIO;
+            indiceArticulos.clear();
+            idsArticulos = new int[64];
+            anuladas = new int[0];
+            excluidasConsolidadas = new long[0];
+            lineasMarcadas = 0;
+            refrescar();
+        }
+    }
+
+    /**
+     * @return Líneas de compra contenidas en la instantánea publicada.
+     */
+    public long getLineas() {
+        Instantanea instantanea = actual;
+        return (long) instantanea.consolidado().n() + instantanea.cola().n();
+    }
+
+    /**
+     * @return Duración, en milisegundos, del último refresco completado.
+     */
+    public long getDuracionUltimoRefrescoMs() {
+        return duracionUltimoRefrescoMs;
+    }
+
+    /**
+     * Añade a unas columnas las filas leídas, asignando posición densa a los artículos nuevos.
+     * Las filas de la tabla principal marcan su compra en {@code principal}; las del archivo 
+     * cuya compra ya está marcada se descartan.
+     */
+    private void cargar(Stream<Object[]> filas, Columnas destino, BitSet principal, boolean archivo) {
+        try (filas) {
+            filas.forEach(fila -> {
+                int compra = (Integer) fila[0];
+                if (archivo) {
+                    if (principal.get(compra)) {
+                        return;
+                    }
+                } else {
+                    principal.set(compra);
+                }
+                int idArticulo = (Integer) fila[2];
+                Integer posicion = indiceArticulos.get(idArticulo);
+                if (posicion == null) {
+                    posicion = indiceArticulos.size();
+                    if (posicion == idsArticulos.length) {
+                        idsArticulos = Arrays.copyOf(idsArticulos, posicion * 2);
+                    }
+                    idsArticulos[posicion] = idArticulo;
+                    indiceArticulos.put(idArticulo, posicion);
+                }
+                int unidades = (Integer) fila[3];
+                long precioCentimos = ((BigDecimal) fila[4]).movePointRight(2).longValueExact();
+                destino.anadir(compra, (int) ((LocalDateTime) fila[1]).toLocalDate().toEpochDay(),
+                        posicion, unidades, precioCentimos * unidades);
+            });
+        }
+    }
+
+    /**
+     * Marca en el mapa de bits las líneas de compras anuladas a partir de una posición.
+     * Los tramos se alinean a múltiplos de 64 para que cada palabra la escriba un único hilo.
+     */
+    private void marcarAnuladas(Columnas columnas, long[] excluidas, int desde) {
+        int[] ids = anuladas;
+        if (ids.length == 0 || desde >= columnas.n) {
+            return;
+        }
+        int[] compra = columnas.compra;
+        int hasta = columnas.n;
+        int primerTramo = desde / TRAMO_MINIMO;
+        int ultimoTramo = (hasta - 1) / TRAMO_MINIMO;
+        IntStream.rangeClosed(primerTramo, ultimoTramo).parallel().forEach(tramo -> {
+            int inicio = Math.max(desde, tramo * TRAMO_MINIMO);
+            int fin = Math.min(hasta, (tramo + 1) * TRAMO_MINIMO);
+            int compraPrevia = -1;
+            boolean anulada = false;
+            for (int i = inicio; i < fin; i++) {
+                // Las líneas de una compra son consecutivas: se busca una vez por compra
+                if (compra[i] != compraPrevia) {
+                    compraPrevia = compra[i];
+                    anulada = Arrays.binarySearch(ids, compraPrevia) >= 0;
+                }
+                if (anulada) {
+                    excluidas[i >>> 6] |= 1L << i;
+                }
+            }
+        });
+    }
+
+    /**
+     * Reparte las líneas de una instantánea en tramos para su recorrido en paralelo,
+     * unos pocos por hilo del {@link ForkJoinPool} común para equilibrar la carga.
+     */
+    private static Stream<Tramo> tramos(Instantanea instantanea) {
+        long total = (long) instantanea.consolidado().n() + instantanea.cola().n();
+        int numTramos = (int) Math.max(1, Math.min(4L * ForkJoinPool.getCommonPoolParallelism(),
+                total / TRAMO_MINIMO));
+        int tamano = (int) ((total + numTramos - 1) / numTramos);
+        List<Tramo> tramos = new ArrayList<>(numTramos + 1);
+        for (Segmento segmento : List.of(instantanea.consolidado(), instantanea.cola())) {
+            for (int desde = 0; desde < segmento.n(); desde += tamano) {
+                tramos.add(new Tramo(segmento, desde, Math.min(segmento.n(), desde + tamano)));
+            }
+        }
+        return tramos.stream();
+    }
+
+    /**
+     * Suma sobre el primero, elemento a elemento, los acumulados de dos tramos.
+     */
+    private static long[] sumar(long[] a, long[] b) {
+        for (int k = 0; k < a.length; k++) {
+            a[k] += b[k];
+        }
+        return a;
+    }
+
+    private void exigirHabilitada() {
+        if (!habilitada) {
+            throw new RuntimeException("La analítica de ventas no está activa");
+        }
+    }
+
+    private static void validarRango(LocalDate desde, LocalDate hasta) {
+        if (desde == null || hasta == null) {
+            throw new RuntimeException("El rango de fechas es obligatorio");
+        }
+        if (hasta.isBefore(desde)) {
+            throw new RuntimeException("La fecha final no puede ser anterior a la inicial");
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.adriandondarza.gestionpedidos.springboot.service;
+
+import com.adriandondarza.gestionpedidos.springboot.model.EstadoCompra;
+import com.adriandondarza.gestionpedidos.springboot.repository.ArticuloCompraArchivadaRepository;
+import com.adriandondarza.gestionpedidos.springboot.repository.ArticuloCompraRepository;
+import com.adriandondarza.gestionpedidos.springboot.repository.CompraArchivadaRepository;
+import com.adriandondarza.gestionpedidos.springboot.repository.CompraIdempotenciaRepository;
+import com.adriandondarza.gestionpedidos.springboot.repository.CompraRepository;
+import com.adriandondarza.gestionpedidos.springboot.repository.ResumenClienteRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Servicio que traslada las compras cerradas antiguas de las tablas principales 
+ * ({@code compras}, {@code articulo_compra}) a las tablas de archivo 
+ * ({@code compras_archivo}, {@code articulo_compra_archivo}).
+ * <p>
+ * Se archivan las compras en estado final (ENTREGADO o ANULADA) con más de 
+ * {@code gestionpedidos.compras.archivo.antiguedad-dias} días, en orden de antigüedad y 
+ * en bloques de {@code gestionpedidos.compras.archivo.bloque} compras. Cada bloque es una 
+ * transacción que copia cabeceras y líneas con {@code INSERT ... SELECT}, elimina las 
+ * filas originales y comprueba que el número de filas copiadas y eliminadas coincide; 
+ * si el proceso se interrumpe, los bloques confirmados quedan archivados y la siguiente 
+ * ejecución continúa con las compras pendientes. Los triggers de la base de datos solo 
+ * permiten eliminar de las tablas principales filas que ya existen en el archivo.
+ * </p>
+ * <p>
+ * Cada bloque bloquea al final los resúmenes de sus clientes, de modo que no se solapa 
+ * con una reconstrucción de resúmenes que esté sumando esas compras. Las claves de 
+ * idempotencia que aún apunten a las compras archivadas se eliminan: la antigüedad de 
+ * archivo debe ser mayor que la retención de claves.
+ * </p>
+ *
+ * @author Adrian Dondarza
+ * @version 1.0
+ * @since 2026-10-16
+ */
+@Service
+public class ArchivoComprasService {
+
+    private static final Set<EstadoCompra> ESTADOS_ARCHIVABLES = EnumSet.of(EstadoCompra.ENTREGADO, EstadoCompra.ANULADA);
+    private static final LocalDateTime INICIO = LocalDateTime.of(1900, 1, 1, 0, 0);
+
+    @Value("${gestionpedidos.compras.archivo.habilitado:false}")
+    private boolean habilitado;
+
+    @Value("${gestionpedidos.compras.archivo.antiguedad-dias:180}")
+    private int antiguedadDias;
+
+    @Value("${gestionpedidos.compras.archivo.bloque:500}")
+    private int tamanoBloque;
+
+    @Autowired private CompraRepository compraRepository;
+    @Autowired private ArticuloCompraRepository articuloCompraRepository;
+    @Autowired private CompraArchivadaRepository compraArchivadaRepository;
+    @Autowired private ArticuloCompraArchivadaRepository articuloCompraArchivadaRepository;
+    @Autowired private CompraIdempotenciaRepository compraIdempotenciaRepository;
+    @Autowired private ResumenClienteRepository resumenClienteRepository;
+    @Autowired private TransactionTemplate transactionTemplate;
+
+    private final AtomicBoolean enCurso = new AtomicBoolean();
+    private final LongAdder comprasArchivadas = new LongAdder();
+    private final LongAdder lineasArchivadas = new LongAdder();
+
+    /**
+     * Posición alcanzada tras un bloque: última compra archivada y tamaño del bloque.
+     */
+    private record Avance(LocalDateTime fecha, Integer id, int compras) {
+    }
+
+    /**
+     * Ejecución periódica del archivado. Elimina filas de las tablas principales, por lo que 
+     * solo se activa si {@code gestionpedidos.compras.archivo.habilitado} se fija expresamente, 
+     * y en una única instancia de servidor: la exclusión de ejecuciones solapadas solo 
+     * alcanza a este proceso, no a otros que compartan la base de datos.
+     */
+    @Scheduled(fixedDelayString = "${gestionpedidos.compras.archivo.periodo-ms:3600000}")
+    public void archivarProgramado() {
+        if (habilitado) {
+            archivar();
+        }
+    }
+
+    /**
+     * Archiva las compras cerradas que superan la antigüedad configurada.
+     *
+     * @return Número de compras archivadas.
+     */
+    public int archivar() {
+        return archivarAnterioresA(LocalDateTime.now().minusDays(antiguedadDias));
+    }
+
+    /**
+     * Archiva las compras cerradas anteriores a una fecha, bloque a bloque.
+     *
+     * @param limite Solo se archivan compras realizadas antes de esta fecha.
+     * @return Número de compras archivadas; {@code 0} si ya había un archivado en curso.
+     * @throws RuntimeException Si falla un bloque (los bloques anteriores quedan archivados).
+     */
+    public int archivarAnterioresA(LocalDateTime limite) {
+        if (!enCurso.compareAndSet(false, true)) {
+            return 0;
+        }
+        try {
+            int total = 0;
+            Avance avance = new Avance(INICIO, 0, 0);
+            while (true) {
+                Avance desde = avance;
+                avance = transactionTemplate.execute(estado -> archivarBloque(limite, desde));
+                if (avance == null) {
+                    return total;
+                }
+                total += avance.compras();
+            }
+        } finally {
+            enCurso.set(false);
+        }
+    }
+
+    /**
+     * @return Compras archivadas desde el arranque.
+     */
+    public long getComprasArchivadas() {
+        return comprasArchivadas.sum();
+    }
+
+    /**
+     * @return Líneas de compra archivadas desde el arranque.
+     */
+    public long getLineasArchivadas() {
+        return lineasArchivadas.sum();
+    }
+
+    /**
+     * Cuerpo transaccional de un bloque: selección por cursor, copia, eliminación y 
+     * comprobación de recuentos.
+     *
+     * @return Avance tras el bloque, o {@code null} si no quedaban compras que archivar.
+     */
+    private Avance archivarBloque(LocalDateTime limite, Avance anterior) {
+        List<Object[]> filas = compraRepository.buscarArchivables(ESTADOS_ARCHIVABLES, limite,
+                anterior.fecha(), anterior.id(), PageRequest.of(0, tamanoBloque));
+        if (filas.isEmpty()) {
+            return null;
+        }
+        List<Integer> ids = new ArrayList<>(filas.size());
+        Set<String> nifs = new TreeSet<>();
+        for (Object[] fila : filas) {
+            ids.add((Integer) fila[0]);
+            if (fila[2] != null) {
+                nifs.add((String) fila[2]);
+            }
+        }
+
+        int cabeceras = compraArchivadaRepository.copiarCompras(ids);
+        int lineas = articuloCompraArchivadaRepository.copiarLineas(ids);
+        compraIdempotenciaRepository.eliminarDeCompras(ids);
+        int lineasEliminadas = articuloCompraRepository.eliminarArchivadas(ids);
+        int cabecerasEliminadas = compraRepository.eliminarArchivadas(ids);
+        if (cabeceras != ids.size() || cabecerasEliminadas != ids.size() || lineas != lineasEliminadas) {
+            throw new RuntimeException("Archivado incoherente: " + cabeceras + "/" + cabecerasEliminadas
+                    + " compras y " + lineas + "/" + lineasEliminadas + " líneas copiadas/eliminadas");
+        }
+        if (!nifs.isEmpty()) {
+            resumenClienteRepository.bloquear(nifs);
+        }
+
+        comprasArchivadas.add(cabeceras);
+        lineasArchivadas.add(lineas);
+        Object[] ultima = filas.get(filas.size() - 1);
+        return new Avance((LocalDateTime) ultima[1], (Integer) ultima[0], cabeceras);
+    }
+}
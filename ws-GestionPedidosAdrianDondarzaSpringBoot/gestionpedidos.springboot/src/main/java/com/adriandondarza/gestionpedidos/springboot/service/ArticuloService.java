@@ -1,13 +1,28 @@
 package com.adriandondarza.gestionpedidos.springboot.service;
 
 import com.adriandondarza.gestionpedidos.springboot.dto.ArticuloDTO;
+import com.adriandondarza.gestionpedidos.springboot.dto.ArticuloResumenDTO;
+import com.adriandondarza.gestionpedidos.springboot.dto.PaginaDTO;
 import com.adriandondarza.gestionpedidos.springboot.model.Articulo;
 import com.adriandondarza.gestionpedidos.springboot.repository.ArticuloRepository;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.stream.Collectors;
 
 /**
@@ -16,6 +31,13 @@ import java.util.stream.Collectors;
  * Centraliza las operaciones de catálogo, incluyendo la validación de nombres 
  * únicos para evitar redundancias en el inventario.
  * </p>
+ * <p>
+ * Las consultas de catálogo se sirven desde {@link CacheCatalogo}: solo abren una 
+ * transacción de lectura cuando hay que cargar artículos nuevos o modificados. Toda 
+ * operación que cambia un artículo o su stock debe invalidarlo en la caché. Las 
+ * búsquedas por nombre se resuelven con {@link IndiceBusquedaArticulos}, al que se 
+ * comunican las altas, cambios de nombre y desactivaciones.
+ * </p>
  *
  * @author Adrian Dondarza
  * @version 1.1
@@ -24,58 +46,217 @@ import java.util.stream.Collectors;
 @Service
 public class ArticuloService {
 
+    /**
+     * Número máximo de resultados de una búsqueda por nombre.
+     */
+    public static final int MAX_RESULTADOS_BUSQUEDA = 200;
+
+    /**
+     * Tamaño máximo de página admitido en los listados resumidos.
+     */
+    public static final int TAMANO_MAXIMO_PAGINA = 500;
+
+    /**
+     * Máximo de identificadores por consulta {@code IN} (límite de Oracle).
+     */
+    private static final int MAX_IDS_CONSULTA = 1000;
+
     @Autowired
     private ArticuloRepository articuloRepository;
 
-    @Transactional(readOnly = true)
+    @Autowired
+    private StockFragmentadoService stockFragmentadoService;
+
+    @Autowired
+    private CacheCatalogo cacheCatalogo;
+
+    @Autowired
+    private IndiceBusquedaArticulos indiceBusqueda;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private TraductorRestricciones traductorRestricciones;
+
+    private TransactionTemplate lectura;
+
+    @PostConstruct
+    void iniciar() {
+        lectura = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        lectura.setReadOnly(true);
+    }
+
     public List<ArticuloDTO> obtenerTodos() {
-        return articuloRepository.findAll().stream()
-                .map(this::convertirADTO)
-                .collect(Collectors.toList());
+        return cacheCatalogo.listar(false, this::cargarTodos, this::cargar);
     }
 
-    @Transactional(readOnly = true)
     public List<ArticuloDTO> obtenerActivos() {
-        return articuloRepository.findByActivoTrue().stream()
-                .map(this::convertirADTO)
-                .collect(Collectors.toList());
+        return cacheCatalogo.listar(true, this::cargarTodos, this::cargar);
     }
 
-    @Transactional(readOnly = true)
     public ArticuloDTO obtenerPorId(Integer id) {
-        Articulo art = articuloRepository.findById(id)
+        ArticuloDTO art = cacheCatalogo.obtener(id, this::cargar);
+        if (art == null) {
+            throw new RuntimeException("Artículo no encontrado");
+        }
+        return art;
+    }
+
+    /**
+     * Recupera una página del catálogo sin descripciones, por orden de identificador.
+     * <p>
+     * La consulta es una proyección que no lee la columna {@code CLOB} de la descripción,
+     * y el stock de los artículos fragmentados se resuelve en una única consulta adicional.
+     * Paginación por clave: la página siguiente se pide con el identificador del último 
+     * artículo recibido.
+     * </p>
+     *
+     * @param id Identificador del último artículo de la página anterior; {@code null} para la primera página.
+     * @param tamano Número de artículos por página (entre 1 y {@value #TAMANO_MAXIMO_PAGINA}).
+     * @param soloActivos Si solo se listan los artículos activos.
+     * @return {@link PaginaDTO} con los artículos de la página.
+     * @throws RuntimeException Si el tamaño de página no es válido.
+     */
+    @Transactional(readOnly = true)
+    public PaginaDTO<ArticuloResumenDTO> obtenerResumenes(Integer id, int tamano, boolean soloActivos) {
+        if (tamano < 1 || tamano > TAMANO_MAXIMO_PAGINA) {
+            throw new RuntimeException("El tamaño de página debe estar entre 1 y " + TAMANO_MAXIMO_PAGINA);
+        }
+        Integer desde = id != null ? id : 0;
+        Pageable limite = PageRequest.of(0, tamano + 1);
+        List<Object[]> filas = soloActivos
+                ? articuloRepository.buscarResumenesActivos(desde, limite)
+                : articuloRepository.buscarResumenes(desde, limite);
+
+        Map<Integer, Integer> fragmentados = stockFragmentadoService.stockTotales(filas.stream()
+                .filter(f -> (Integer) f[5] > 0)
+                .map(f -> (Integer) f[0])
+                .collect(Collectors.toList()));
+        List<ArticuloResumenDTO> resumenes = new ArrayList<>(filas.size());
+        for (Object[] f : filas) {
+            resumenes.add(new ArticuloResumenDTO((Integer) f[0], (String) f[1], (BigDecimal) f[2],
+                    fragmentados.getOrDefault((Integer) f[0], (Integer) f[3]), (Boolean) f[4]));
+        }
+        return PaginaDTO.de(resumenes, tamano);
+    }
+
+    /**
+     * Recupera la descripción de un artículo, para mostrarla bajo demanda junto a un 
+     * listado resumido.
+     *
+     * @param id Identificador del artículo.
+     * @return Descripción del artículo.
+     * @throws RuntimeException Si el artículo no existe.
+     */
+    @Transactional(readOnly = true)
+    public String obtenerDescripcion(Integer id) {
+        return articuloRepository.buscarDescripcion(id)
                 .orElseThrow(() -> new RuntimeException("Artículo no encontrado"));
-        return convertirADTO(art);
     }
 
     /**
-     * Persiste un nuevo artículo tras verificar que su nombre no esté duplicado.
+     * Recupera los artículos dados de alta, modificados o desactivados después de una 
+     * versión de cambio, incluidos aquellos cuyo stock fragmentado ha variado.
+     * <p>
+     * No pasa por {@link CacheCatalogo}: la versión de cambio solo existe en base de 
+     * datos y el resultado debe ser coherente con la del resto de la sincronización.
+     * </p>
+     *
+     * @param version Versión de cambio ya sincronizada.
+     * @return {@link List} de {@link ArticuloDTO} cambiados, ordenados por identificador.
+     */
+    @Transactional(readOnly = true)
+    public List<ArticuloDTO> obtenerCambiosDesde(long version) {
+        Set<Integer> ids = new TreeSet<>(articuloRepository.buscarIdsCambiados(version));
+        ids.addAll(stockFragmentadoService.articulosCambiadosDesde(version));
+        List<Integer> ordenados = new ArrayList<>(ids);
+        List<ArticuloDTO> cambiados = new ArrayList<>(ordenados.size());
+        for (int desde = 0; desde < ordenados.size(); desde += MAX_IDS_CONSULTA) {
+            List<Integer> bloque = ordenados.subList(desde, Math.min(desde + MAX_IDS_CONSULTA, ordenados.size()));
+            cambiados.addAll(convertirADTOs(articuloRepository.findAllById(bloque)));
+        }
+        cambiados.sort(Comparator.comparing(ArticuloDTO::getId));
+        return cambiados;
+    }
+
+    /**
+     * Busca artículos activos por nombre, sin distinguir mayúsculas ni tildes.
+     *
+     * @param texto Texto contenido en el nombre (o con el que empieza, si {@code soloPrefijo}).
+     * @param soloPrefijo Si solo se aceptan nombres que empiezan por el texto.
+     * @param limite Número máximo de resultados (entre 1 y {@link #MAX_RESULTADOS_BUSQUEDA}).
+     * @return Artículos encontrados, por orden de relevancia.
+     * @throws RuntimeException Si el límite no es válido.
+     */
+    public List<ArticuloDTO> buscarPorNombre(String texto, boolean soloPrefijo, int limite) {
+        if (limite < 1 || limite > MAX_RESULTADOS_BUSQUEDA) {
+            throw new RuntimeException("El límite de resultados debe estar entre 1 y " + MAX_RESULTADOS_BUSQUEDA);
+        }
+        List<ArticuloDTO> resultado = new ArrayList<>();
+        for (Integer id : indiceBusqueda.buscar(texto, soloPrefijo, limite)) {
+            ArticuloDTO art = cacheCatalogo.obtener(id, this::cargar);
+            if (art != null) {
+                resultado.add(art);
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Persiste un artículo nuevo o actualiza uno existente.
+     * <p>
+     * El nombre duplicado no se consulta antes de escribir: lo detecta el índice único 
+     * {@code uk_articulo_nombre} (insensible a mayúsculas), tanto en altas como en cambios 
+     * de nombre, y {@link TraductorRestricciones} lo convierte en el error de catálogo.
+     * </p>
      * <p>
-     * Si el artículo es nuevo (ID nulo), se comprueba la existencia del nombre en 
-     * la base de datos de forma insensible a mayúsculas.
+     * Una actualización debe traer la versión con la que se leyó el artículo: si no coincide 
+     * con la persistida (otra edición o un pedido que descontó stock), se rechaza en lugar 
+     * de sobrescribir el stock con un valor antiguo. El stock de un artículo fragmentado no 
+     * se modifica desde aquí, ya que los descuentos sobre sus ranuras no cambian la versión 
+     * del artículo; debe consolidarse antes ({@link #consolidarStock(Integer)}).
      * </p>
      *
      * @param dto Datos del artículo a guardar.
      * @return {@link ArticuloDTO} con el artículo persistido.
-     * @throws RuntimeException Si el nombre del artículo ya existe en el sistema.
+     * @throws RuntimeException Si el nombre del artículo ya existe en el sistema o falta la 
+     *         versión de una actualización.
+     * @throws OptimisticLockingFailureException Si el artículo cambió desde que se leyó.
      */
     @Transactional
     public ArticuloDTO guardarArticulo(ArticuloDTO dto) {
-        // Validación de duplicados por nombre (solo para registros nuevos)
-        if (dto.getId() == null && articuloRepository.existsByNombreIgnoreCase(dto.getNombre())) {
-            throw new RuntimeException("Error: El artículo '" + dto.getNombre() + "' ya existe en el catálogo.");
+        Articulo art = dto.getId() == null ? new Articulo() : articuloRepository.findById(dto.getId())
+                .orElseThrow(() -> new RuntimeException("No se puede actualizar: Artículo inexistente"));
+        if (dto.getId() != null) {
+            if (dto.getVersion() == null) {
+                throw new RuntimeException("No se puede actualizar: Falta la versión del artículo");
+            }
+            if (!dto.getVersion().equals(art.getVersion())) {
+                throw new OptimisticLockingFailureException("El artículo " + dto.getId()
+                        + " ha cambiado desde que se leyó; vuelva a cargarlo antes de modificarlo");
+            }
         }
-
-        Articulo art = new Articulo();
-        if (dto.getId() != null) art.setId(dto.getId());
         
         art.setNombre(dto.getNombre());
         art.setDescripcion(dto.getDescripcion());
         art.setPrecioActual(dto.getPrecioActual());
-        art.setStock(dto.getStock());
+        if (art.getFragmentosStock() == 0) {
+            art.setStock(dto.getStock());
+        }
         art.setActivo(dto.getActivo() != null ? dto.getActivo() : true);
         
-        return convertirADTO(articuloRepository.save(art));
+        // El volcado inmediato hace que el nombre duplicado se detecte aquí y no al confirmar
+        Articulo guardado;
+        try {
+            guardado = articuloRepository.saveAndFlush(art);
+        } catch (DataIntegrityViolationException e) {
+            throw traductorRestricciones.traducir(e, Map.of(TraductorRestricciones.UK_ARTICULO_NOMBRE,
+                    "Error: El artículo '" + dto.getNombre() + "' ya existe en el catálogo."));
+        }
+        cacheCatalogo.invalidar(List.of(guardado.getId()));
+        indiceBusqueda.actualizar(guardado.getId(), guardado.getNombre(), guardado.getActivo(), guardado::getVersion);
+        return convertirADTO(guardado);
     }
 
     @Transactional
@@ -83,11 +264,63 @@ public class ArticuloService {
         Articulo art = articuloRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("No se puede desactivar: Artículo inexistente"));
         art.setActivo(false);
-        articuloRepository.save(art);
+        Articulo guardado = articuloRepository.save(art);
+        cacheCatalogo.invalidar(List.of(id));
+        indiceBusqueda.actualizar(id, guardado.getNombre(), false, guardado::getVersion);
+    }
+
+    /**
+     * Activa el modo de stock fragmentado para un artículo de alta demanda.
+     *
+     * @param id Identificador del artículo.
+     * @param fragmentos Número de ranuras entre las que repartir el stock.
+     */
+    @Transactional
+    public void fragmentarStock(Integer id, int fragmentos) {
+        stockFragmentadoService.habilitar(id, fragmentos);
+    }
+
+    /**
+     * Devuelve un artículo al modo de stock normal.
+     *
+     * @param id Identificador del artículo.
+     */
+    @Transactional
+    public void consolidarStock(Integer id) {
+        stockFragmentadoService.deshabilitar(id);
+    }
+
+    /**
+     * Lectura del catálogo completo para la caché.
+     */
+    private List<ArticuloDTO> cargarTodos() {
+        return lectura.execute(estado -> convertirADTOs(articuloRepository.findAll()));
+    }
+
+    /**
+     * Lectura de un conjunto de artículos para la caché.
+     */
+    private List<ArticuloDTO> cargar(Collection<Integer> ids) {
+        return lectura.execute(estado -> convertirADTOs(articuloRepository.findAllById(ids)));
     }
 
     private ArticuloDTO convertirADTO(Articulo art) {
+        int stock = art.getFragmentosStock() > 0 ? stockFragmentadoService.stockTotal(art.getId()) : art.getStock();
         return new ArticuloDTO(art.getId(), art.getNombre(), art.getDescripcion(), 
-                               art.getPrecioActual(), art.getStock(), art.getActivo());
+                               art.getPrecioActual(), stock, art.getActivo(), art.getVersion());
+    }
+
+    /**
+     * Convierte un listado resolviendo en una única consulta el stock de los artículos fragmentados.
+     */
+    private List<ArticuloDTO> convertirADTOs(List<Articulo> articulos) {
+        Map<Integer, Integer> fragmentados = stockFragmentadoService.stockTotales(articulos.stream()
+                .filter(a -> a.getFragmentosStock() > 0)
+                .map(Articulo::getId)
+                .collect(Collectors.toList()));
+        return articulos.stream()
+                .map(a -> new ArticuloDTO(a.getId(), a.getNombre(), a.getDescripcion(), a.getPrecioActual(),
+                        fragmentados.getOrDefault(a.getId(), a.getStock()), a.getActivo(), a.getVersion()))
+                .collect(Collectors.toList());
     }
 }
\ No newline at end of file
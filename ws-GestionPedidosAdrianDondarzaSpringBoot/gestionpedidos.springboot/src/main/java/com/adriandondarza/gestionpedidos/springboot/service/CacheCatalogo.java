@@ -0,0 +1,328 @@
+package com.adriandondarza.gestionpedidos.springboot.service;
+
+import com.adriandondarza.gestionpedidos.springboot.dto.ArticuloDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Caché en memoria del catálogo de artículos, de lectura directa (read-through).
+ * <p>
+ * Mientras el catálogo completo cabe en {@code gestionpedidos.articulos.cache.max-entradas}
+ * entradas, la caché lo guarda entero y los listados se responden desde memoria sin
+ * ocupar ninguna conexión. Si el catálogo crece por encima del máximo, los listados
+ * vuelven a consultar la base de datos y la caché solo conserva los artículos consultados
+ * por identificador, expulsando los de uso menos reciente.
+ * </p>
+ * <p>
+ * La invalidación es por artículo: las operaciones que modifican un artículo o su stock
+ * llaman a {@link #invalidar(Collection)} y, tras la confirmación de su transacción, solo
+ * esos artículos se marcan como pendientes. El siguiente listado recarga únicamente los
+ * pendientes con una consulta {@code IN}. Cada invalidación avanza un contador de
+ * generación; una carga que empezó antes de la invalidación de un artículo no lo da por
+ * válido, de modo que un valor leído antes de un cambio nunca sustituye al cambio.
+ * </p>
+ * <p>
+ * Las entradas son copias privadas: se entregan siempre copias nuevas, ya que los DTO
+ * son mutables y la aplicación de escritorio los edita antes de guardarlos.
+ * </p>
+ *
+ * @author Adrian Dondarza
+ * @version 1.0
+ * @since 2026-10-16
+ */
+@Component
+public class CacheCatalogo {
+
+    @Value("${gestionpedidos.articulos.cache.max-entradas:10000}")
+    private int maxEntradas;
+
+    /**
+     * Artículos en caché, en orden de uso para la expulsión. Todo el estado se protege con
+     * el monitor de la propia caché.
+     */
+    private final LinkedHashMap<Integer, ArticuloDTO> entradas = new LinkedHashMap<>(256, 0.75f, true);
+
+    /**
+     * Artículos pendientes de recarga, con la generación de su última invalidación.
+     */
+    private final Map<Integer, Long> invalidados = new HashMap<>();
+
+    /**
+     * {@code true} si {@link #entradas} contiene todo el catálogo (con los pendientes
+     * todavía en su valor anterior).
+     */
+    private boolean completo;
+    private long generacion;
+    private int cargasEnCurso;
+
+    private final LongAdder aciertos = new LongAdder();
+    private final LongAdder fallos = new LongAdder();
+    private final LongAdder expulsiones = new LongAdder();
+
+    /**
+     * Lista el catálogo, cargándolo o recargando los artículos pendientes si es necesario.
+     *
+     * @param soloActivos Si solo se incluyen los artículos activos.
+     * @param cargarTodos Consulta del catálogo completo.
+     * @param cargar Consulta de un conjunto de artículos por identificador.
+     * @return Copias de los artículos, ordenadas por identificador.
+     */
+    public List<ArticuloDTO> listar(boolean soloActivos, Supplier<List<ArticuloDTO>> cargarTodos,
+                                    Function<Collection<Integer>, List<ArticuloDTO>> cargar) {
+        List<Integer> pendientes;
+        long lectura;
+        synchronized (this) {
+            if (completo && invalidados.isEmpty()) {
+                aciertos.increment();
+                return copiar(entradas.values(), soloActivos);
+            }
+            pendientes = completo ? new ArrayList<>(invalidados.keySet()) : null;
+            lectura = iniciarCarga();
+        }
+        fallos.increment();
+
+        List<ArticuloDTO> cargados = null;
+        try {
+            cargados = pendientes != null ? cargar.apply(pendientes) : cargarTodos.get();
+        } finally {
+            synchronized (this) {
+                finalizarCarga(cargados, pendientes, lectura);
+            }
+        }
+        if (pendientes == null) {
+            return copiar(cargados, soloActivos);
+        }
+        synchronized (this) {
+            if (completo) {
+                return copiar(entradas.values(), soloActivos);
+            }
+        }
+        // El catálogo ha dejado de caber durante la recarga: se consulta completo
+        return copiar(cargarTodos.get(), soloActivos);
+    }
+
+    /**
+     * Obtiene un artículo, cargándolo si no está en caché o está pendiente de recarga.
+     *
+     * @param id Identificador del artículo.
+     * @param cargar Consulta de un conjunto de artículos por identificador.
+     * @return Copia del artículo, o {@code null} si no existe.
+     */
+    public ArticuloDTO obtener(Integer id, Function<Collection<Integer>, List<ArticuloDTO>> cargar) {
+        long lectura;
+        synchronized (this) {
+            ArticuloDTO entrada = entradas.get(id);
+            if (entrada != null && !invalidados.containsKey(id)) {
+                aciertos.increment();
+                return copiar(entrada);
+            }
+            lectura = iniciarCarga();
+        }
+        fallos.increment();
+
+        List<ArticuloDTO> cargados = null;
+        try {
+            cargados = cargar.apply(List.of(id));
+        } finally {
+            synchronized (this) {
+                finalizarCarga(cargados, List.of(id), lectura);
+            }
+        }
+        return cargados.isEmpty() ? null : copiar(cargados.get(0));
+    }
+
+    /**
+     * Marca como pendientes de recarga los artículos indicados.
+     * <p>
+     * Dentro de una transacción, la invalidación se aplica tras su confirmación (y no se
+     * aplica si se deshace); fuera de ella, de inmediato.
+     * </p>
+     *
+     * @param ids Identificadores de los artículos modificados.
+     */
+    public void invalidar(Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        Set<Integer> afectados = new HashSet<>(ids);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    aplicarInvalidacion(afectados);
+                }
+            });
+        } else {
+            aplicarInvalidacion(afectados);
+        }
+    }
+
+    /**
+     * @return Lecturas resueltas desde memoria, sin acceso a base de datos.
+     */
+    public long getAciertos() {
+        return aciertos.sum();
+    }
+
+    /**
+     * @return Lecturas que tuvieron que consultar la base de datos.
+     */
+    public long getFallos() {
+        return fallos.sum();
+    }
+
+    /**
+     * @return Entradas expulsadas por superar el máximo de entradas.
+     */
+    public long getExpulsiones() {
+        return expulsiones.sum();
+    }
+
+    /**
+     * @return Artículos actualmente en caché.
+     */
+    public synchronized int getEntradas() {
+        return entradas.size();
+    }
+
+    private synchronized void aplicarInvalidacion(Set<Integer> ids) {
+        generacion++;
+        for (Integer id : ids) {
+            // Fuera del modo completo solo interesa recordar la invalidación mientras haya cargas en curso
+            if (completo || cargasEnCurso > 0) {
+                invalidados.put(id, generacion);
+            }
+            if (!completo) {
+                entradas.remove(id);
+            }
+        }
+    }
+
+    private long iniciarCarga() {
+        cargasEnCurso++;
+        return generacion;
+    }
+
+    /**
+     * Incorpora el resultado de una carga iniciada en la generación {@code lectura}.
+     *
+     * @param cargados Artículos leídos, o {@code null} si la carga falló.
+     * @param solicitados Identificadores consultados, o {@code null} si fue una carga completa.
+     */
+    private void finalizarCarga(List<ArticuloDTO> cargados, Collection<Integer> solicitados, long lectura) {
+        cargasEnCurso--;
+        if (cargados != null) {
+            if (solicitados == null) {
+                if (cargados.size() <= maxEntradas) {
+                    instalarCatalogo(cargados, lectura);
+                }
+            } else {
+                Map<Integer, ArticuloDTO> porId = indexar(cargados);
+                for (Integer id : solicitados) {
+                    ArticuloDTO articulo = porId.get(id);
+                    if (articulo != null) {
+                        instalar(articulo, lectura);
+                    } else if (!cambiadoTras(id, lectura)) {
+                        entradas.remove(id);
+                        invalidados.remove(id);
+                    }
+                }
+                limitar();
+            }
+        }
+        if (!completo && cargasEnCurso == 0) {
+            invalidados.clear();
+        }
+    }
+
+    private void instalarCatalogo(List<ArticuloDTO> cargados, long lectura) {
+        entradas.clear();
+        completo = true;
+        for (ArticuloDTO articulo : cargados) {
+            instalar(articulo, lectura);
+        }
+        // Solo siguen pendientes los artículos invalidados después de iniciar la carga
+        invalidados.values().removeIf(g -> g <= lectura);
+    }
+
+    /**
+     * Guarda un artículo leído en la generación {@code lectura}. Si el artículo cambió
+     * después, el valor no se da por válido: en modo completo sustituye al anterior pero
+     * sigue pendiente; en otro caso no se guarda.
+     */
+    private void instalar(ArticuloDTO articulo, long lectura) {
+        if (cambiadoTras(articulo.getId(), lectura)) {
+            if (completo) {
+                entradas.put(articulo.getId(), articulo);
+            }
+            return;
+        }
+        invalidados.remove(articulo.getId());
+        entradas.put(articulo.getId(), articulo);
+    }
+
+    private boolean cambiadoTras(Integer id, long lectura) {
+        Long invalidado = invalidados.get(id);
+        return invalidado != null && invalidado > lectura;
+    }
+
+    /**
+     * Expulsa las entradas de uso menos reciente que superen el máximo. Si el catálogo
+     * completo ya no cabe, la caché deja el modo completo y descarta los pendientes.
+     */
+    private void limitar() {
+        if (entradas.size() <= maxEntradas) {
+            return;
+        }
+        if (completo) {
+            completo = false;
+            entradas.keySet().removeAll(invalidados.keySet());
+        }
+        Iterator<Integer> antiguas = entradas.keySet().iterator();
+        while (entradas.size() > maxEntradas && antiguas.hasNext()) {
+            antiguas.next();
+            antiguas.remove();
+            expulsiones.increment();
+        }
+    }
+
+    private static Map<Integer, ArticuloDTO> indexar(List<ArticuloDTO> articulos) {
+        Map<Integer, ArticuloDTO> porId = new HashMap<>();
+        for (ArticuloDTO articulo : articulos) {
+            porId.put(articulo.getId(), articulo);
+        }
+        return porId;
+    }
+
+    private static List<ArticuloDTO> copiar(Collection<ArticuloDTO> articulos, boolean soloActivos) {
+        List<ArticuloDTO> copias = new ArrayList<>(articulos.size());
+        for (ArticuloDTO articulo : articulos) {
+            if (!soloActivos || Boolean.TRUE.equals(articulo.getActivo())) {
+                copias.add(copiar(articulo));
+            }
+        }
+        copias.sort(Comparator.comparing(ArticuloDTO::getId));
+        return copias;
+    }
+
+    private static ArticuloDTO copiar(ArticuloDTO a) {
+        return new ArticuloDTO(a.getId(), a.getNombre(), a.getDescripcion(), a.getPrecioActual(),
+                a.getStock(), a.getActivo(), a.getVersion());
+    }
+}
@@ -0,0 +1,277 @@
+package com.adriandondarza.gestionpedidos.springboot.service;
+
+import com.adriandondarza.gestionpedidos.springboot.dto.ClienteDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Caché cercana (near cache) de clientes, indexada por NIF/CIF y por email.
+ * <p>
+ * Guarda, hasta {@code gestionpedidos.clientes.cache.max-entradas} entradas y expulsando
+ * las de uso menos reciente, los clientes consultados o dados de alta recientemente.
+ * Resuelve sin acceso a base de datos la identificación del cliente en cada pedido, la
+ * consulta de su ficha y la parte positiva de las comprobaciones de duplicados (un NIF
+ * o email en caché ya existe; uno ausente se comprueba en base de datos). Solo se
+ * guardan clientes existentes: un NIF desconocido se consulta siempre.
+ * </p>
+ * <p>
+ * Las eliminaciones de este nodo se aplican tras la confirmación con {@link #invalidar(String)},
+ * y un contador de generación impide que una carga iniciada antes de una eliminación
+ * vuelva a guardar al cliente eliminado. Las eliminaciones hechas desde otra instancia
+ * no se notifican: cada entrada caduca a los {@code gestionpedidos.clientes.cache.ttl-ms}.
+ * </p>
+ *
+ * @author Adrian Dondarza
+ * @version 1.0
+ * @since 2026-10-16
+ */
+@Component
+public class CacheClientes {
+
+    @Value("${gestionpedidos.clientes.cache.max-entradas:10000}")
+    private int maxEntradas;
+
+    @Value("${gestionpedidos.clientes.cache.ttl-ms:300000}")
+    private long ttlMs;
+
+    /**
+     * Clientes en caché por NIF/CIF, en orden de uso para la expulsión. Todo el estado se
+     * protege con el monitor de la propia caché.
+     */
+    private final LinkedHashMap<String, Entrada> porNif = new LinkedHashMap<>(256, 0.75f, true);
+
+    /**
+     * Índice secundario de email a NIF/CIF de las entradas de {@link #porNif}.
+     */
+    private final Map<String, String> porEmail = new HashMap<>();
+
+    /**
+     * Avanza con cada eliminación aplicada.
+     */
+    private long generacion;
+
+    private final LongAdder aciertos = new LongAdder();
+    private final LongAdder fallos = new LongAdder();
+    private final LongAdder expulsiones = new LongAdder();
+
+    private record Entrada(ClienteDTO cliente, long caduca) {
+    }
+
+    /**
+     * Obtiene un cliente, cargándolo si no está en caché.
+     *
+     * @param nif NIF/CIF del cliente.
+     * @param cargar Consulta de un conjunto de clientes por NIF/CIF.
+     * @return Copia del cliente, o {@code null} si no existe.
+     */
+    public ClienteDTO obtener(String nif, Function<Collection<String>, List<ClienteDTO>> cargar) {
+        return obtenerVarios(List.of(nif), cargar).get(nif);
+    }
+
+    /**
+     * Obtiene un conjunto de clientes, cargando en una sola llamada los que no están en caché.
+     *
+     * @param nifs NIF/CIF de los clientes.
+     * @param cargar Consulta de un conjunto de clientes por NIF/CIF.
+     * @return Mapa de NIF/CIF a copia del cliente; los inexistentes no aparecen.
+     */
+    public Map<String, ClienteDTO> obtenerVarios(Collection<String> nifs,
+                                                 Function<Collection<String>, List<ClienteDTO>> cargar) {
+        Map<String, ClienteDTO> encontrados = new HashMap<>();
+        Set<String> pendientes = new LinkedHashSet<>();
+        long lectura;
+        synchronized (this) {
+            for (String nif : nifs) {
+                Entrada entrada = vigente(nif);
+                if (entrada != null) {
+                    encontrados.put(nif, copiar(entrada.cliente()));
+                } else {
+                    pendientes.add(nif);
+                }
+            }
+            lectura = generacion;
+        }
+        aciertos.add(encontrados.size());
+        if (pendientes.isEmpty()) {
+            return encontrados;
+        }
+        fallos.add(pendientes.size());
+
+        List<ClienteDTO> cargados = cargar.apply(pendientes);
+        synchronized (this) {
+            // Una eliminación aplicada durante la carga puede afectar a lo leído: no se guarda
+            if (lectura == generacion) {
+                cargados.forEach(this::guardar);
+            }
+        }
+        cargados.forEach(c -> encontrados.put(c.getNifCif(), copiar(c)));
+        return encontrados;
+    }
+
+    /**
+     * Indica si un NIF/CIF pertenece a un cliente en caché. Un resultado negativo no
+     * implica que el cliente no exista.
+     *
+     * @param nif NIF/CIF a comprobar.
+     * @return {@code true} si el cliente está en caché.
+     */
+    public boolean contieneNif(String nif) {
+        return contar(nif != null && consultarNif(nif));
+    }
+
+    /**
+     * Indica si un email pertenece a un cliente en caché. Un resultado negativo no
+     * implica que el email esté libre.
+     *
+     * @param email Email a comprobar.
+     * @return {@code true} si el email es de un cliente en caché.
+     */
+    public boolean contieneEmail(String email) {
+        return contar(email != null && consultarEmail(email));
+    }
+
+    /**
+     * Guarda un cliente recién dado de alta cuando la transacción actual se confirme.
+     *
+     * @param cliente Datos del cliente persistido.
+     */
+    public void recordar(ClienteDTO cliente) {
+        ClienteDTO copia = copiar(cliente);
+        trasConfirmar(() -> {
+            synchronized (this) {
+                guardar(copia);
+            }
+        });
+    }
+
+    /**
+     * Retira un cliente eliminado, tras la confirmación de la transacción actual (o de
+     * inmediato si no hay ninguna).
+     *
+     * @param nif NIF/CIF del cliente eliminado.
+     */
+    public void invalidar(String nif) {
+        trasConfirmar(() -> {
+            synchronized (this) {
+                generacion++;
+                quitar(nif);
+            }
+        });
+    }
+
+    /**
+     * @return Consultas resueltas desde memoria.
+     */
+    public long getAciertos() {
+        return aciertos.sum();
+    }
+
+    /**
+     * @return Consultas que tuvieron que acudir a la base de datos.
+     */
+    public long getFallos() {
+        return fallos.sum();
+    }
+
+    /**
+     * @return Proporción de aciertos sobre el total de consultas, entre 0 y 1.
+     */
+    public double getRatioAciertos() {
+        long a = aciertos.sum();
+        long total = a + fallos.sum();
+        return total == 0 ? 0 : (double) a / total;
+    }
+
+    /**
+     * @return Entradas expulsadas por superar el máximo de entradas.
+     */
+    public long getExpulsiones() {
+        return expulsiones.sum();
+    }
+
+    /**
+     * @return Clientes actualmente en caché.
+     */
+    public synchronized int getEntradas() {
+        return porNif.size();
+    }
+
+    private synchronized boolean consultarNif(String nif) {
+        return vigente(nif) != null;
+    }
+
+    private synchronized boolean consultarEmail(String email) {
+        String nif = porEmail.get(email);
+        return nif != null && vigente(nif) != null;
+    }
+
+    private boolean contar(boolean acierto) {
+        (acierto ? aciertos : fallos).increment();
+        return acierto;
+    }
+
+    /**
+     * Entrada no caducada de un NIF; las caducadas se retiran al encontrarlas.
+     */
+    private Entrada vigente(String nif) {
+        Entrada entrada = porNif.get(nif);
+        if (entrada != null && entrada.caduca() < System.nanoTime()) {
+            quitar(nif);
+            return null;
+        }
+        return entrada;
+    }
+
+    private void guardar(ClienteDTO cliente) {
+        quitar(cliente.getNifCif());
+        porNif.put(cliente.getNifCif(), new Entrada(cliente, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ttlMs)));
+        if (cliente.getEmail() != null) {
+            porEmail.put(cliente.getEmail(), cliente.getNifCif());
+        }
+        Iterator<Map.Entry<String, Entrada>> antiguas = porNif.entrySet().iterator();
+        while (porNif.size() > maxEntradas && antiguas.hasNext()) {
+            porEmail.remove(antiguas.next().getValue().cliente().getEmail());
+            antiguas.remove();
+            expulsiones.increment();
+        }
+    }
+
+    private void quitar(String nif) {
+        Entrada entrada = porNif.remove(nif);
+        if (entrada != null && entrada.cliente().getEmail() != null) {
+            porEmail.remove(entrada.cliente().getEmail());
+        }
+    }
+
+    private static void trasConfirmar(Runnable accion) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    accion.run();
+                }
+            });
+        } else {
+            accion.run();
+        }
+    }
+
+    private static ClienteDTO copiar(ClienteDTO c) {
+        return new ClienteDTO(c.getNifCif(), c.getNombre(), c.getEmail(), c.getFechaRegistro(),
+                c.getDireccionFiscal(), c.getTelefono());
+    }
+}
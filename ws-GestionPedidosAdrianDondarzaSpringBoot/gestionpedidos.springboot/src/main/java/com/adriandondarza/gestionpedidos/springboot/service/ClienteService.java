@@ -1,15 +1,28 @@
 package com.adriandondarza.gestionpedidos.springboot.service;
 
 import com.adriandondarza.gestionpedidos.springboot.dto.ClienteDTO;
+import com.adriandondarza.gestionpedidos.springboot.dto.PaginaDTO;
+import com.adriandondarza.gestionpedidos.springboot.dto.ResultadoValidacionDTO;
+import com.adriandondarza.gestionpedidos.springboot.dto.ResumenClienteDTO;
 import com.adriandondarza.gestionpedidos.springboot.model.Cliente;
 import com.adriandondarza.gestionpedidos.springboot.model.InfoFiscal;
+import com.adriandondarza.gestionpedidos.springboot.repository.ClienteEliminadoRepository;
 import com.adriandondarza.gestionpedidos.springboot.repository.ClienteRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Servicio encargado de la lógica de negocio relativa a la gestión de clientes.
@@ -26,9 +39,37 @@ import java.util.stream.Collectors;
 @Service
 public class ClienteService {
 
+    /**
+     * Tamaño máximo de página admitido en el directorio de clientes.
+     */
+    public static final int TAMANO_MAXIMO_PAGINA = 500;
+
     @Autowired
     private ClienteRepository clienteRepository;
 
+    @Autowired
+    private ClienteEliminadoRepository clienteEliminadoRepository;
+
+    @Autowired
+    private CacheClientes cacheClientes;
+
+    @Autowired
+    private ValidadorDatos validadorDatos;
+
+    @Autowired
+    private ResumenClienteService resumenClienteService;
+
+    @Autowired
+    private TraductorRestricciones traductorRestricciones;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Máximo de identificadores por consulta {@code IN} (límite de Oracle).
+     */
+    private static final int MAX_IDS_CONSULTA = 1000;
+
     /**
      * Registra un nuevo cliente en el sistema tras validar sus credenciales únicas.
      * <p>
@@ -36,21 +77,31 @@ public class ClienteService {
      * {@link InfoFiscal}, estableciendo el vínculo bidireccional necesario para 
      * la persistencia en cascada mediante Primary Key compartida.
      * </p>
+     * <p>
+     * Los duplicados no se consultan antes de insertar: los detectan las restricciones 
+     * únicas de NIF, email y teléfono, que {@link TraductorRestricciones} convierte en 
+     * los mismos errores de validación.
+     * </p>
      *
      * @param dto Datos del cliente y su información fiscal "aplanados" en un DTO.
      * @return {@link ClienteDTO} con los datos finalmente persistidos.
-     * @throws RuntimeException Si el NIF o el Email ya se encuentran registrados.
+     * @throws RuntimeException Si algún dato no tiene un formato válido, o si el NIF, el 
+     * Email o el teléfono ya se encuentran registrados.
      */
     @Transactional
     public ClienteDTO crearCliente(ClienteDTO dto) {
-        // 1. VALIDACIÓN DE NIF
-        if (clienteRepository.existsById(dto.getNifCif())) {
-            throw new RuntimeException("Validación: El cliente con NIF " + dto.getNifCif() + " ya existe.");
-        }
+        // 0. NORMALIZACIÓN Y VALIDACIÓN DE FORMATO (el NIF se valida, compara y guarda en mayúsculas)
+        dto = normalizar(dto);
+        validadorDatos.exigir(validadorDatos.validar(dto));
 
-        // 2. VALIDACIÓN DE EMAIL
-        if (clienteRepository.existsByEmail(dto.getEmail())) {
-            throw new RuntimeException("Validación: El correo " + dto.getEmail() + " ya pertenece a otro cliente.");
+        // 1. DUPLICADOS YA CONOCIDOS POR LA CACHÉ DE CLIENTES (sin acceso a base de datos)
+        String nifDuplicado = "Validación: El cliente con NIF " + dto.getNifCif() + " ya existe.";
+        String emailDuplicado = "Validación: El correo " + dto.getEmail() + " ya pertenece a otro cliente.";
+        if (cacheClientes.contieneNif(dto.getNifCif())) {
+            throw new RuntimeException(nifDuplicado);
+        }
+        if (cacheClientes.contieneEmail(dto.getEmail())) {
+            throw new RuntimeException(emailDuplicado);
         }
 
         Cliente cliente = new Cliente();
@@ -68,34 +119,96 @@ public class ClienteService {
         fiscal.setCliente(cliente);
         cliente.setInformacionFiscal(fiscal);
 
-        Cliente guardado = clienteRepository.save(cliente);
-        return convertirADTO(guardado);
+        // 2. INSERCIÓN DIRECTA: persist (no merge), para que un NIF existente viole la clave 
+        // primaria en lugar de sobrescribir el registro; la fiscal arrastra al cliente en cascada
+        try {
+            entityManager.persist(fiscal);
+            clienteRepository.flush();
+        } catch (DataIntegrityViolationException e) {
+            throw traductorRestricciones.traducir(e, Map.of(
+                    TraductorRestricciones.PK_INFORMACION_FISCAL, nifDuplicado,
+                    TraductorRestricciones.PK_CLIENTES, nifDuplicado,
+                    TraductorRestricciones.UK_CLIENTE_EMAIL, emailDuplicado,
+                    TraductorRestricciones.UK_FISCAL_TELEFONO,
+                    "Validación: El teléfono " + dto.getTelefono() + " ya pertenece a otro cliente."));
+        }
+        resumenClienteService.crear(cliente.getNifCif());
+        ClienteDTO creado = convertirADTO(cliente);
+        cacheClientes.recordar(creado);
+        return creado;
+    }
+
+    /**
+     * Valida el formato de un fichero de clientes sin darlos de alta.
+     *
+     * @param registros Registros en el orden del fichero.
+     * @return Un {@link ResultadoValidacionDTO} por registro, en el mismo orden.
+     */
+    public List<ResultadoValidacionDTO> validarClientes(List<ClienteDTO> registros) {
+        return validadorDatos.validarClientes(registros);
     }
 
     /**
      * Recupera el listado completo de clientes registrados.
+     * <p>
+     * Se resuelve con una única consulta que une la información fiscal. Para listados 
+     * grandes es preferible {@link #obtenerPagina(String, String, String, int)}.
+     * </p>
      *
-     * @return {@link List} de {@link ClienteDTO}.
+     * @return {@link List} de {@link ClienteDTO} ordenada por NIF/CIF.
      */
     @Transactional(readOnly = true)
     public List<ClienteDTO> obtenerTodos() {
-        return clienteRepository.findAll().stream()
-                .map(this::convertirADTO)
-                .collect(Collectors.toList());
+        return clienteRepository.listarDTOs();
+    }
+
+    /**
+     * Recupera una página del directorio de clientes, por orden de NIF/CIF.
+     * <p>
+     * Cada página es una única consulta que proyecta directamente en {@link ClienteDTO} 
+     * el cliente y su información fiscal. Paginación por clave: la página siguiente se 
+     * pide con el NIF del último cliente recibido, por lo que el coste no crece al 
+     * avanzar en el listado. Los filtros de nombre (sin distinguir mayúsculas) y de 
+     * email son de prefijo y pueden combinarse.
+     * </p>
+     *
+     * @param nif NIF/CIF del último cliente de la página anterior; {@code null} para la primera página.
+     * @param prefijoNombre Comienzo del nombre, o {@code null} para no filtrar.
+     * @param prefijoEmail Comienzo del email, o {@code null} para no filtrar.
+     * @param tamano Número de clientes por página (entre 1 y {@value #TAMANO_MAXIMO_PAGINA}).
+     * @return {@link PaginaDTO} con los clientes de la página.
+     * @throws RuntimeException Si el tamaño de página no es válido.
+     */
+    @Transactional(readOnly = true)
+    public PaginaDTO<ClienteDTO> obtenerPagina(String nif, String prefijoNombre, String prefijoEmail, int tamano) {
+        if (tamano < 1 || tamano > TAMANO_MAXIMO_PAGINA) {
+            throw new RuntimeException("El tamaño de página debe estar entre 1 y " + TAMANO_MAXIMO_PAGINA);
+        }
+        // Oracle trata la cadena vacía como NULL: la primera página parte de un espacio, menor que cualquier NIF
+        List<ClienteDTO> leidos = clienteRepository.buscarPagina(nif != null ? nif : " ",
+                patronPrefijo(prefijoNombre != null ? prefijoNombre.toUpperCase(Locale.ROOT) : null),
+                patronPrefijo(prefijoEmail != null ? prefijoEmail.toLowerCase(Locale.ROOT) : null),
+                PageRequest.of(0, tamano + 1));
+        return PaginaDTO.de(leidos, tamano);
     }
 
     /**
      * Busca un cliente por su identificador fiscal.
+     * <p>
+     * Se sirve desde {@link CacheClientes}; si no está en caché, se carga con una única 
+     * consulta que une la información fiscal.
+     * </p>
      *
      * @param nif El NIF/CIF del cliente.
      * @return {@link ClienteDTO} con la información del cliente.
      * @throws RuntimeException Si el cliente no existe.
      */
-    @Transactional(readOnly = true)
     public ClienteDTO obtenerPorNif(String nif) {
-        Cliente c = clienteRepository.findById(nif)
-                .orElseThrow(() -> new RuntimeException("Consulta: Cliente no encontrado con NIF: " + nif));
-        return convertirADTO(c);
+        ClienteDTO c = cacheClientes.obtener(nif, clienteRepository::buscarDTOs);
+        if (c == null) {
+            throw new RuntimeException("Consulta: Cliente no encontrado con NIF: " + nif);
+        }
+        return c;
     }
 
     /**
@@ -115,6 +228,94 @@ public class ClienteService {
             throw new RuntimeException("Error: El cliente que intenta borrar no existe.");
         }
         clienteRepository.deleteById(nif);
+        resumenClienteService.olvidar(nif);
+        cacheClientes.invalidar(nif);
+    }
+
+    /**
+     * Recupera los clientes dados de alta o modificados (en sus datos personales o 
+     * fiscales) después de una versión de cambio.
+     *
+     * @param version Versión de cambio ya sincronizada.
+     * @return {@link List} de {@link ClienteDTO} cambiados, ordenados por NIF/CIF.
+     */
+    @Transactional(readOnly = true)
+    public List<ClienteDTO> obtenerCambiosDesde(long version) {
+        List<String> nifs = clienteRepository.buscarNifsCambiados(version);
+        List<ClienteDTO> cambiados = new ArrayList<>(nifs.size());
+        for (int desde = 0; desde < nifs.size(); desde += MAX_IDS_CONSULTA) {
+            List<String> bloque = nifs.subList(desde, Math.min(desde + MAX_IDS_CONSULTA, nifs.size()));
+            clienteRepository.buscarConInfoFiscal(bloque).forEach(c -> cambiados.add(convertirADTO(c)));
+        }
+        cambiados.sort(Comparator.comparing(ClienteDTO::getNifCif));
+        return cambiados;
+    }
+
+    /**
+     * Recupera los NIF/CIF de los clientes eliminados después de una versión de cambio.
+     * <p>
+     * Un NIF que se eliminó y se volvió a registrar aparece aquí y también entre los 
+     * cambiados; quien sincroniza debe aplicar primero las eliminaciones.
+     * </p>
+     *
+     * @param version Versión de cambio ya sincronizada.
+     * @return NIF/CIF eliminados, sin repetir, en orden de eliminación.
+     */
+    @Transactional(readOnly = true)
+    public List<String> obtenerEliminadosDesde(long version) {
+        Set<String> nifs = new LinkedHashSet<>();
+        for (Object[] fila : clienteEliminadoRepository.buscarDesde(version)) {
+            nifs.add((String) fila[0]);
+        }
+        return new ArrayList<>(nifs);
+    }
+
+    /**
+     * Obtiene el resumen de compras de un cliente: número de pedidos, gasto acumulado 
+     * y fecha de la última compra (sin contar los pedidos anulados).
+     * <p>
+     * Se sirve desde una vista en memoria mantenida con cada compra, sin recorrer 
+     * el histórico de pedidos del cliente.
+     * </p>
+     *
+     * @param nif El NIF/CIF del cliente.
+     * @return {@link ResumenClienteDTO} del cliente.
+     */
+    public ResumenClienteDTO obtenerResumen(String nif) {
+        return resumenClienteService.obtener(nif);
+    }
+
+    /**
+     * Recalcula desde las compras los resúmenes de todos los clientes (recuperación).
+     *
+     * @return Número de clientes recalculados.
+     */
+    public int reconstruirResumenes() {
+        return resumenClienteService.reconstruir();
+    }
+
+    /**
+     * Copia del cliente con el NIF/CIF en mayúsculas, la forma en que se valida, se 
+     * compara y se almacena, igual que en las altas de {@link InfoFiscalService}.
+     */
+    private static ClienteDTO normalizar(ClienteDTO dto) {
+        if (dto == null) {
+            return null;
+        }
+        String nif = dto.getNifCif() != null ? dto.getNifCif().toUpperCase(Locale.ROOT) : null;
+        return new ClienteDTO(nif, dto.getNombre(), dto.getEmail(), dto.getFechaRegistro(),
+                dto.getDireccionFiscal(), dto.getTelefono());
+    }
+
+    /**
+     * Patrón {@code LIKE} de prefijo con los comodines del texto escapados; {@code %} si 
+     * no hay texto.
+     */
+    private static String patronPrefijo(String texto) {
+        if (texto == null || texto.isBlank()) {
+            return "%";
+        }
+        return texto.trim().replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
     }
 
     /**
@@ -4,13 +4,45 @@ import com.adriandondarza.gestionpedidos.springboot.dto.*;
 import com.adriandondarza.gestionpedidos.springboot.model.*;
 import com.adriandondarza.gestionpedidos.springboot.repository.*;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.math.BigDecimal;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * Servicio de orquestación para la gestión de pedidos y transacciones comerciales.
@@ -23,6 +55,16 @@ import java.util.stream.Collectors;
  * <li>Gestión de estados del ciclo de vida del pedido.</li>
  * </ul>
  * </p>
+ * <p>
+ * Las consultas de lectura abarcan de forma transparente la tabla principal y el archivo 
+ * de compras cerradas ({@link ArchivoComprasService}). El archivado traslada cada bloque 
+ * en una sola transacción, así que leyendo primero la tabla principal y después el archivo 
+ * ninguna compra se pierde; la que se archive entre ambas lecturas aparece en las dos y 
+ * se descarta al combinarlas. Así los listados, las páginas y la exportación nocturna se 
+ * ejecutan con el aislamiento por defecto, y sus cursores largos no retienen una 
+ * instantánea antigua. Solo el detalle, cuyas cabeceras y líneas se leen en consultas 
+ * distintas que deben coincidir, usa aislamiento serializable.
+ * </p>
  *
  * @author Adrian Dondarza
  * @version 1.0
@@ -32,19 +74,63 @@ import java.util.stream.Collectors;
 public class CompraService {
 
     @Autowired private CompraRepository compraRepository;
+    @Autowired private ArticuloCompraRepository articuloCompraRepository;
+    @Autowired private CompraArchivadaRepository compraArchivadaRepository;
+    @Autowired private ArticuloCompraArchivadaRepository articuloCompraArchivadaRepository;
     @Autowired private ClienteRepository clienteRepository;
     @Autowired private ArticuloRepository articuloRepository;
+    @Autowired private StockFragmentadoService stockFragmentadoService;
+    @Autowired private TransactionTemplate transactionTemplate;
+    @Autowired private IndiceIdempotenciaCompras indiceIdempotencia;
+    @Autowired private ResumenClienteService resumenClienteService;
+    @Autowired private CacheCatalogo cacheCatalogo;
+    @Autowired private CacheClientes cacheClientes;
+
+    @Value("${gestionpedidos.compras.lote.tamano:500}")
+    private int tamanoLote;
+
+    /**
+     * Tamaño máximo de página admitido en los listados paginados.
+     */
+    public static final int TAMANO_MAXIMO_PAGINA = 500;
+
+    /**
+     * Tamaño de los búferes de escritura de las exportaciones.
+     */
+    private static final int BUFER_EXPORTACION = 64 * 1024;
+
+    /**
+     * Máximo de identificadores por consulta {@code IN} (límite de expresiones de Oracle).
+     */
+    private static final int MAX_IDS_CONSULTA = 1000;
+
+    /**
+     * Orden de los listados: más recientes primero, con el identificador como desempate 
+     * (el mismo que {@link CompraRepository#ORDEN_RECIENTES}).
+     */
+    private static final Comparator<CompraRespuestaDTO> RECIENTES_PRIMERO = Comparator
+            .comparing(CompraRespuestaDTO::getFechaRealizada)
+            .thenComparing(CompraRespuestaDTO::getId)
+            .reversed();
+
+    private static final String CABECERA_CSV =
+            "id,fecha_realizada,estado,direccion_envio,precio_total,cliente_nombre\r\n";
 
     /**
      * Procesa y registra una nueva orden de compra de forma atómica.
      * <p>
      * El método realiza las siguientes operaciones bajo una única transacción:
-     * 1. Verifica la existencia del cliente.
-     * 2. Valida la disponibilidad de stock para cada artículo solicitado.
-     * 3. Descuenta las unidades del inventario.
+     * 1. Verifica la existencia del cliente (desde {@link CacheClientes} si está en caché).
+     * 2. Agrupa las líneas repetidas y resuelve todos los artículos en una única consulta.
+     * 3. Descuenta las unidades del inventario con un {@code UPDATE} condicional por artículo,
+     *    que rechaza la línea si no hay stock suficiente sin cargar ni modificar la entidad.
      * 4. Calcula el subtotal por línea usando el precio actual (que quedará congelado).
      * 5. Persiste la cabecera y el detalle de la compra mediante cascada.
      * </p>
+     * <p>
+     * Si el pedido trae clave de idempotencia y esa clave ya se registró, se devuelve la 
+     * compra original sin volver a descontar stock.
+     * </p>
      *
      * @param dto Objeto con la información del cliente, dirección y artículos.
      * @return {@link CompraRespuestaDTO} con el resumen del pedido procesado.
@@ -52,92 +138,880 @@ public class CompraService {
      */
     @Transactional
     public CompraRespuestaDTO procesarCompra(CompraRegistroDTO dto) {
-        // 1. Validar Cliente
-        Cliente cliente = clienteRepository.findById(dto.getClienteNif())
-                .orElseThrow(() -> new RuntimeException("Cliente no identificado"));
+        return registrarCompra(dto);
+    }
 
-        // 2. Crear cabecera de Compra
-        Compra compra = new Compra();
-        compra.setCliente(cliente);
-        compra.setFechaRealizada(LocalDateTime.now());
-        compra.setDireccionEnvio(dto.getDireccionEnvio());
-        compra.setEstado(EstadoCompra.PENDIENTE);
+    /**
+     * Registra una compra dentro de la transacción activa del llamante.
+     * <p>
+     * Contiene la lógica de {@link #procesarCompra} sin demarcación transaccional propia, 
+     * para que los procesos que agrupan varios pedidos en una misma transacción 
+     * (confirmación agrupada) puedan aislar cada pedido con su propio punto de guardado.
+     * </p>
+     *
+     * @param dto Objeto con la información del cliente, dirección y artículos.
+     * @return {@link CompraRespuestaDTO} con el resumen del pedido procesado.
+     * @throws RuntimeException Si el cliente no existe, un artículo no se encuentra o no hay stock suficiente.
+     */
+    public CompraRespuestaDTO registrarCompra(CompraRegistroDTO dto) {
+        // 0. Reenvío de un pedido ya registrado: se devuelve la compra original
+        String clave = dto.getClaveIdempotencia();
+        if (clave != null) {
+            if (clave.isBlank() || clave.length() > 64) {
+                throw new RuntimeException("Clave de idempotencia no válida");
+            }
+            CompraRespuestaDTO original = resolverClaves(Set.of(clave)).get(clave);
+            if (original != null) {
+                return original;
+            }
+        }
 
-        BigDecimal totalCompra = BigDecimal.ZERO;
+        // 1. Validar Cliente: la caché evita la consulta; la compra solo necesita una referencia
+        ClienteDTO datosCliente = dto.getClienteNif() != null
+                ? cacheClientes.obtener(dto.getClienteNif(), clienteRepository::buscarDTOs) : null;
+        if (datosCliente == null) {
+            throw new RuntimeException("Cliente no identificado");
+        }
+        Cliente cliente = clienteRepository.getReferenceById(datosCliente.getNifCif());
 
-        // 3. Procesar líneas (ArticuloCompra)
-        for (LineaCompraDTO lineaDto : dto.getLineas()) {
-            Articulo articulo = articuloRepository.findById(lineaDto.getArticuloId())
-                    .orElseThrow(() -> new RuntimeException("Articulo ID " + lineaDto.getArticuloId() + " no existe"));
+        // 2. Resolver todas las líneas contra el catálogo en una única consulta
+        Map<Integer, Integer> unidadesPorArticulo = agruparLineas(dto.getLineas());
+        Map<Integer, Articulo> articulos = resolverArticulos(unidadesPorArticulo.keySet());
 
-            // Validación de integridad de stock
-            if (articulo.getStock() < lineaDto.getCantidad()) {
+        // 3. Descuento atómico: la validación de stock la resuelve la propia sentencia UPDATE
+        for (Map.Entry<Integer, Integer> linea : unidadesPorArticulo.entrySet()) {
+            Articulo articulo = articulos.get(linea.getKey());
+            if (!descontarStock(articulo, linea.getValue())) {
                 throw new RuntimeException("Stock insuficiente para: " + articulo.getNombre());
             }
+        }
+        cacheCatalogo.invalidar(unidadesPorArticulo.keySet());
 
-            // Instanciamos la entidad de asociación con atributos adicionales
-            ArticuloCompra detalle = new ArticuloCompra();
-            detalle.setCompra(compra);
-            detalle.setArticulo(articulo);
-            detalle.setUnidades(lineaDto.getCantidad());
-            detalle.setPrecioCompra(articulo.getPrecioActual()); // Captura del precio histórico
+        // 4. Crear cabecera y líneas con los precios congelados
+        Compra compra = construirCompra(cliente, dto.getDireccionEnvio(), unidadesPorArticulo, articulos);
 
-            // Actualizamos stock del artículo (Persistencia en caliente)
-            articulo.setStock(articulo.getStock() - lineaDto.getCantidad());
-            articuloRepository.save(articulo);
+        // El guardado de la compra persiste también las líneas debido a CascadeType.ALL
+        Compra guardada = compraRepository.saveAndFlush(compra);
+        CompraRespuestaDTO respuesta = convertirADTO(guardada, datosCliente.getNombre());
 
-            // Vinculamos la línea con la cabecera
-            compra.getLineasArticulos().add(detalle);
-            
-            // Cálculo financiero de la línea
-            BigDecimal subtotal = articulo.getPrecioActual().multiply(new BigDecimal(lineaDto.getCantidad()));
-            totalCompra = totalCompra.add(subtotal);
+        if (clave != null) {
+            indiceIdempotencia.registrar(Map.of(clave, respuesta));
         }
 
-        compra.setPrecioTotal(totalCompra);
-        
-        // El guardado de la compra persiste también las líneas debido a CascadeType.ALL
-        Compra guardada = compraRepository.save(compra);
+        // 5. Resumen del cliente: último paso, cuando la compra ya está volcada sin errores
+        resumenClienteService.sumarCompras(cliente.getNifCif(), 1, guardada.getPrecioTotal(), guardada.getFechaRealizada());
+        return respuesta;
+    }
 
-        return convertirADTO(guardada);
+    /**
+     * Procesa un fichero de pedidos en bloque, confirmando por tramos.
+     * <p>
+     * Cada tramo de {@code gestionpedidos.compras.lote.tamano} pedidos se resuelve en una 
+     * única transacción:
+     * <ul>
+     * <li>Clientes (los que no están en {@link CacheClientes}) y artículos de todo el tramo se 
+     * cargan con consultas {@code IN}.</li>
+     * <li>El stock se valida en memoria pedido a pedido; los pedidos que no caben se 
+     * rechazan individualmente sin afectar al resto.</li>
+     * <li>El stock de los pedidos aceptados se descuenta con un único {@code UPDATE} 
+     * condicional por artículo.</li>
+     * <li>Cabeceras y líneas se insertan mediante lotes JDBC.</li>
+     * <li>Los pedidos cuya clave de idempotencia ya estaba registrada, o que repiten la 
+     * clave de un pedido anterior del mismo fichero, reciben el resultado original.</li>
+     * </ul>
+     * Si el descuento agregado falla porque otra transacción consumió stock entre la 
+     * lectura y la escritura, el tramo se deshace y sus pedidos se procesan uno a uno.
+     * </p>
+     *
+     * @param pedidos Pedidos a registrar, en el orden del fichero de origen.
+     * @return Un {@link ResultadoCompraDTO} por pedido, en el mismo orden de entrada.
+     */
+    public List<ResultadoCompraDTO> procesarCompras(List<CompraRegistroDTO> pedidos) {
+        List<ResultadoCompraDTO> resultados = new ArrayList<>(pedidos.size());
+        for (int desde = 0; desde < pedidos.size(); desde += tamanoLote) {
+            int hasta = Math.min(desde + tamanoLote, pedidos.size());
+            resultados.addAll(procesarTramo(pedidos, desde, hasta));
+        }
+        return resultados;
     }
 
     /**
      * Recupera el histórico global de todas las compras realizadas en el sistema.
+     * <p>
+     * Los pedidos se proyectan directamente al DTO, con el nombre del cliente resuelto 
+     * en la misma consulta. Para tablas grandes debe usarse {@link #obtenerPagina}.
+     * </p>
      *
-     * @return {@link List} de {@link CompraRespuestaDTO}.
+     * @return {@link List} de {@link CompraRespuestaDTO}, más recientes primero.
      */
     @Transactional(readOnly = true)
     public List<CompraRespuestaDTO> obtenerTodas() {
-        return compraRepository.findAll().stream().map(this::convertirADTO).collect(Collectors.toList());
+        return fusionar(compraRepository.buscarRecientes(Pageable.unpaged()),
+                compraArchivadaRepository.buscarRecientes(Pageable.unpaged()), Integer.MAX_VALUE);
     }
 
     /**
      * Filtra y recupera los pedidos realizados por un cliente específico.
      *
      * @param nif Identificador fiscal del cliente.
-     * @return {@link List} de compras asociadas al cliente.
+     * @return {@link List} de compras asociadas al cliente, más recientes primero.
      */
     @Transactional(readOnly = true)
     public List<CompraRespuestaDTO> obtenerComprasPorCliente(String nif) {
-        return compraRepository.findByClienteNifCif(nif).stream()
-                .map(this::convertirADTO)
-                .collect(Collectors.toList());
+        return fusionar(compraRepository.buscarRecientesPorCliente(nif, Pageable.unpaged()),
+                compraArchivadaRepository.buscarRecientesPorCliente(nif, Pageable.unpaged()), Integer.MAX_VALUE);
+    }
+
+    /**
+     * Recupera el detalle completo de una compra: cabecera y líneas.
+     *
+     * @param id Identificador de la compra.
+     * @return {@link CompraDetalleDTO} con la cabecera y sus líneas.
+     * @throws RuntimeException Si la compra no existe.
+     * @see #obtenerDetalles
+     */
+    @Transactional(readOnly = true, isolation = Isolation.SERIALIZABLE)
+    public CompraDetalleDTO obtenerDetalle(Integer id) {
+        List<CompraDetalleDTO> detalles = obtenerDetalles(List.of(id));
+        if (detalles.isEmpty()) {
+            throw new RuntimeException("Compra no encontrada");
+        }
+        return detalles.get(0);
+    }
+
+    /**
+     * Recupera el detalle completo (cabecera y líneas) de varias compras.
+     * <p>
+     * Cada bloque de hasta {@value #MAX_IDS_CONSULTA} compras se resuelve con exactamente 
+     * dos consultas, sea cual sea el número de líneas: una proyección de las cabeceras con 
+     * el nombre del cliente y otra de todas las líneas del bloque con el nombre del 
+     * artículo. No se recorre {@code Compra.lineasArticulos} ni se inicializa ningún proxy. 
+     * Las compras que no están en la tabla principal se buscan, con otras dos consultas, 
+     * en el archivo.
+     * </p>
+     *
+     * @param ids Identificadores de las compras.
+     * @return Detalles en el orden de entrada, sin repetidos; las compras inexistentes se omiten.
+     */
+    @Transactional(readOnly = true, isolation = Isolation.SERIALIZABLE)
+    public List<CompraDetalleDTO> obtenerDetalles(Collection<Integer> ids) {
+        List<Integer> distintos = ids.stream().filter(Objects::nonNull).distinct().collect(Collectors.toList());
+        Map<Integer, CompraDetalleDTO> detalles = new HashMap<>();
+        for (int desde = 0; desde < distintos.size(); desde += MAX_IDS_CONSULTA) {
+            List<Integer> bloque = distintos.subList(desde, Math.min(desde + MAX_IDS_CONSULTA, distintos.size()));
+            anadirDetalles(detalles, compraRepository.buscarResumenes(bloque), articuloCompraRepository.buscarLineas(bloque));
+            List<Integer> archivadas = bloque.stream().filter(id -> !detalles.containsKey(id)).collect(Collectors.toList());
+            if (!archivadas.isEmpty()) {
+                anadirDetalles(detalles, compraArchivadaRepository.buscarResumenes(archivadas),
+                        articuloCompraArchivadaRepository.buscarLineas(archivadas));
+            }
+        }
+        return distintos.stream().map(detalles::get).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    /**
+     * Recupera una página del histórico global de compras, más recientes primero.
+     * <p>
+     * Paginación por clave (keyset) sobre {@code (fecha_realizada, id)}: la página siguiente 
+     * se pide con la fecha y el identificador del último pedido recibido, y la consulta 
+     * arranca directamente en esa posición del índice. El coste de cada página depende 
+     * solo de su tamaño, no de su posición ni del volumen de la tabla, a diferencia de 
+     * un {@code OFFSET} que recorre y descarta todas las filas anteriores. La misma 
+     * consulta se lanza sobre el archivo y ambas páginas se combinan en memoria.
+     * </p>
+     *
+     * @param fecha Fecha del último pedido de la página anterior; {@code null} para la primera página.
+     * @param id Identificador del último pedido de la página anterior; {@code null} para la primera página.
+     * @param tamano Número de pedidos por página (entre 1 y {@value #TAMANO_MAXIMO_PAGINA}).
+     * @return {@link PaginaDTO} con los pedidos de la página.
+     * @throws RuntimeException Si el tamaño o la posición de la página no son válidos.
+     */
+    @Transactional(readOnly = true)
+    public PaginaDTO<CompraRespuestaDTO> obtenerPagina(LocalDateTime fecha, Integer id, int tamano) {
+        Pageable limite = limitePagina(fecha, id, tamano);
+        List<CompraRespuestaDTO> principal = fecha == null
+                ? compraRepository.buscarRecientes(limite)
+                : compraRepository.buscarRecientesTras(fecha, id, limite);
+        List<CompraRespuestaDTO> archivo = fecha == null
+                ? compraArchivadaRepository.buscarRecientes(limite)
+                : compraArchivadaRepository.buscarRecientesTras(fecha, id, limite);
+        return PaginaDTO.de(fusionar(principal, archivo, limite.getPageSize()), tamano);
+    }
+
+    /**
+     * Recupera una página de las compras de un cliente, más recientes primero.
+     *
+     * @param nif Identificador fiscal del cliente.
+     * @param fecha Fecha del último pedido de la página anterior; {@code null} para la primera página.
+     * @param id Identificador del último pedido de la página anterior; {@code null} para la primera página.
+     * @param tamano Número de pedidos por página (entre 1 y {@value #TAMANO_MAXIMO_PAGINA}).
+     * @return {@link PaginaDTO} con los pedidos de la página.
+     * @throws RuntimeException Si el tamaño o la posición de la página no son válidos.
+     * @see #obtenerPagina
+     */
+    @Transactional(readOnly = true)
+    public PaginaDTO<CompraRespuestaDTO> obtenerPaginaPorCliente(String nif, LocalDateTime fecha, Integer id,
+                                                                 int tamano) {
+        Pageable limite = limitePagina(fecha, id, tamano);
+        List<CompraRespuestaDTO> principal = fecha == null
+                ? compraRepository.buscarRecientesPorCliente(nif, limite)
+                : compraRepository.buscarRecientesPorClienteTras(nif, fecha, id, limite);
+        List<CompraRespuestaDTO> archivo = fecha == null
+                ? compraArchivadaRepository.buscarRecientesPorCliente(nif, limite)
+                : compraArchivadaRepository.buscarRecientesPorClienteTras(nif, fecha, id, limite);
+        return PaginaDTO.de(fusionar(principal, archivo, limite.getPageSize()), tamano);
+    }
+
+    /**
+     * Exporta el histórico completo de compras a un fichero NDJSON o CSV.
+     * <p>
+     * Pensado para la extracción nocturna de contabilidad sobre tablas de millones de filas:
+     * <ul>
+     * <li>Las compras se leen con un cursor de solo avance, en bloques de 1000 filas por 
+     * viaje de red, y se proyectan a DTO, por lo que el contexto de persistencia no crece.</li>
+     * <li>Cada fila se serializa y se escribe en cuanto se lee; en memoria solo hay una fila 
+     * y los búferes de escritura, sea cual sea el volumen exportado.</li>
+     * <li>La salida pasa por búferes de 64 KB hacia un {@link FileChannel} y, opcionalmente, 
+     * se comprime con gzip.</li>
+     * <li>Se escribe primero en un fichero temporal que sustituye al destino al terminar, 
+     * de modo que un proceso lector nunca ve una exportación a medias.</li>
+     * <li>La tabla principal y el archivo se recorren con un cursor cada uno y se 
+     * intercalan por fecha, de modo que la salida sigue en orden cronológico.</li>
+     * </ul>
+     * </p>
+     *
+     * @param destino Fichero de salida; se sobrescribe si existe.
+     * @param formato Formato de las filas.
+     * @param comprimir {@code true} para comprimir la salida con gzip.
+     * @return {@link ResultadoExportacionDTO} con el volumen exportado y el rendimiento obtenido.
+     * @throws RuntimeException Si se produce un error de escritura.
+     */
+    @Transactional(readOnly = true)
+    public ResultadoExportacionDTO exportarCompras(Path destino, FormatoExportacion formato, boolean comprimir) {
+        long inicio = System.nanoTime();
+        Path temporal = destino.resolveSibling(destino.getFileName() + ".tmp");
+        long filas = 0;
+        try {
+            try (FileChannel canal = FileChannel.open(temporal, StandardOpenOption.CREATE,
+                         StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+                 Writer escritor = abrirEscritor(canal, comprimir);
+                 Stream<CompraRespuestaDTO> principal = compraRepository.recorrerTodas();
+                 Stream<CompraRespuestaDTO> archivo = compraArchivadaRepository.recorrerTodas()) {
+                if (formato == FormatoExportacion.CSV) {
+                    escritor.write(CABECERA_CSV);
+                }
+                StringBuilder linea = new StringBuilder(256);
+                for (Iterator<CompraRespuestaDTO> it = intercalar(principal.iterator(), archivo.iterator(),
+                        RECIENTES_PRIMERO.reversed()); it.hasNext(); filas++) {
+                    linea.setLength(0);
+                    if (formato == FormatoExportacion.CSV) {
+                        escribirCsv(linea, it.next());
+                    } else {
+                        escribirNdjson(linea, it.next());
+                    }
+                    escritor.append(linea);
+                }
+            }
+            Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            long duracionMs = Math.max(1, (System.nanoTime() - inicio) / 1_000_000);
+            return new ResultadoExportacionDTO(destino.toString(), filas, Files.size(destino),
+                    duracionMs, filas * 1000.0 / duracionMs);
+        } catch (IOException e) {
+            try {
+                Files.deleteIfExists(temporal);
+            } catch (IOException ignorada) {
+                e.addSuppressed(ignorada);
+            }
+            throw new RuntimeException("Error al exportar las compras: " + e.getMessage(), e);
+        }
     }
 
     /**
      * Actualiza el estado administrativo de un pedido existente.
+     * <p>
+     * La transición se valida contra la máquina de estados de {@link EstadoCompra}. 
+     * Anular una compra devuelve sus unidades al stock y la descuenta del resumen del cliente.
+     * </p>
      *
      * @param id Identificador de la compra.
-     * @param nuevoEstado Nombre del nuevo estado (pendiente de validar contra el Enum).
+     * @param nuevoEstado Nombre del nuevo estado.
      * @return {@link CompraRespuestaDTO} con el estado actualizado.
      * @throws IllegalArgumentException Si el estado proporcionado no es válido.
+     * @throws RuntimeException Si la compra no existe o la transición no está permitida.
      */
     @Transactional
     public CompraRespuestaDTO cambiarEstado(Integer id, String nuevoEstado) {
-        Compra c = compraRepository.findById(id).orElseThrow(() -> new RuntimeException("Compra no encontrada"));
-        c.setEstado(EstadoCompra.valueOf(nuevoEstado.toUpperCase()));
-        return convertirADTO(compraRepository.save(c));
+        ResultadoTransicionDTO resultado = transicionarBloque(List.of(id),
+                EstadoCompra.valueOf(nuevoEstado.toUpperCase())).get(0);
+        if (!resultado.isExito()) {
+            throw new RuntimeException(resultado.getError());
+        }
+        return compraRepository.findById(id).map(this::convertirADTO)
+                .orElseThrow(() -> new RuntimeException("Compra no encontrada"));
+    }
+
+    /**
+     * Aplica un mismo cambio de estado a un conjunto de compras, por ejemplo marcar como 
+     * ENVIADO una oleada de expedición.
+     * <p>
+     * Las compras se procesan en bloques de hasta {@value #MAX_IDS_CONSULTA}, cada uno en 
+     * su propia transacción:
+     * <ol>
+     * <li>Una consulta lee y bloquea el estado de todas las compras del bloque.</li>
+     * <li>Cada transición se valida en memoria contra la máquina de estados de {@link EstadoCompra}.</li>
+     * <li>Un único {@code UPDATE ... WHERE id IN (...)} cambia el estado de las válidas.</li>
+     * <li>En una anulación, las unidades de las líneas se agregan por artículo y se 
+     *     devuelven con una actualización por artículo, y el resumen de cada cliente se 
+     *     descuenta una sola vez por todas sus compras del bloque.</li>
+     * </ol>
+     * Si un bloque no puede confirmarse como conjunto, sus compras se repiten de forma individual.
+     * </p>
+     *
+     * @param ids Identificadores de las compras (los repetidos se procesan una vez).
+     * @param nuevoEstado Nombre del nuevo estado.
+     * @return Resultado de cada compra, en el orden de la entrada.
+     * @throws IllegalArgumentException Si el estado proporcionado no es válido.
+     */
+    public List<ResultadoTransicionDTO> cambiarEstados(List<Integer> ids, String nuevoEstado) {
+        EstadoCompra destino = EstadoCompra.valueOf(nuevoEstado.toUpperCase());
+        List<Integer> distintos = ids.stream().filter(Objects::nonNull).distinct().collect(Collectors.toList());
+        List<ResultadoTransicionDTO> resultados = new ArrayList<>(distintos.size());
+        for (int desde = 0; desde < distintos.size(); desde += MAX_IDS_CONSULTA) {
+            List<Integer> bloque = distintos.subList(desde, Math.min(desde + MAX_IDS_CONSULTA, distintos.size()));
+            try {
+                resultados.addAll(transactionTemplate.execute(estado -> transicionarBloque(bloque, destino)));
+            } catch (RuntimeException e) {
+                for (Integer id : bloque) {
+                    try {
+                        resultados.add(transactionTemplate.execute(estado -> transicionarBloque(List.of(id), destino)).get(0));
+                    } catch (RuntimeException errorCompra) {
+                        resultados.add(ResultadoTransicionDTO.fallido(id, errorCompra.getMessage()));
+                    }
+                }
+            }
+        }
+        return resultados;
+    }
+
+    /**
+     * Procesa un tramo del fichero en bloque y, si el tramo no puede confirmarse 
+     * como conjunto, repite sus pedidos de forma individual.
+     */
+    private List<ResultadoCompraDTO> procesarTramo(List<CompraRegistroDTO> pedidos, int desde, int hasta) {
+        try {
+            return transactionTemplate.execute(estado -> procesarTramoEnBloque(pedidos, desde, hasta));
+        } catch (RuntimeException e) {
+            List<ResultadoCompraDTO> resultados = new ArrayList<>(hasta - desde);
+            for (int i = desde; i < hasta; i++) {
+                CompraRegistroDTO pedido = pedidos.get(i);
+                try {
+                    resultados.add(ResultadoCompraDTO.correcto(i,
+                            transactionTemplate.execute(estado -> registrarCompra(pedido))));
+                } catch (RuntimeException errorPedido) {
+                    resultados.add(ResultadoCompraDTO.fallido(i, errorPedido.getMessage()));
+                }
+            }
+            return resultados;
+        }
+    }
+
+    /**
+     * Cuerpo transaccional de {@link #procesarTramo}: resolución por conjuntos, validación 
+     * en memoria, descuento agregado de stock e inserción en lote.
+     */
+    private List<ResultadoCompraDTO> procesarTramoEnBloque(List<CompraRegistroDTO> pedidos, int desde, int hasta) {
+        List<CompraRegistroDTO> tramo = pedidos.subList(desde, hasta);
+
+        // 0. Claves de idempotencia ya registradas en memoria o en la tabla duradera
+        Map<String, CompraRespuestaDTO> originales = resolverClaves(tramo.stream()
+                .map(CompraRegistroDTO::getClaveIdempotencia)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet()));
+
+        // 1. Resolución por conjuntos de clientes y artículos
+        Map<String, ClienteDTO> clientes = cacheClientes.obtenerVarios(tramo.stream()
+                .map(CompraRegistroDTO::getClienteNif)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet()), clienteRepository::buscarDTOs);
+        Map<Integer, Articulo> articulos = articuloRepository.findAllById(tramo.stream()
+                        .filter(p -> p.getLineas() != null)
+                        .flatMap(p -> p.getLineas().stream())
+                        .map(LineaCompraDTO::getArticuloId)
+                        .filter(Objects::nonNull)
+                        .collect(Collectors.toSet()))
+                .stream()
+                .collect(Collectors.toMap(Articulo::getId, Function.identity()));
+
+        Map<Integer, Integer> disponible = new HashMap<>();
+        articulos.values().forEach(a -> disponible.put(a.getId(), a.getStock()));
+        disponible.putAll(stockFragmentadoService.stockTotales(articulos.values().stream()
+                .filter(a -> a.getFragmentosStock() > 0)
+                .map(Articulo::getId)
+                .collect(Collectors.toList())));
+
+        // 2. Validación en memoria pedido a pedido
+        ResultadoCompraDTO[] resultados = new ResultadoCompraDTO[tramo.size()];
+        Compra[] compras = new Compra[tramo.size()];
+        Map<Integer, Integer> demanda = new TreeMap<>();
+        Map<String, Integer> primeraPorClave = new HashMap<>();
+        Map<Integer, Integer> repetidos = new HashMap<>();
+        for (int i = 0; i < tramo.size(); i++) {
+            CompraRegistroDTO pedido = tramo.get(i);
+            String clave = pedido.getClaveIdempotencia();
+            if (clave != null) {
+                if (originales.containsKey(clave)) {
+                    resultados[i] = ResultadoCompraDTO.correcto(desde + i, originales.get(clave));
+                    continue;
+                }
+                Integer primera = primeraPorClave.putIfAbsent(clave, i);
+                if (primera != null) {
+                    repetidos.put(i, primera);
+                    continue;
+                }
+            }
+            try {
+                if (!clientes.containsKey(pedido.getClienteNif())) {
+                    throw new RuntimeException("Cliente no identificado");
+                }
+                Cliente cliente = clienteRepository.getReferenceById(pedido.getClienteNif());
+                Map<Integer, Integer> unidadesPorArticulo = agruparLineas(pedido.getLineas());
+                for (Map.Entry<Integer, Integer> linea : unidadesPorArticulo.entrySet()) {
+                    Articulo articulo = articulos.get(linea.getKey());
+                    if (articulo == null) {
+                        throw new RuntimeException("Articulo ID " + linea.getKey() + " no existe");
+                    }
+                    if (disponible.get(articulo.getId()) < linea.getValue()) {
+                        throw new RuntimeException("Stock insuficiente para: " + articulo.getNombre());
+                    }
+                }
+                unidadesPorArticulo.forEach((id, cantidad) -> {
+                    disponible.merge(id, -cantidad, Integer::sum);
+                    demanda.merge(id, cantidad, Integer::sum);
+                });
+                compras[i] = construirCompra(cliente, pedido.getDireccionEnvio(), unidadesPorArticulo, articulos);
+            } catch (RuntimeException e) {
+                resultados[i] = ResultadoCompraDTO.fallido(desde + i, e.getMessage());
+            }
+        }
+
+        // 3. Descuento agregado: un UPDATE condicional por artículo para todo el tramo
+        for (Map.Entry<Integer, Integer> total : demanda.entrySet()) {
+            if (!descontarStock(articulos.get(total.getKey()), total.getValue())) {
+                throw new RuntimeException("Stock modificado concurrentemente para el artículo ID " + total.getKey());
+            }
+        }
+        cacheCatalogo.invalidar(demanda.keySet());
+
+        // 4. Inserción en lote de cabeceras y líneas
+        List<Compra> aceptadas = Arrays.stream(compras).filter(Objects::nonNull).collect(Collectors.toList());
+        compraRepository.saveAll(aceptadas);
+        Map<String, CompraRespuestaDTO> nuevasClaves = new HashMap<>();
+        for (int i = 0; i < tramo.size(); i++) {
+            if (compras[i] != null) {
+                resultados[i] = ResultadoCompraDTO.correcto(desde + i,
+                        convertirADTO(compras[i], clientes.get(tramo.get(i).getClienteNif()).getNombre()));
+                String clave = tramo.get(i).getClaveIdempotencia();
+                if (clave != null) {
+                    nuevasClaves.put(clave, resultados[i].getCompra());
+                }
+            }
+        }
+        if (!nuevasClaves.isEmpty()) {
+            indiceIdempotencia.registrar(nuevasClaves);
+        }
+
+        // Resumen de clientes: una actualización por cliente con el agregado de sus pedidos del tramo
+        Map<String, List<Compra>> porCliente = aceptadas.stream()
+                .collect(Collectors.groupingBy(c -> c.getCliente().getNifCif(), TreeMap::new, Collectors.toList()));
+        porCliente.forEach((nif, suyas) -> resumenClienteService.sumarCompras(nif, suyas.size(),
+                suyas.stream().map(Compra::getPrecioTotal).reduce(BigDecimal.ZERO, BigDecimal::add),
+                suyas.stream().map(Compra::getFechaRealizada).max(LocalDateTime::compareTo).get()));
+
+        // 5. Los pedidos con clave repetida dentro del tramo reciben el resultado del primero
+        repetidos.forEach((i, primera) -> resultados[i] = new ResultadoCompraDTO(desde + i,
+                resultados[primera].isExito(), resultados[primera].getCompra(), resultados[primera].getError()));
+        return Arrays.asList(resultados);
+    }
+
+    /**
+     * Construye la cabecera de una compra pendiente con sus líneas de detalle.
+     * <p>
+     * El precio vigente de cada artículo queda congelado en la línea y el total se 
+     * calcula como la suma de los subtotales. No modifica el stock.
+     * </p>
+     *
+     * @param cliente Cliente que realiza el pedido.
+     * @param direccionEnvio Dirección de entrega.
+     * @param unidadesPorArticulo Unidades agrupadas por artículo.
+     * @param articulos Artículos ya resueltos.
+     * @return Entidad {@link Compra} lista para persistir.
+     */
+    private Compra construirCompra(Cliente cliente, String direccionEnvio,
+                                   Map<Integer, Integer> unidadesPorArticulo, Map<Integer, Articulo> articulos) {
+        Compra compra = new Compra();
+        compra.setCliente(cliente);
+        compra.setFechaRealizada(LocalDateTime.now());
+        compra.setDireccionEnvio(direccionEnvio);
+        compra.setEstado(EstadoCompra.PENDIENTE);
+
+        BigDecimal totalCompra = BigDecimal.ZERO;
+
+        for (Map.Entry<Integer, Integer> linea : unidadesPorArticulo.entrySet()) {
+            Articulo articulo = articulos.get(linea.getKey());
+            int cantidad = linea.getValue();
+
+            // Instanciamos la entidad de asociación con atributos adicionales
+            ArticuloCompra detalle = new ArticuloCompra();
+            detalle.setCompra(compra);
+            detalle.setArticulo(articulo);
+            detalle.setUnidades(cantidad);
+            detalle.setPrecioCompra(articulo.getPrecioActual()); // Captura del precio histórico
+
+            // Vinculamos la línea con la cabecera
+            compra.getLineasArticulos().add(detalle);
+
+            // Cálculo financiero de la línea
+            BigDecimal subtotal = articulo.getPrecioActual().multiply(new BigDecimal(cantidad));
+            totalCompra = totalCompra.add(subtotal);
+        }
+
+        compra.setPrecioTotal(totalCompra);
+        return compra;
+    }
+
+    /**
+     * Agrupa las líneas del pedido por artículo sumando sus cantidades.
+     * <p>
+     * Evita que dos líneas del mismo artículo colisionen en la clave primaria 
+     * compuesta {@link ArticuloCompraId}. Se ordena por identificador para que 
+     * las actualizaciones de stock se emitan siempre en el mismo orden.
+     * </p>
+     *
+     * @param lineas Líneas recibidas desde la capa de presentación.
+     * @return Mapa ordenado de ID de artículo a unidades totales solicitadas.
+     * @throws RuntimeException Si el pedido no tiene líneas o alguna cantidad no es positiva.
+     */
+    private Map<Integer, Integer> agruparLineas(List<LineaCompraDTO> lineas) {
+        if (lineas == null || lineas.isEmpty()) {
+            throw new RuntimeException("El pedido no contiene ninguna línea");
+        }
+        Map<Integer, Integer> unidadesPorArticulo = new TreeMap<>();
+        for (LineaCompraDTO linea : lineas) {
+            if (linea.getArticuloId() == null || linea.getCantidad() == null || linea.getCantidad() <= 0) {
+                throw new RuntimeException("Línea de pedido no válida para el artículo ID " + linea.getArticuloId());
+            }
+            unidadesPorArticulo.merge(linea.getArticuloId(), linea.getCantidad(), Integer::sum);
+        }
+        return unidadesPorArticulo;
+    }
+
+    /**
+     * Carga en una única consulta todos los artículos referenciados por el pedido.
+     *
+     * @param ids Identificadores de los artículos solicitados.
+     * @return Mapa de ID a entidad {@link Articulo}.
+     * @throws RuntimeException Si alguno de los artículos no existe.
+     */
+    private Map<Integer, Articulo> resolverArticulos(Set<Integer> ids) {
+        Map<Integer, Articulo> articulos = articuloRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Articulo::getId, Function.identity()));
+        for (Integer id : ids) {
+            if (!articulos.containsKey(id)) {
+                throw new RuntimeException("Articulo ID " + id + " no existe");
+            }
+        }
+        return articulos;
+    }
+
+    /**
+     * Abre la cadena de escritura de una exportación: texto UTF-8, compresión opcional 
+     * y búfer de bytes sobre el canal del fichero.
+     */
+    private Writer abrirEscritor(FileChannel canal, boolean comprimir) throws IOException {
+        OutputStream salida = new BufferedOutputStream(Channels.newOutputStream(canal), BUFER_EXPORTACION);
+        if (comprimir) {
+            salida = new GZIPOutputStream(salida, BUFER_EXPORTACION);
+        }
+        return new BufferedWriter(new OutputStreamWriter(salida, StandardCharsets.UTF_8), BUFER_EXPORTACION);
+    }
+
+    /**
+     * Serializa una compra como una línea JSON (NDJSON).
+     */
+    private void escribirNdjson(StringBuilder linea, CompraRespuestaDTO c) {
+        linea.append("{\"id\":").append(c.getId());
+        linea.append(",\"fechaRealizada\":");
+        textoJson(linea, c.getFechaRealizada() != null ? c.getFechaRealizada().toString() : null);
+        linea.append(",\"estado\":");
+        textoJson(linea, c.getEstado());
+        linea.append(",\"direccionEnvio\":");
+        textoJson(linea, c.getDireccionEnvio());
+        linea.append(",\"precioTotal\":")
+                .append(c.getPrecioTotal() != null ? c.getPrecioTotal().toPlainString() : "null");
+        linea.append(",\"clienteNombre\":");
+        textoJson(linea, c.getClienteNombre());
+        linea.append("}\n");
+    }
+
+    /**
+     * Añade una cadena JSON entrecomillada y escapada, o {@code null}.
+     */
+    private void textoJson(StringBuilder linea, String valor) {
+        if (valor == null) {
+            linea.append("null");
+            return;
+        }
+        linea.append('"');
+        for (int i = 0; i < valor.length(); i++) {
+            char ch = valor.charAt(i);
+            switch (ch) {
+                case '"' -> linea.append("\\\"");
+                case '\\' -> linea.append("\\\\");
+                case '\n' -> linea.append("\\n");
+                case '\r' -> linea.append("\\r");
+                case '\t' -> linea.append("\\t");
+                default -> {
+                    if (ch < 0x20) {
+                        linea.append(String.format("\\u%04x", (int) ch));
+                    } else {
+                        linea.append(ch);
+                    }
+                }
+            }
+        }
+        linea.append('"');
+    }
+
+    /**
+     * Serializa una compra como una fila CSV (RFC 4180).
+     */
+    private void escribirCsv(StringBuilder linea, CompraRespuestaDTO c) {
+        linea.append(c.getId()).append(',');
+        campoCsv(linea, c.getFechaRealizada() != null ? c.getFechaRealizada().toString() : null);
+        linea.append(',');
+        campoCsv(linea, c.getEstado());
+        linea.append(',');
+        campoCsv(linea, c.getDireccionEnvio());
+        linea.append(',');
+        campoCsv(linea, c.getPrecioTotal() != null ? c.getPrecioTotal().toPlainString() : null);
+        linea.append(',');
+        campoCsv(linea, c.getClienteNombre());
+        linea.append("\r\n");
+    }
+
+    /**
+     * Añade un campo CSV, entrecomillado solo si contiene separadores, comillas o saltos de línea.
+     */
+    private void campoCsv(StringBuilder linea, String valor) {
+        if (valor == null) {
+            return;
+        }
+        boolean entrecomillar = false;
+        for (int i = 0; i < valor.length() && !entrecomillar; i++) {
+            char ch = valor.charAt(i);
+            entrecomillar = ch == ',' || ch == '"' || ch == '\n' || ch == '\r';
+        }
+        if (!entrecomillar) {
+            linea.append(valor);
+            return;
+        }
+        linea.append('"');
+        for (int i = 0; i < valor.length(); i++) {
+            char ch = valor.charAt(i);
+            if (ch == '"') {
+                linea.append('"');
+            }
+            linea.append(ch);
+        }
+        linea.append('"');
+    }
+
+    /**
+     * Valida la posición y el tamaño de una página y devuelve el límite de filas a leer.
+     * <p>
+     * Se lee un pedido más de los solicitados para saber si existe página siguiente.
+     * </p>
+     */
+    private Pageable limitePagina(LocalDateTime fecha, Integer id, int tamano) {
+        if (tamano < 1 || tamano > TAMANO_MAXIMO_PAGINA) {
+            throw new RuntimeException("El tamaño de página debe estar entre 1 y " + TAMANO_MAXIMO_PAGINA);
+        }
+        if ((fecha == null) != (id == null)) {
+            throw new RuntimeException("La posición de la página requiere fecha e identificador del último pedido");
+        }
+        return PageRequest.of(0, tamano + 1);
+    }
+
+    /**
+     * Combina dos listas ya ordenadas por {@link #RECIENTES_PRIMERO} (tabla principal y 
+     * archivo, leídas en ese orden), conservando como máximo los {@code limite} primeros 
+     * elementos.
+     */
+    private static List<CompraRespuestaDTO> fusionar(List<CompraRespuestaDTO> principal,
+                                                     List<CompraRespuestaDTO> archivo, int limite) {
+        if (archivo.isEmpty()) {
+            return principal;
+        }
+        List<CompraRespuestaDTO> resultado = new ArrayList<>(Math.min(limite, principal.size() + archivo.size()));
+        Iterator<CompraRespuestaDTO> it = intercalar(principal.iterator(), archivo.iterator(), RECIENTES_PRIMERO);
+        while (it.hasNext() && resultado.size() < limite) {
+            resultado.add(it.next());
+        }
+        return resultado;
+    }
+
+    /**
+     * Intercala de forma perezosa dos secuencias ya ordenadas según el mismo criterio.
+     * Un elemento presente en ambas (una compra archivada entre la lectura de la tabla 
+     * principal y la del archivo) se devuelve una sola vez.
+     */
+    private static <T> Iterator<T> intercalar(Iterator<T> a, Iterator<T> b, Comparator<? super T> orden) {
+        return new Iterator<>() {
+            private T siguienteA = a.hasNext() ? a.next() : null;
+            private T siguienteB = b.hasNext() ? b.next() : null;
+
+            @Override
+            public boolean hasNext() {
+                return siguienteA != null || siguienteB != null;
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                T elegido;
+                int comparacion = siguienteA == null ? 1 : siguienteB == null ? -1 : orden.compare(siguienteA, siguienteB);
+                if (comparacion == 0) {
+                    siguienteB = b.hasNext() ? b.next() : null;
+                }
+                if (comparacion <= 0) {
+                    elegido = siguienteA;
+                    siguienteA = a.hasNext() ? a.next() : null;
+                } else {
+                    elegido = siguienteB;
+                    siguienteB = b.hasNext() ? b.next() : null;
+                }
+                return elegido;
+            }
+        };
+    }
+
+    /**
+     * Añade al mapa de detalles las cabeceras y las líneas leídas de una de las dos tablas.
+     */
+    private static void anadirDetalles(Map<Integer, CompraDetalleDTO> detalles, List<CompraRespuestaDTO> cabeceras,
+                                       List<Object[]> lineas) {
+        for (CompraRespuestaDTO cabecera : cabeceras) {
+            detalles.put(cabecera.getId(), new CompraDetalleDTO(cabecera, new ArrayList<>()));
+        }
+        for (Object[] fila : lineas) {
+            detalles.get((Integer) fila[0]).getLineas().add(new LineaCompraDTO(
+                    (Integer) fila[1], (String) fila[2], (Integer) fila[3], (BigDecimal) fila[4]));
+        }
+    }
+
+    /**
+     * Resuelve las claves de idempotencia ya registradas, primero en memoria y, para las 
+     * que no estén, con una única consulta a la tabla duradera.
+     *
+     * @param claves Claves de idempotencia de los pedidos recibidos.
+     * @return Mapa de clave a respuesta de la compra original; las claves nuevas no aparecen.
+     */
+    private Map<String, CompraRespuestaDTO> resolverClaves(Set<String> claves) {
+        Map<String, CompraRespuestaDTO> originales = new HashMap<>();
+        List<String> pendientes = new ArrayList<>();
+        for (String clave : claves) {
+            CompraRespuestaDTO original = indiceIdempotencia.buscar(clave);
+            if (original != null) {
+                originales.put(clave, original);
+            } else {
+                pendientes.add(clave);
+            }
+        }
+        indiceIdempotencia.buscarRegistradas(pendientes).forEach((clave, compra) -> {
+            CompraRespuestaDTO original = convertirADTO(compra);
+            indiceIdempotencia.recordar(clave, original);
+            originales.put(clave, original);
+        });
+        return originales;
+    }
+
+    /**
+     * Cuerpo transaccional de los cambios de estado: bloqueo y validación del bloque, 
+     * actualización por conjuntos y, en anulaciones, devolución agregada del stock y 
+     * ajuste de los resúmenes de cliente.
+     */
+    private List<ResultadoTransicionDTO> transicionarBloque(List<Integer> ids, EstadoCompra destino) {
+        Map<Integer, Object[]> actuales = new HashMap<>();
+        for (Object[] fila : compraRepository.bloquearParaTransicion(ids)) {
+            actuales.put(((Number) fila[0]).intValue(), fila);
+        }
+
+        List<ResultadoTransicionDTO> resultados = new ArrayList<>(ids.size());
+        List<Integer> validas = new ArrayList<>(ids.size());
+        Map<String, Integer> anuladasPorCliente = new HashMap<>();
+        Map<String, BigDecimal> importePorCliente = new HashMap<>();
+        for (Integer id : ids) {
+            Object[] fila = actuales.get(id);
+            if (fila == null) {
+                resultados.add(ResultadoTransicionDTO.fallido(id, "Compra no encontrada"));
+                continue;
+            }
+            EstadoCompra origen = EstadoCompra.valueOf((String) fila[1]);
+            if (!origen.puedeTransitarA(destino)) {
+                resultados.add(ResultadoTransicionDTO.fallido(id,
+                        "Transición no permitida de " + origen + " a " + destino));
+                continue;
+            }
+            validas.add(id);
+            resultados.add(ResultadoTransicionDTO.correcto(id));
+            String nif = (String) fila[2];
+            if (nif != null) {
+                anuladasPorCliente.merge(nif, 1, Integer::sum);
+                importePorCliente.merge(nif, fila[3] != null ? (BigDecimal) fila[3] : BigDecimal.ZERO, BigDecimal::add);
+            }
+        }
+        if (validas.isEmpty()) {
+            return resultados;
+        }
+
+        compraRepository.actualizarEstado(validas, destino);
+        if (destino == EstadoCompra.ANULADA) {
+            devolverStock(validas);
+            // Las compras anuladas no computan en el resumen del cliente
+            anuladasPorCliente.forEach((nif, numero) ->
+                    resumenClienteService.restarCompras(nif, numero, importePorCliente.get(nif)));
+        }
+        return resultados;
+    }
+
+    /**
+     * Devuelve al inventario las unidades de las líneas de un bloque de compras anuladas, 
+     * con una sola actualización por artículo (en orden de identificador).
+     */
+    private void devolverStock(List<Integer> compraIds) {
+        Map<Integer, Integer> unidades = new TreeMap<>();
+        for (Object[] fila : articuloCompraRepository.sumarUnidadesPorArticulo(compraIds)) {
+            unidades.put((Integer) fila[0], ((Number) fila[1]).intValue());
+        }
+        if (unidades.isEmpty()) {
+            return;
+        }
+        unidades.forEach(stockFragmentadoService::devolver);
+        cacheCatalogo.invalidar(unidades.keySet());
+    }
+
+    /**
+     * Descuenta unidades del inventario de un artículo según su modo de stock.
+     *
+     * @param articulo Artículo afectado.
+     * @param cantidad Unidades a descontar.
+     * @return {@code true} si había stock suficiente y se descontó.
+     */
+    private boolean descontarStock(Articulo articulo, int cantidad) {
+        return stockFragmentadoService.descontar(articulo, cantidad);
     }
 
     /**
@@ -147,10 +1021,21 @@ public class CompraService {
      * @return {@link CompraRespuestaDTO} con datos legibles para el usuario.
      */
     private CompraRespuestaDTO convertirADTO(Compra c) {
+        return convertirADTO(c, c.getCliente() != null ? c.getCliente().getNombre() : "Cliente eliminado");
+    }
+
+    /**
+     * Transforma una compra recién registrada en un DTO de respuesta con el nombre del 
+     * cliente ya conocido, sin inicializar la referencia al cliente.
+     *
+     * @param c Entidad {@link Compra}.
+     * @param nombreCliente Nombre del cliente que realiza la compra.
+     * @return {@link CompraRespuestaDTO} con datos legibles para el usuario.
+     */
+    private CompraRespuestaDTO convertirADTO(Compra c, String nombreCliente) {
         return new CompraRespuestaDTO(
             c.getId(), c.getFechaRealizada(), c.getEstado().name(),
-            c.getDireccionEnvio(), c.getPrecioTotal(), 
-            c.getCliente() != null ? c.getCliente().getNombre() : "Cliente eliminado"
+            c.getDireccionEnvio(), c.getPrecioTotal(), nombreCliente
         );
     }
 }
\ No newline at end of file
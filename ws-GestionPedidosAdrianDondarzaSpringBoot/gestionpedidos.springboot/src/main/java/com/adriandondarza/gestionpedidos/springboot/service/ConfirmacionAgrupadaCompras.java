@@ -0,0 +1,392 @@
+package com.adriandondarza.gestionpedidos.springboot.service;
+
+import com.adriandondarza.gestionpedidos.springboot.dto.CompraRegistroDTO;
+import com.adriandondarza.gestionpedidos.springboot.dto.CompraRespuestaDTO;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Confirmación agrupada (group commit) de pedidos concurrentes.
+ * <p>
+ * Los pedidos que llegan dentro de una ventana corta de tiempo, o hasta completar un 
+ * tamaño máximo de lote, se registran en una única transacción de base de datos, de 
+ * modo que el inicio, la confirmación y la escritura del redo log se pagan una vez por 
+ * lote en lugar de una vez por pedido. Cada pedido se ejecuta bajo su propio punto de 
+ * guardado (savepoint JDBC): un pedido erróneo se deshace sin afectar a los demás, y cada 
+ * llamante recibe su propia respuesta o su propio error.
+ * </p>
+ * <p>
+ * Es opcional y se activa con {@code gestionpedidos.compras.agrupacion.habilitada=true}. 
+ * La ventana y el tamaño de lote determinan el compromiso entre latencia (espera 
+ * adicional de cada pedido) y rendimiento (pedidos por confirmación); ambos se 
+ * observan a través de las métricas expuestas por esta clase.
+ * </p>
+ * <p>
+ * Todo pedido encolado recibe respuesta: si el lote no llega a confirmarse, sus pedidos 
+ * se registran por separado o se rechazan con el error del lote, y quien espera el 
+ * resultado lo hace como máximo {@code gestionpedidos.compras.agrupacion.espera-maxima-ms}.
+ * </p>
+ *
+ * @author Adrian Dondarza
+ * @version 1.0
+ * @since 2026-10-16
+ */
+@Component
+public class ConfirmacionAgrupadaCompras {
+
+    @Value("${gestionpedidos.compras.agrupacion.habilitada:false}")
+    private boolean habilitada;
+
+    @Value("${gestionpedidos.compras.agrupacion.ventana-ms:5}")
+    private long ventanaMs;
+
+    @Value("${gestionpedidos.compras.agrupacion.max-lote:50}")
+    private int maxLote;
+
+    @Value("${gestionpedidos.compras.agrupacion.despachadores:1}")
+    private int despachadores;
+
+    @Value("${gestionpedidos.compras.agrupacion.espera-maxima-ms:30000}")
+    private long esperaMaximaMs;
+
+    @Autowired
+    private CompraService compraService;
+
+    @Autowired
+    private EjecutorReintentos ejecutorReintentos;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final BlockingQueue<Solicitud> cola = new LinkedBlockingQueue<>();
+    private final List<Thread> hilos = new ArrayList<>();
+    private volatile boolean activa;
+
+    private TransactionTemplate transaccionLote;
+
+    private final LongAdder lotes = new LongAdder();
+    private final LongAdder pedidos = new LongAdder();
+    private final LongAdder esperaNanos = new LongAdder();
+    private final LongAdder confirmacionNanos = new LongAdder();
+
+    /**
+     * Solicitud pendiente de un llamante junto con el futuro que recibirá su respuesta.
+     * {@code iniciada} se marca cuando un lote toma el pedido, o cuando su llamante deja 
+     * de esperar antes de eso, para que el pedido no se registre después sin nadie que 
+     * reciba el resultado.
+     */
+    private record Solicitud(CompraRegistroDTO pedido, long llegada, CompletableFuture<CompraRespuestaDTO> futuro,
+            AtomicBoolean iniciada) {
+
+        Solicitud(CompraRegistroDTO pedido) {
+            this(pedido, System.nanoTime(), new CompletableFuture<>(), new AtomicBoolean());
+        }
+    }
+
+    @PostConstruct
+    void iniciar() {
+        if (!habilitada) {
+            return;
+        }
+        transaccionLote = new TransactionTemplate(transactionManager);
+
+        activa = true;
+        for (int i = 0; i < despachadores; i++) {
+            hilos.add(Thread.ofPlatform().name("confirmacion-agrupada-" + i).daemon().start(this::despachar));
+        }
+    }
+
+    @PreDestroy
+    void detener() throws InterruptedException {
+        activa = false;
+        for (Thread hilo : hilos) {
+            hilo.interrupt();
+            hilo.join(TimeUnit.SECONDS.toMillis(5));
+        }
+        Solicitud pendiente;
+        while ((pendiente = cola.poll()) != null) {
+            pendiente.futuro().completeExceptionally(new RuntimeException("Servicio de pedidos detenido"));
+        }
+    }
+
+    /**
+     * @return {@code true} si la confirmación agrupada está activa.
+     */
+    public boolean isHabilitada() {
+        return habilitada;
+    }
+
+    /**
+     * Encola un pedido para la siguiente confirmación agrupada.
+     *
+     * @param pedido Pedido a registrar.
+     * @return Futuro que se completa tras la confirmación del lote con la respuesta 
+     *         del pedido o con su error individual.
+     * @throws RuntimeException Si la confirmación agrupada no está activa.
+     */
+    public CompletableFuture<CompraRespuestaDTO> enviar(CompraRegistroDTO pedido) {
+        return encolar(pedido).futuro();
+    }
+
+    /**
+     * Registra un pedido a través de la confirmación agrupada y espera a su resultado.
+     * <p>
+     * La espera está acotada por {@code gestionpedidos.compras.agrupacion.espera-maxima-ms}. 
+     * Si vence antes de que un lote tome el pedido, este se retira y no llega a registrarse; 
+     * si vence con el pedido ya en curso, su resultado se desconoce y puede consultarse 
+     * repitiendo el envío con la misma clave de idempotencia.
+     * </p>
+     *
+     * @param pedido Pedido a registrar.
+     * @return {@link CompraRespuestaDTO} del pedido confirmado.
+     * @throws RuntimeException El error individual del pedido, si fue rechazado, o el 
+     * vencimiento de la espera.
+     */
+    public CompraRespuestaDTO procesar(CompraRegistroDTO pedido) {
+        Solicitud solicitud = encolar(pedido);
+        try {
+            return solicitud.futuro().get(esperaMaximaMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw new RuntimeException("Error al registrar el pedido", e.getCause());
+        } catch (TimeoutException e) {
+            if (solicitud.iniciada().compareAndSet(false, true)) {
+                RuntimeException retirado = new RuntimeException("Tiempo de espera agotado: el pedido no se ha registrado");
+                solicitud.futuro().completeExceptionally(retirado);
+                throw retirado;
+            }
+            throw new RuntimeException("Tiempo de espera agotado: el pedido está en curso y su resultado se desconoce");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Espera del pedido interrumpida", e);
+        }
+    }
+
+    /**
+     * @return Número de lotes confirmados.
+     */
+    public long getLotes() {
+        return lotes.sum();
+    }
+
+    /**
+     * @return Número de pedidos procesados a través de los lotes.
+     */
+    public long getPedidos() {
+        return pedidos.sum();
+    }
+
+    /**
+     * @return Tamaño medio de lote (pedidos por confirmación).
+     */
+    public double getTamanoMedioLote() {
+        long n = lotes.sum();
+        return n == 0 ? 0 : (double) pedidos.sum() / n;
+    }
+
+    /**
+     * @return Tiempo medio, en milisegundos, que un pedido espera en cola hasta que su lote arranca.
+     */
+    public double getEsperaMediaMs() {
+        long n = pedidos.sum();
+        return n == 0 ? 0 : esperaNanos.sum() / 1e6 / n;
+    }
+
+    /**
+     * @return Duración media, en milisegundos, de la transacción de un lote.
+     */
+    public double getDuracionMediaLoteMs() {
+        long n = lotes.sum();
+        return n == 0 ? 0 : confirmacionNanos.sum() / 1e6 / n;
+    }
+
+    /**
+     * @return Pedidos encolados pendientes de lote.
+     */
+    public int getPendientes() {
+        return cola.size();
+    }
+
+    private Solicitud encolar(CompraRegistroDTO pedido) {
+        if (!activa) {
+            throw new RuntimeException("La confirmación agrupada de pedidos no está activa");
+        }
+        Solicitud solicitud = new Solicitud(pedido);
+        cola.add(solicitud);
+        return solicitud;
+    }
+
+    /**
+     * Bucle de cada hilo despachador: forma lotes por ventana temporal o tamaño máximo.
+     * <p>
+     * Un fallo inesperado al confirmar un lote, incluidos los {@link Error}, rechaza los 
+     * pedidos de ese lote que sigan sin respuesta y el despachador continúa con el siguiente.
+     * </p>
+     */
+    private void despachar() {
+        long ventanaNanos = TimeUnit.MILLISECONDS.toNanos(ventanaMs);
+        while (activa) {
+            List<Solicitud> lote = new ArrayList<>(maxLote);
+            try {
+                formarLote(lote, ventanaNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                lote.forEach(s -> s.futuro().completeExceptionally(new RuntimeException("Servicio de pedidos detenido")));
+                return;
+            }
+            if (lote.isEmpty()) {
+                continue;
+            }
+            Throwable errorLote = null;
+            try {
+                confirmar(lote);
+            } catch (Throwable e) {
+                errorLote = e;
+            } finally {
+                rechazarPendientes(lote, errorLote);
+            }
+        }
+    }
+
+    /**
+     * Añade a {@code lote} el primer pedido en cola y los que lleguen dentro de su ventana, 
+     * hasta el tamaño máximo de lote.
+     */
+    private void formarLote(List<Solicitud> lote, long ventanaNanos) throws InterruptedException {
+        Solicitud primera = cola.poll(100, TimeUnit.MILLISECONDS);
+        if (primera == null) {
+            return;
+        }
+        lote.add(primera);
+        long limite = primera.llegada() + ventanaNanos;
+        while (lote.size() < maxLote) {
+            long restante = limite - System.nanoTime();
+            Solicitud siguiente = restante > 0 ? cola.poll(restante, TimeUnit.NANOSECONDS) : cola.poll();
+            if (siguiente == null) {
+                break;
+            }
+            lote.add(siguiente);
+        }
+    }
+
+    /**
+     * Registra un lote en una única transacción, aislando cada pedido con un savepoint JDBC.
+     * <p>
+     * Cada pedido se vuelca ({@code flush}) antes de pasar al siguiente, de modo que sus 
+     * errores de base de datos se manifiestan dentro de su propio ámbito. Si un pedido 
+     * falla, se vuelve a su savepoint y el contexto de persistencia se limpia (lo ya 
+     * volcado está a salvo en la transacción) para que no arrastre entidades del pedido 
+     * deshecho. Las acciones tras confirmación que el pedido fallido llegó a registrar 
+     * (índice de idempotencia, publicación del resumen del cliente) se descartan con él, 
+     * para que no publiquen datos que nunca se confirmaron. Si el fallo deja la transacción 
+     * marcada para rollback, la confirmación del lote falla y sus pedidos válidos se 
+     * registran por separado, con reintentos ante conflictos de versión. Lo mismo ocurre con 
+     * los pedidos a los que el lote no llegó (por ejemplo, si la transacción no pudo 
+     * iniciarse o un savepoint no pudo crearse o deshacerse).
+     * </p>
+     */
+    private void confirmar(List<Solicitud> lote) {
+        // Los pedidos cuyo llamante ya dejó de esperar no se registran
+        lote.removeIf(s -> !s.iniciada().compareAndSet(false, true));
+        if (lote.isEmpty()) {
+            return;
+        }
+        long inicio = System.nanoTime();
+        lote.forEach(s -> esperaNanos.add(inicio - s.llegada()));
+
+        Map<Solicitud, CompraRespuestaDTO> aceptadas = new HashMap<>();
+        Map<Solicitud, RuntimeException> rechazadas = new HashMap<>();
+        try {
+            transaccionLote.executeWithoutResult(estado -> {
+                Session sesion = entityManager.unwrap(Session.class);
+                for (Solicitud s : lote) {
+                    Savepoint savepoint = sesion.doReturningWork(Connection::setSavepoint);
+                    List<TransactionSynchronization> previas = TransactionSynchronizationManager.getSynchronizations();
+                    try {
+                        CompraRespuestaDTO respuesta = compraService.registrarCompra(s.pedido());
+                        entityManager.flush();
+                        aceptadas.put(s, respuesta);
+                    } catch (RuntimeException e) {
+                        entityManager.clear();
+                        sesion.doWork(conexion -> conexion.rollback(savepoint));
+                        restaurarSincronizaciones(previas);
+                        rechazadas.put(s, e);
+                    }
+                }
+            });
+        } catch (RuntimeException errorConfirmacion) {
+            // El lote no se confirmó: los pedidos rechazados conservan su error y el resto 
+            // (aceptados o no alcanzados) se registran por separado
+            for (Solicitud s : lote) {
+                RuntimeException rechazo = rechazadas.get(s);
+                if (rechazo != null) {
+                    s.futuro().completeExceptionally(rechazo);
+                    continue;
+                }
+                try {
+                    s.futuro().complete(ejecutorReintentos.ejecutar(() -> compraService.procesarCompra(s.pedido())));
+                } catch (RuntimeException e) {
+                    s.futuro().completeExceptionally(e);
+                }
+            }
+            return;
+        } finally {
+            lotes.increment();
+            pedidos.add(lote.size());
+            confirmacionNanos.add(System.nanoTime() - inicio);
+        }
+        aceptadas.forEach((s, respuesta) -> s.futuro().complete(respuesta));
+        rechazadas.forEach((s, e) -> s.futuro().completeExceptionally(e));
+    }
+
+    /**
+     * Rechaza los pedidos del lote que hayan quedado sin respuesta.
+     */
+    private static void rechazarPendientes(List<Solicitud> lote, Throwable causa) {
+        for (Solicitud s : lote) {
+            if (!s.futuro().isDone()) {
+                s.futuro().completeExceptionally(new RuntimeException("Error: No se pudo confirmar el lote de pedidos", causa));
+            }
+        }
+    }
+
+    /**
+     * Deja registradas en la transacción solo las sincronizaciones anteriores a un pedido 
+     * deshecho, descartando las que el pedido añadió.
+     */
+    private static void restaurarSincronizaciones(List<TransactionSynchronization> previas) {
+        TransactionSynchronizationManager.clearSynchronization();
+        TransactionSynchronizationManager.initSynchronization();
+        previas.forEach(TransactionSynchronizationManager::registerSynchronization);
+    }
+}
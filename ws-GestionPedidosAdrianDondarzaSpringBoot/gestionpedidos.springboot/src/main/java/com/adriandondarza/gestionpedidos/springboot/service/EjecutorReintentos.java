@@ -0,0 +1,122 @@
+package com.adriandondarza.gestionpedidos.springboot.service;
+
+import jakarta.persistence.OptimisticLockException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Ejecutor de operaciones transaccionales con reintentos ante conflictos de concurrencia optimista.
+ * <p>
+ * Envuelve llamadas a servicios {@code @Transactional} desde fuera de la transacción, 
+ * de forma que cada reintento se ejecuta en una transacción nueva con datos frescos. 
+ * Entre intentos aplica una espera exponencial con jitter completo para que las 
+ * instancias en conflicto no vuelvan a colisionar en el mismo instante.
+ * </p>
+ * <p>
+ * Los parámetros se configuran mediante las propiedades {@code gestionpedidos.reintentos.*}.
+ * </p>
+ *
+ * @author Adrian Dondarza
+ * @version 1.0
+ * @since 2026-10-16
+ */
+@Component
+public class EjecutorReintentos {
+
+    @Value("${gestionpedidos.reintentos.max-intentos:3}")
+    private int maxIntentos;
+
+    @Value("${gestionpedidos.reintentos.espera-base-ms:20}")
+    private long esperaBaseMs;
+
+    @Value("${gestionpedidos.reintentos.espera-maxima-ms:500}")
+    private long esperaMaximaMs;
+
+    private final LongAdder operaciones = new LongAdder();
+    private final LongAdder reintentos = new LongAdder();
+    private final LongAdder agotados = new LongAdder();
+
+    /**
+     * Ejecuta la operación reintentándola mientras falle por un conflicto de versión.
+     *
+     * @param operacion Llamada a un método transaccional de la capa de servicio.
+     * @param <T> Tipo del resultado.
+     * @return Resultado del primer intento que finaliza correctamente.
+     * @throws OptimisticLockingFailureException Si el conflicto persiste tras agotar los intentos.
+     */
+    public <T> T ejecutar(Supplier<T> operacion) {
+        operaciones.increment();
+        for (int intento = 1; ; intento++) {
+            try {
+                return operacion.get();
+            } catch (RuntimeException e) {
+                if (!esConflictoOptimista(e)) {
+                    throw e;
+                }
+                if (intento >= maxIntentos) {
+                    agotados.increment();
+                    throw e;
+                }
+                reintentos.increment();
+                esperar(intento);
+            }
+        }
+    }
+
+    /**
+     * Variante sin valor de retorno de {@link #ejecutar(Supplier)}.
+     *
+     * @param operacion Llamada a un método transaccional de la capa de servicio.
+     */
+    public void ejecutar(Runnable operacion) {
+        ejecutar(() -> {
+            operacion.run();
+            return null;
+        });
+    }
+
+    /**
+     * @return Número total de operaciones ejecutadas a través del ejecutor.
+     */
+    public long getOperaciones() {
+        return operaciones.sum();
+    }
+
+    /**
+     * @return Número total de reintentos realizados por conflictos de versión.
+     */
+    public long getReintentos() {
+        return reintentos.sum();
+    }
+
+    /**
+     * @return Número de operaciones que fallaron tras agotar todos los intentos.
+     */
+    public long getAgotados() {
+        return agotados.sum();
+    }
+
+    private boolean esConflictoOptimista(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof OptimisticLockingFailureException || t instanceof OptimisticLockException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void esperar(int intento) {
+        long techo = Math.min(esperaMaximaMs, esperaBaseMs << Math.min(intento, 20));
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(techo + 1));
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Reintento interrumpido", ie);
+        }
+    }
+}
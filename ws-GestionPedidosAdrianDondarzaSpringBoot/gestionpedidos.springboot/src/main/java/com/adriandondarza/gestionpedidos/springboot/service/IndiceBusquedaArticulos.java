@@ -0,0 +1,507 @@
+package com.adriandondarza.gestionpedidos.springboot.service;
+
+import com.adriandondarza.gestionpedidos.springboot.repository.ArticuloRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongSupplier;
+import java.util.stream.Stream;
+
+/**
+ * Índice invertido de trigramas sobre los nombres de los artículos, para búsquedas por
+ * subcadena y por prefijo sin recorrer la tabla.
+ * <p>
+ * Los nombres se normalizan (mayúsculas, sin tildes, espacios simples) y cada trigrama
+ * apunta a la lista ordenada de los artículos activos que lo contienen, guardada en un
+ * {@code int[]}. Además se indexan dos trigramas con marcador al comienzo
+ * de cada palabra, de modo que las búsquedas de uno o dos caracteres se resuelven como
+ * comienzo de palabra. Una búsqueda interseca las listas de sus trigramas empezando por la
+ * más corta, comprueba los candidatos contra el nombre normalizado y ordena el resultado
+ * por relevancia:
+ * <ol>
+ * <li>Nombre idéntico al texto buscado.</li>
+ * <li>Nombre que empieza por el texto.</li>
+ * <li>Alguna palabra del nombre empieza por el texto.</li>
+ * <li>El texto aparece en cualquier otra posición.</li>
+ * </ol>
+ * A igual relevancia van primero los nombres más cortos y, después, el identificador menor.
+ * </p>
+ * <p>
+ * El índice se mantiene de forma incremental: {@link ArticuloService} comunica cada
+ * artículo guardado o desactivado y el cambio se aplica tras la confirmación. Cada
+ * entrada recuerda la versión del artículo y descarta cambios más antiguos que lleguen
+ * desordenados. Una reconstrucción periódica
+ * ({@code gestionpedidos.articulos.busqueda.reconstruccion-ms}) recoge los cambios hechos
+ * fuera de la aplicación; se construye aparte y se publica de una vez, repitiendo los
+ * cambios que llegaron mientras tanto. La primera búsqueda espera a la carga inicial.
+ * </p>
+ *
+ * @author Adrian Dondarza
+ * @version 1.0
+ * @since 2026-10-16
+ */
+@Component
+public class IndiceBusquedaArticulos {
+
+    /**
+     * Marcador de comienzo de palabra en los trigramas.
+     */
+    private static final char INICIO_PALABRA = '\u0002';
+
+    @Autowired
+    private ArticuloRepository articuloRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private TransactionTemplate lectura;
+
+    private final ReentrantReadWriteLock cerrojo = new ReentrantReadWriteLock();
+    private final Object cerrojoCarga = new Object();
+
+    // Protegidos por el cerrojo de lectura/escritura
+    private Indice actual;
+    private List<Cambio> cambiosDuranteCarga;
+
+    /**
+     * Datos indexados de un artículo: número de documento en las listas ({@code -1} si
+     * está inactivo) y versión aplicada.
+     */
+    private record Entrada(int documento, long version) {
+    }
+
+    /**
+     * Alta, modificación o desactivación de un artículo pendiente de aplicar.
+     */
+    private record Cambio(int id, String nombre, long version, boolean activo) {
+    }
+
+    /**
+     * Lista de números de documento ordenada de forma ascendente. Las cargas añaden en orden,
+     * así que el caso habitual es una escritura al final sin desplazamientos.
+     */
+    private static final class Postings {
+        private int[] ids = new int[4];
+        private int n;
+
+        private void anadir(int id) {
+            int pos = n > 0 && ids[n - 1] < id ? n : Arrays.binarySearch(ids, 0, n, id);
+            if (pos < 0) {
+                pos = -pos - 1;
+            } else if (pos < n) {
+                return;
+            }
+            if (n == ids.length) {
+                ids = Arrays.copyOf(ids, n + (n >> 1) + 1);
+            }
+            System.arraycopy(ids, pos, ids, pos + 1, n - pos);
+            ids[pos] = id;
+            n++;
+        }
+
+        private void quitar(int id) {
+            int pos = Arrays.binarySearch(ids, 0, n, id);
+            if (pos >= 0) {
+                System.arraycopy(ids, pos + 1, ids, pos, n - pos - 1);
+                n--;
+            }
+        }
+    }
+
+    /**
+     * Estado completo del índice.
+     * <p>
+     * Las listas no guardan identificadores de artículo sino números de documento densos,
+     * asignados en orden creciente, que indexan directamente los arreglos de nombres e
+     * identificadores. Un cambio de nombre asigna un documento nuevo (al final de todas
+     * las listas) y deja libre el anterior hasta la siguiente reconstrucción.
+     * </p>
+     */
+    private static final class Indice {
+        private final Map<Integer, Entrada> entradas = new HashMap<>();
+        private final Map<Long, Postings> trigramas = new HashMap<>();
+        private int[] ids = new int[1024];
+        private String[] nombres = new String[1024];
+        private int documentos;
+        private int activos;
+
+        private void aplicar(Cambio cambio) {
+            Entrada anterior = entradas.get(cambio.id());
+            if (anterior != null && anterior.version() > cambio.version()) {
+                return;
+            }
+            String normalizado = normalizar(cambio.nombre());
+            if (anterior != null && anterior.documento() >= 0) {
+                if (cambio.activo() && nombres[anterior.documento()].equals(normalizado)) {
+                    entradas.put(cambio.id(), new Entrada(anterior.documento(), cambio.version()));
+                    return;
+                }
+                for (long t : trigramasDe(nombres[anterior.documento()], true)) {
+                    Postings p = trigramas.get(t);
+                    p.quitar(anterior.documento());
+                    if (p.n == 0) {
+                        trigramas.remove(t);
+                    }
+                }
+                nombres[anterior.documento()] = null;
+                activos--;
+            }
+            if (!cambio.activo()) {
+                entradas.put(cambio.id(), new Entrada(-1, cambio.version()));
+                return;
+            }
+            if (documentos == ids.length) {
+                ids = Arrays.copyOf(ids, documentos * 2);
+                nombres = Arrays.copyOf(nombres, documentos * 2);
+            }
+            int documento = documentos++;
+            ids[documento] = cambio.id();
+            nombres[documento] = normalizado;
+            activos++;
+            for (long t : trigramasDe(normalizado, true)) {
+                trigramas.computeIfAbsent(t, k -> new Postings()).anadir(documento);
+            }
+            entradas.put(cambio.id(), new Entrada(documento, cambio.version()));
+        }
+    }
+
+    /**
+     * Montículo de máximos de tamaño acotado sobre claves {@code long}, para quedarse con
+     * los {@code limite} mejores resultados sin ordenar todos los candidatos.
+     */
+    private static final class Mejores {
+        private final long[] claves;
+        private int n;
+
+        private Mejores(int limite) {
+            claves = new long[limite];
+        }
+
+        private void ofrecer(long clave) {
+            if (n < claves.length) {
+                int i = n++;
+                while (i > 0 && claves[(i - 1) / 2] < clave) {
+                    claves[i] = claves[(i - 1) / 2];
+                    i = (i - 1) / 2;
+                }
+                claves[i] = clave;
+            } else if (clave < claves[0]) {
+                int i = 0;
+                while (true) {
+                    int hijo = 2 * i + 1;
+                    if (hijo >= n) {
+                        break;
+                    }
+                    if (hijo + 1 < n && claves[hijo + 1] > claves[hijo]) {
+                        hijo++;
+                    }
+                    if (claves[hijo] <= clave) {
+                        break;
+                    }
+                    claves[i] = claves[hijo];
+                    i = hijo;
+                }
+                claves[i] = clave;
+            }
+        }
+
+        private long[] ordenados() {
+            long[] resultado = Arrays.copyOf(claves, n);
+            Arrays.sort(resultado);
+            return resultado;
+        }
+    }
+
+    @PostConstruct
+    void iniciar() {
+        lectura = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        lectura.setReadOnly(true);
+    }
+
+    /**
+     * Busca artículos activos cuyo nombre contiene un texto, sin distinguir mayúsculas ni tildes.
+     * <p>
+     * Con menos de tres caracteres solo se encuentran nombres con alguna palabra que empiece
+     * por el texto.
+     * </p>
+     *
+     * @param texto Texto a buscar.
+     * @param soloPrefijo Si solo se aceptan nombres que empiezan por el texto.
+     * @param limite Número máximo de resultados.
+     * @return Identificadores de los artículos encontrados, por orden de relevancia.
+     */
+    public List<Integer> buscar(String texto, boolean soloPrefijo, int limite) {
+        String consulta = normalizar(texto);
+        if (consulta.isEmpty() || limite <= 0) {
+            return List.of();
+        }
+        asegurarCarga();
+        cerrojo.readLock().lock();
+        try {
+            return buscar(actual, consulta, soloPrefijo, limite);
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    /**
+     * Registra el alta, modificación o desactivación de un artículo. Dentro de una
+     * transacción se aplica tras su confirmación (y no se aplica si se deshace).
+     *
+     * @param id Identificador del artículo.
+     * @param nombre Nombre del artículo.
+     * @param activo Si el artículo está activo.
+     * @param version Versión del artículo; se lee al aplicar el cambio, tras el volcado.
+     */
+    public void actualizar(Integer id, String nombre, boolean activo, LongSupplier version) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    aplicar(new Cambio(id, nombre, version.getAsLong(), activo));
+                }
+            });
+        } else {
+            aplicar(new Cambio(id, nombre, version.getAsLong(), activo));
+        }
+    }
+
+    /**
+     * Reconstruye el índice desde la tabla de artículos.
+     */
+    @Scheduled(fixedDelayString = "${gestionpedidos.articulos.busqueda.reconstruccion-ms:3600000}")
+    public void reconstruir() {
+        synchronized (cerrojoCarga) {
+            cerrojo.writeLock().lock();
+            try {
+                cambiosDuranteCarga = new ArrayList<>();
+            } finally {
+                cerrojo.writeLock().unlock();
+            }
+            Indice nuevo = null;
+            try {
+                nuevo = lectura.execute(estado -> {
+                    Indice indice = new Indice();
+                    try (Stream<Object[]> filas = articuloRepository.recorrerNombres()) {
+                        filas.forEach(f -> indice.aplicar(new Cambio((Integer) f[0], (String) f[1],
+                                (Long) f[3], (Boolean) f[2])));
+                    }
+                    return indice;
+                });
+            } finally {
+                cerrojo.writeLock().lock();
+                try {
+                    if (nuevo != null) {
+                        cambiosDuranteCarga.forEach(nuevo::aplicar);
+                        actual = nuevo;
+                    }
+                    cambiosDuranteCarga = null;
+                } finally {
+                    cerrojo.writeLock().unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return Artículos activos indexados; {@code 0} antes de la carga inicial.
+     */
+    public int getArticulosIndexados() {
+        cerrojo.readLock().lock();
+        try {
+            return actual == null ? 0 : actual.activos;
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    private void asegurarCarga() {
+        cerrojo.readLock().lock();
+        try {
+            if (actual != null) {
+                return;
+            }
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+        synchronized (cerrojoCarga) {
+            cerrojo.readLock().lock();
+            try {
+                if (actual != null) {
+                    return;
+                }
+            } finally {
+                cerrojo.readLock().unlock();
+            }
+            reconstruir();
+        }
+    }
+
+    private void aplicar(Cambio cambio) {
+        cerrojo.writeLock().lock();
+        try {
+            if (actual != null) {
+                actual.aplicar(cambio);
+            }
+            if (cambiosDuranteCarga != null) {
+                cambiosDuranteCarga.add(cambio);
+            }
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    private static List<Integer> buscar(Indice indice, String consulta, boolean soloPrefijo, int limite) {
+        long[] claves = trigramasDe(consulta, false);
+        if (soloPrefijo || consulta.length() < 3) {
+            // Los trigramas con marcador limitan los candidatos a comienzos de palabra
+            long[] inicio = inicioDePalabra(consulta);
+            claves = Arrays.copyOf(claves, claves.length + inicio.length);
+            System.arraycopy(inicio, 0, claves, claves.length - inicio.length, inicio.length);
+        }
+        Postings[] listas = new Postings[claves.length];
+        for (int i = 0; i < claves.length; i++) {
+            listas[i] = indice.trigramas.get(claves[i]);
+            if (listas[i] == null) {
+                return List.of();
+            }
+        }
+        Arrays.sort(listas, (a, b) -> Integer.compare(a.n, b.n));
+
+        // Intersección partiendo de la lista más corta
+        int[] candidatos = Arrays.copyOf(listas[0].ids, listas[0].n);
+        int n = listas[0].n;
+        for (int j = 1; j < listas.length && n > 0; j++) {
+            n = intersecar(candidatos, n, listas[j]);
+        }
+
+        // Cada candidato se comprueba contra el nombre; relevancia, longitud e identificador
+        // se empaquetan en un long para seleccionar los mejores sin crear objetos
+        Mejores mejores = new Mejores(limite);
+        for (int i = 0; i < n; i++) {
+            int documento = candidatos[i];
+            String nombre = indice.nombres[documento];
+            int relevancia = relevancia(nombre, consulta);
+            if (relevancia < 0 || (soloPrefijo && relevancia > 1)) {
+                continue;
+            }
+            mejores.ofrecer(((long) relevancia << 56) | ((long) Math.min(nombre.length(), 0xFFFFFF) << 32)
+                    | indice.ids[documento]);
+        }
+        long[] ordenados = mejores.ordenados();
+        List<Integer> ids = new ArrayList<>(ordenados.length);
+        for (long clave : ordenados) {
+            ids.add((int) clave);
+        }
+        return ids;
+    }
+
+    /**
+     * Deja en {@code a[0, n)} los elementos que también están en {@code b}, avanzando por
+     * {@code b} con búsqueda exponencial (eficiente cuando {@code a} es mucho más corta).
+     *
+     * @return Número de elementos que quedan en {@code a}.
+     */
+    private static int intersecar(int[] a, int n, Postings b) {
+        int quedan = 0;
+        int pos = 0;
+        for (int i = 0; i < n && pos < b.n; i++) {
+            int valor = a[i];
+            int salto = 1;
+            while (pos + salto < b.n && b.ids[pos + salto] < valor) {
+                salto <<= 1;
+            }
+            pos = Arrays.binarySearch(b.ids, pos, Math.min(pos + salto + 1, b.n), valor);
+            if (pos >= 0) {
+                a[quedan++] = valor;
+            } else {
+                pos = -pos - 1;
+            }
+        }
+        return quedan;
+    }
+
+    /**
+     * @return {@code 0} si el nombre es el texto, {@code 1} si empieza por él, {@code 2} si
+     *         alguna palabra empieza por él, {@code 3} si lo contiene y {@code -1} si no.
+     */
+    private static int relevancia(String nombre, String consulta) {
+        if (nombre.equals(consulta)) {
+            return 0;
+        }
+        if (nombre.startsWith(consulta)) {
+            return 1;
+        }
+        int relevancia = -1;
+        for (int pos = nombre.indexOf(consulta); pos >= 0; pos = nombre.indexOf(consulta, pos + 1)) {
+            if (nombre.charAt(pos - 1) == ' ') {
+                return 2;
+            }
+            relevancia = 3;
+        }
+        // Con menos de tres caracteres solo cuentan los comienzos de palabra
+        return consulta.length() < 3 ? -1 : relevancia;
+    }
+
+    /**
+     * Trigramas de un nombre normalizado; con {@code conInicios}, también los de comienzo
+     * de cada palabra.
+     */
+    private static long[] trigramasDe(String texto, boolean conInicios) {
+        long[] claves = new long[Math.max(0, texto.length() - 2) + (conInicios ? 2 * texto.length() : 0)];
+        int n = 0;
+        for (int i = 0; i + 2 < texto.length(); i++) {
+            claves[n++] = clave(texto.charAt(i), texto.charAt(i + 1), texto.charAt(i + 2));
+        }
+        if (conInicios) {
+            for (int i = 0; i < texto.length(); i++) {
+                if (i == 0 || texto.charAt(i - 1) == ' ') {
+                    long[] inicio = inicioDePalabra(texto.substring(i));
+                    for (long c : inicio) {
+                        claves[n++] = c;
+                    }
+                }
+            }
+        }
+        return Arrays.stream(claves, 0, n).distinct().toArray();
+    }
+
+    /**
+     * Trigramas con marcador de una palabra que empieza por el texto indicado.
+     */
+    private static long[] inicioDePalabra(String texto) {
+        if (texto.length() == 1 || texto.charAt(1) == ' ') {
+            return new long[]{clave(INICIO_PALABRA, INICIO_PALABRA, texto.charAt(0))};
+        }
+        return new long[]{clave(INICIO_PALABRA, INICIO_PALABRA, texto.charAt(0)),
+                clave(INICIO_PALABRA, texto.charAt(0), texto.charAt(1))};
+    }
+
+    private static long clave(char a, char b, char c) {
+        return ((long) a << 32) | ((long) b << 16) | c;
+    }
+
+    /**
+     * Mayúsculas, sin marcas diacríticas y con los espacios reducidos a uno.
+     */
+    static String normalizar(String texto) {
+        if (texto == null) {
+            return "";
+        }
+        String sinTildes = Normalizer.normalize(texto, Normalizer.Form.NFD).replaceAll("\\p{M}+", "");
+        return sinTildes.toUpperCase(Locale.ROOT).trim().replaceAll("\\s+", " ");
+    }
+}
@@ -0,0 +1,220 @@
+package com.adriandondarza.gestionpedidos.springboot.service;
+
+import com.adriandondarza.gestionpedidos.springboot.dto.CompraRespuestaDTO;
+import com.adriandondarza.gestionpedidos.springboot.model.Compra;
+import com.adriandondarza.gestionpedidos.springboot.model.CompraIdempotencia;
+import com.adriandondarza.gestionpedidos.springboot.repository.CompraIdempotenciaRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.PersistenceException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Índice de deduplicación de pedidos por clave de idempotencia.
+ * <p>
+ * Mantiene en memoria, durante una ventana de caducidad y hasta un número máximo de
+ * entradas, la respuesta original de cada pedido enviado con clave. Un reenvío cuya
+ * clave está en memoria se resuelve sin ningún acceso a base de datos. La tabla
+ * {@code compras_idempotencia} es la copia duradera: cubre los reenvíos posteriores a
+ * la ventana, los reinicios del servidor y las claves registradas por otros nodos, y
+ * su clave primaria impide registrar dos veces la misma clave aunque los dos envíos
+ * lleguen a la vez.
+ * </p>
+ * <p>
+ * Las entradas se añaden a memoria solo tras la confirmación de la transacción que
+ * registró la compra, de modo que nunca se devuelve una compra que acabó deshecha.
+ * </p>
+ *
+ * @author Adrian Dondarza
+ * @version 1.0
+ * @since 2026-10-16
+ */
+@Component
+public class IndiceIdempotenciaCompras {
+
+    @Value("${gestionpedidos.compras.idempotencia.max-entradas:100000}")
+    private int maxEntradas;
+
+    @Value("${gestionpedidos.compras.idempotencia.ventana-ms:3600000}")
+    private long ventanaMs;
+
+    @Value("${gestionpedidos.compras.idempotencia.retencion-horas:72}")
+    private long retencionHoras;
+
+    @Autowired
+    private CompraIdempotenciaRepository compraIdempotenciaRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private TraductorRestricciones traductorRestricciones;
+
+    private final Map<String, Entrada> entradas = new ConcurrentHashMap<>();
+
+    /**
+     * Claves en orden de inserción. La ventana es igual para todas, así que el orden de
+     * inserción coincide con el de caducidad y la expulsión solo mira la cabeza.
+     */
+    private final Queue<String> orden = new ConcurrentLinkedQueue<>();
+
+    private final LongAdder aciertosMemoria = new LongAdder();
+    private final LongAdder aciertosTabla = new LongAdder();
+
+    private record Entrada(CompraRespuestaDTO respuesta, long caduca) {
+    }
+
+    /**
+     * Busca en memoria la respuesta original de una clave.
+     *
+     * @param clave Clave de idempotencia.
+     * @return Respuesta original, o {@code null} si la clave no está en memoria o ha caducado.
+     */
+    public CompraRespuestaDTO buscar(String clave) {
+        Entrada entrada = entradas.get(clave);
+        if (entrada == null || entrada.caduca() < System.nanoTime()) {
+            return null;
+        }
+        aciertosMemoria.increment();
+        return entrada.respuesta();
+    }
+
+    /**
+     * Busca en la tabla duradera las compras registradas con las claves indicadas.
+     *
+     * @param claves Claves de idempotencia no encontradas en memoria.
+     * @return Mapa de clave a compra original (con su cliente cargado).
+     */
+    public Map<String, Compra> buscarRegistradas(Collection<String> claves) {
+        Map<String, Compra> compras = new HashMap<>();
+        if (claves.isEmpty()) {
+            return compras;
+        }
+        for (CompraIdempotencia registro : compraIdempotenciaRepository.buscarConCompra(claves)) {
+            compras.put(registro.getClave(), registro.getCompra());
+        }
+        aciertosTabla.add(compras.size());
+        return compras;
+    }
+
+    /**
+     * Añade a memoria la respuesta de una clave ya confirmada en base de datos.
+     *
+     * @param clave Clave de idempotencia.
+     * @param respuesta Respuesta original del pedido.
+     */
+    public void recordar(String clave, CompraRespuestaDTO respuesta) {
+        if (entradas.put(clave, new Entrada(respuesta, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ventanaMs))) == null) {
+            orden.add(clave);
+        }
+        expulsar();
+    }
+
+    /**
+     * Registra las claves de los pedidos recién creados en la transacción activa.
+     * <p>
+     * Las filas se insertan y vuelcan de inmediato. Si otra transacción registró ya
+     * (o está registrando) alguna de las claves, la violación de {@code pk_compras_idempotencia}
+     * se convierte en un conflicto de concurrencia optimista: la transacción se deshace, y al
+     * reintentarla el pedido encuentra la clave y devuelve la compra original. Cualquier otro 
+     * error del volcado se propaga sin cambios. Las entradas pasan a memoria tras la confirmación.
+     * </p>
+     *
+     * @param respuestas Respuesta de cada pedido, por clave. Las compras deben estar ya persistidas.
+     * @throws OptimisticLockingFailureException Si alguna clave ya estaba registrada.
+     */
+    public void registrar(Map<String, CompraRespuestaDTO> respuestas) {
+        LocalDateTime ahora = LocalDateTime.now();
+        // Los errores de las propias compras se vuelcan antes, para no confundirlos con un conflicto de clave
+        entityManager.flush();
+        try {
+            for (Map.Entry<String, CompraRespuestaDTO> r : respuestas.entrySet()) {
+                Compra compra = entityManager.getReference(Compra.class, r.getValue().getId());
+                entityManager.persist(new CompraIdempotencia(r.getKey(), compra, ahora));
+            }
+            entityManager.flush();
+        } catch (PersistenceException e) {
+            if (!TraductorRestricciones.PK_COMPRAS_IDEMPOTENCIA.equals(traductorRestricciones.restriccionViolada(e))) {
+                throw e;
+            }
+            throw new OptimisticLockingFailureException(
+                    "Pedido con clave de idempotencia registrado concurrentemente: " + respuestas.keySet(), e);
+        }
+        Map<String, CompraRespuestaDTO> confirmadas = new HashMap<>(respuestas);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    confirmadas.forEach(IndiceIdempotenciaCompras.this::recordar);
+                }
+            });
+        } else {
+            confirmadas.forEach(this::recordar);
+        }
+    }
+
+    /**
+     * @return Entradas actualmente en memoria.
+     */
+    public int getEntradas() {
+        return entradas.size();
+    }
+
+    /**
+     * @return Reenvíos resueltos desde memoria, sin acceso a base de datos.
+     */
+    public long getAciertosMemoria() {
+        return aciertosMemoria.sum();
+    }
+
+    /**
+     * @return Reenvíos resueltos desde la tabla duradera.
+     */
+    public long getAciertosTabla() {
+        return aciertosTabla.sum();
+    }
+
+    /**
+     * Elimina de la tabla duradera las claves que superan el tiempo de retención.
+     */
+    @Scheduled(fixedDelayString = "${gestionpedidos.compras.idempotencia.purga-ms:3600000}")
+    @Transactional
+    public void purgar() {
+        compraIdempotenciaRepository.eliminarAnterioresA(LocalDateTime.now().minusHours(retencionHoras));
+        expulsar();
+    }
+
+    /**
+     * Expulsa desde la cabeza las entradas caducadas y, si se supera el máximo, las más antiguas.
+     */
+    private void expulsar() {
+        long ahora = System.nanoTime();
+        String clave;
+        while ((clave = orden.peek()) != null) {
+            Entrada entrada = entradas.get(clave);
+            if (entrada != null && entrada.caduca() >= ahora && entradas.size() <= maxEntradas) {
+                return;
+            }
+            if (orden.remove(clave)) {
+                entradas.remove(clave);
+            }
+        }
+    }
+}
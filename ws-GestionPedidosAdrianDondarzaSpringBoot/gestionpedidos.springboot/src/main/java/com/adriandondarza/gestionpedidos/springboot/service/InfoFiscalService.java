@@ -1,14 +1,30 @@
 package com.adriandondarza.gestionpedidos.springboot.service;
 
+import com.adriandondarza.gestionpedidos.springboot.dto.ClienteDTO;
 import com.adriandondarza.gestionpedidos.springboot.dto.InfoFiscalDTO;
+import com.adriandondarza.gestionpedidos.springboot.dto.ResultadoAltaClienteDTO;
+import com.adriandondarza.gestionpedidos.springboot.dto.ResultadoValidacionDTO;
+import com.adriandondarza.gestionpedidos.springboot.dto.ResumenAltaClientesDTO;
 import com.adriandondarza.gestionpedidos.springboot.model.Cliente;
 import com.adriandondarza.gestionpedidos.springboot.model.InfoFiscal;
 import com.adriandondarza.gestionpedidos.springboot.repository.InfoFiscalRepository;
 import com.adriandondarza.gestionpedidos.springboot.repository.ClienteRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Servicio de gestión de la identidad fiscal y legal de los usuarios del sistema.
@@ -31,81 +47,331 @@ public class InfoFiscalService {
     @Autowired
     private ClienteRepository clienteRepository;
 
+    @Autowired
+    private ResumenClienteService resumenClienteService;
+
+    @Autowired
+    private CacheClientes cacheClientes;
+
+    @Autowired
+    private ValidadorDatos validadorDatos;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private TraductorRestricciones traductorRestricciones;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${gestionpedidos.clientes.alta.lote:1000}")
+    private int tamanoLote;
+
+    /**
+     * Límite de elementos por consulta {@code IN} (Oracle admite hasta 1000 por lista).
+     */
+    private static final int MAX_IDS_CONSULTA = 1000;
+
     /**
      * Registra de forma atómica la información fiscal y el perfil de cliente asociado.
      * <p>
      * El proceso garantiza la integridad de los datos mediante:
      * <ul>
-     * <li>Validación de formato de NIF (8 números y 1 letra) y Teléfono (9 números).</li>
-     * <li>Verificación de existencia del NIF/CIF en la tabla fiscal.</li>
-     * <li>Comprobación de disponibilidad del email generado sistemáticamente.</li>
+     * <li>Normalización del NIF/NIE/CIF a mayúsculas antes de validarlo, de forma que 
+     * {@code 12345678z} y {@code 12345678Z} identifican al mismo sujeto.</li>
+     * <li>Validación de formato del NIF/NIE/CIF (incluido su carácter de control), del 
+     * teléfono (9 números) y de los campos obligatorios, con {@link ValidadorDatos}.</li>
+     * <li>Inserción directa, sin consultas previas: las restricciones únicas del NIF/CIF, 
+     * del email generado sistemáticamente y del teléfono detectan los duplicados, y 
+     * {@link TraductorRestricciones} los convierte en el error correspondiente.</li>
      * </ul>
      * </p>
      *
      * @param dto Objeto de transferencia con los datos fiscales y el nombre del cliente.
-     * @return {@link InfoFiscalDTO} con los datos procesados.
-     * @throws RuntimeException Si los formatos son inválidos, el NIF ya existe o el email está en uso.
+     * @return {@link InfoFiscalDTO} con los datos procesados (NIF/CIF en mayúsculas).
+     * @throws RuntimeException Si los formatos son inválidos, el NIF ya existe o el email o el 
+     * teléfono están en uso.
      */
     @Transactional
     public InfoFiscalDTO registrarInfoFiscal(InfoFiscalDTO dto) {
+        InfoFiscalDTO normalizado = normalizar(dto);
+        registrar(normalizado);
+        return normalizado;
+    }
+
+    /**
+     * Da de alta en bloque un fichero de clientes, confirmando por tramos.
+     * <p>
+     * Cada tramo de {@code gestionpedidos.clientes.alta.lote} registros (como máximo 1000) 
+     * se resuelve en una única transacción:
+     * <ul>
+     * <li>Los NIF/CIF se normalizan a mayúsculas antes de cualquier comprobación.</li>
+     * <li>El formato de todos los registros se valida en memoria con {@link ValidadorDatos}.</li>
+     * <li>Los NIF, emails y teléfonos ya registrados se detectan con una consulta {@code IN} 
+     * por columna; los repetidos dentro del propio fichero se detectan en memoria.</li>
+     * <li>Información fiscal y clientes se insertan mediante lotes JDBC, y sus resúmenes 
+     * con una única sentencia.</li>
+     * </ul>
+     * Los registros erróneos se rechazan individualmente sin afectar al resto. Si el tramo 
+     * no puede confirmarse (por ejemplo, porque otra transacción registró el mismo NIF entre 
+     * la comprobación y la inserción), se deshace y sus registros se procesan uno a uno.
+     * </p>
+     *
+     * @param registros Registros a dar de alta, en el orden del fichero de origen.
+     * @return Resumen con un {@link ResultadoAltaClienteDTO} por registro, en el mismo 
+     * orden de entrada, y la duración total del alta.
+     */
+    public ResumenAltaClientesDTO registrarLote(List<InfoFiscalDTO> registros) {
+        long inicio = System.nanoTime();
+        int tamano = Math.min(tamanoLote, MAX_IDS_CONSULTA);
+        List<ResultadoAltaClienteDTO> resultados = new ArrayList<>(registros.size());
+        for (int desde = 0; desde < registros.size(); desde += tamano) {
+            int hasta = Math.min(desde + tamano, registros.size());
+            resultados.addAll(procesarTramo(registros, desde, hasta));
+        }
+
+        int altas = (int) resultados.stream().filter(ResultadoAltaClienteDTO::isExito).count();
+        long duracionMs = Math.max(1, (System.nanoTime() - inicio) / 1_000_000);
+        return new ResumenAltaClientesDTO(resultados, altas, resultados.size() - altas,
+                duracionMs, resultados.size() * 1000.0 / duracionMs);
+    }
+
+    /**
+     * Valida el formato de un fichero de registros fiscales sin darlos de alta.
+     * <p>
+     * Aplica las mismas comprobaciones que {@link #registrarInfoFiscal(InfoFiscalDTO)}, 
+     * salvo las de duplicados, y devuelve todos los errores de cada registro.
+     * </p>
+     *
+     * @param registros Registros en el orden del fichero.
+     * @return Un {@link ResultadoValidacionDTO} por registro, en el mismo orden.
+     */
+    public List<ResultadoValidacionDTO> validarRegistros(List<InfoFiscalDTO> registros) {
+        return validadorDatos.validarInfoFiscal(registros);
+    }
+
+    /**
+     * Elimina el registro fiscal y, por cascada, el perfil de cliente vinculado.
+     * <p>
+     * Esta operación es irreversible y debe usarse con precaución, ya que la 
+     * integridad referencial de la base de datos eliminará toda la información 
+     * legal del sujeto identificado por el NIF proporcionado.
+     * </p>
+     *
+     * @param nif Identificador fiscal único del registro a eliminar.
+     * @throws RuntimeException Si el NIF no corresponde a ningún registro existente.
+     */
+    @Transactional
+    public void eliminarInfoFiscal(String nif) {
+        if (!infoFiscalRepository.existsById(nif)) {
+            throw new RuntimeException("Error: No se puede eliminar. No existe información fiscal con NIF: " + nif);
+        }
+        infoFiscalRepository.deleteById(nif);
+        resumenClienteService.olvidar(nif);
+        cacheClientes.invalidar(nif);
+    }
+
+    /**
+     * Cuerpo de {@link #registrarInfoFiscal(InfoFiscalDTO)}, reutilizado por el alta en lote 
+     * cuando un tramo se procesa registro a registro. Recibe el registro ya normalizado.
+     */
+    private ClienteDTO registrar(InfoFiscalDTO dto) {
         
-        // 1. VALIDACIÓN DE FORMATO (JAVA PURO)
-        
-        // Comprobar NIF: 8 dígitos y 1 letra (Mayúscula o minúscula)
-        if (dto.getNifCif() == null || !dto.getNifCif().matches("^[0-9]{8}[A-Za-z]$")) {
-            throw new RuntimeException("Validación: El NIF debe tener 8 números y una letra final (ej. 12345678A).");
+        // 1. VALIDACIÓN DE FORMATO (todos los errores del registro en un único mensaje)
+        validadorDatos.exigir(validadorDatos.validar(dto));
+
+        // 2. DUPLICADOS YA CONOCIDOS POR LA CACHÉ DE CLIENTES (sin acceso a base de datos)
+        String emailGenerado = emailDe(dto.getNifCif());
+        if (cacheClientes.contieneNif(dto.getNifCif())) {
+            throw new RuntimeException(nifDuplicado(dto.getNifCif()));
+        }
+        if (cacheClientes.contieneEmail(emailGenerado)) {
+            throw new RuntimeException(emailDuplicado(emailGenerado));
+        }
+
+        // 3. CREACIÓN Y VINCULACIÓN DE ENTIDADES
+        InfoFiscal info = nuevoRegistro(dto, emailGenerado);
+
+        // 4. INSERCIÓN DIRECTA: la persistencia del padre (InfoFiscal) arrastra al hijo (Cliente) 
+        // por CascadeType.ALL; persist (no merge) hace que un NIF existente viole la clave primaria
+        try {
+            entityManager.persist(info);
+            infoFiscalRepository.flush();
+        } catch (DataIntegrityViolationException e) {
+            throw traductorRestricciones.traducir(e, Map.of(
+                    TraductorRestricciones.PK_INFORMACION_FISCAL, nifDuplicado(dto.getNifCif()),
+                    TraductorRestricciones.PK_CLIENTES, nifDuplicado(dto.getNifCif()),
+                    TraductorRestricciones.UK_CLIENTE_EMAIL, emailDuplicado(emailGenerado),
+                    TraductorRestricciones.UK_FISCAL_TELEFONO, telefonoDuplicado(dto.getTelefono())));
+        }
+        resumenClienteService.crear(info.getNifCif());
+        ClienteDTO cliente = convertirADTO(info);
+        cacheClientes.recordar(cliente);
+        return cliente;
+    }
+
+    /**
+     * Procesa un tramo del fichero en bloque y, si el tramo no puede confirmarse 
+     * como conjunto, repite sus registros de forma individual.
+     */
+    private List<ResultadoAltaClienteDTO> procesarTramo(List<InfoFiscalDTO> registros, int desde, int hasta) {
+        List<InfoFiscalDTO> tramo = registros.subList(desde, hasta).stream()
+                .map(InfoFiscalService::normalizar)
+                .toList();
+        try {
+            return transactionTemplate.execute(estado -> procesarTramoEnBloque(tramo, desde));
+        } catch (RuntimeException e) {
+            List<ResultadoAltaClienteDTO> resultados = new ArrayList<>(tramo.size());
+            for (int i = 0; i < tramo.size(); i++) {
+                InfoFiscalDTO registro = tramo.get(i);
+                try {
+                    resultados.add(ResultadoAltaClienteDTO.correcto(desde + i,
+                            transactionTemplate.execute(estado -> registrar(registro))));
+                } catch (RuntimeException errorRegistro) {
+                    resultados.add(ResultadoAltaClienteDTO.fallido(desde + i, List.of(errorRegistro.getMessage())));
+                }
+            }
+            return resultados;
         }
+    }
 
-        // Comprobar Teléfono: Exactamente 9 dígitos numéricos
-        if (dto.getTelefono() == null || !dto.getTelefono().matches("^[0-9]{9}$")) {
-            throw new RuntimeException("Validación: El teléfono debe contener exactamente 9 números.");
+    /**
+     * Cuerpo transaccional de {@link #procesarTramo}: validación en memoria, detección 
+     * de duplicados por conjuntos e inserción en lote. Recibe los registros ya normalizados.
+     */
+    private List<ResultadoAltaClienteDTO> procesarTramoEnBloque(List<InfoFiscalDTO> tramo, int desde) {
+        ResultadoAltaClienteDTO[] resultados = new ResultadoAltaClienteDTO[tramo.size()];
+
+        // 1. Formato: se descartan los registros con errores antes de consultar la base de datos
+        List<Integer> validos = new ArrayList<>(tramo.size());
+        for (ResultadoValidacionDTO validacion : validadorDatos.validarInfoFiscal(tramo)) {
+            if (validacion.isValido()) {
+                validos.add(validacion.getIndice());
+            } else {
+                resultados[validacion.getIndice()] = ResultadoAltaClienteDTO.fallido(
+                        desde + validacion.getIndice(), validacion.getErrores());
+            }
         }
 
-        // 2. CONTROL DE NIF DUPLICADO EN BASE DE DATOS
-        if (infoFiscalRepository.existsById(dto.getNifCif())) {
-            throw new RuntimeException("Error: Ya existe un registro con el NIF " + dto.getNifCif());
+        // 2. Duplicados en base de datos: una consulta IN por columna única
+        Set<String> nifs = new HashSet<>();
+        Set<String> emails = new HashSet<>();
+        Set<String> telefonos = new HashSet<>();
+        for (int i : validos) {
+            nifs.add(tramo.get(i).getNifCif());
+            emails.add(emailDe(tramo.get(i).getNifCif()));
+            telefonos.add(tramo.get(i).getTelefono());
         }
+        Set<String> nifsExistentes = nifs.isEmpty() ? Set.of() : new HashSet<>(infoFiscalRepository.buscarNifsExistentes(nifs));
+        Set<String> emailsExistentes = emails.isEmpty() ? Set.of() : new HashSet<>(clienteRepository.buscarEmailsExistentes(emails));
+        Set<String> telefonosExistentes = telefonos.isEmpty() ? Set.of() : new HashSet<>(infoFiscalRepository.buscarTelefonosExistentes(telefonos));
+
+        // 3. Duplicados dentro del fichero (se acepta la primera aparición) e inserción en lote
+        Map<String, Integer> nifsVistos = new HashMap<>();
+        Map<String, Integer> emailsVistos = new HashMap<>();
+        Map<String, Integer> telefonosVistos = new HashMap<>();
+        List<String> nifsAlta = new ArrayList<>(validos.size());
+        for (int i : validos) {
+            InfoFiscalDTO registro = tramo.get(i);
+            String email = emailDe(registro.getNifCif());
+            List<String> errores = new ArrayList<>(0);
+            if (nifsExistentes.contains(registro.getNifCif())) {
+                errores.add(nifDuplicado(registro.getNifCif()));
+            } else if (emailsExistentes.contains(email)) {
+                errores.add(emailDuplicado(email));
+            } else if (nifsVistos.containsKey(registro.getNifCif())) {
+                errores.add("Error: El NIF " + registro.getNifCif() + " está repetido en el fichero (registro "
+                        + nifsVistos.get(registro.getNifCif()) + ").");
+            } else if (emailsVistos.containsKey(email)) {
+                errores.add("Error: El email " + email + " está repetido en el fichero (registro "
+                        + emailsVistos.get(email) + ").");
+            }
+            if (telefonosExistentes.contains(registro.getTelefono())) {
+                errores.add(telefonoDuplicado(registro.getTelefono()));
+            } else if (telefonosVistos.containsKey(registro.getTelefono())) {
+                errores.add("Error: El teléfono " + registro.getTelefono() + " está repetido en el fichero (registro "
+                        + telefonosVistos.get(registro.getTelefono()) + ").");
+            }
+            if (!errores.isEmpty()) {
+                resultados[i] = ResultadoAltaClienteDTO.fallido(desde + i, errores);
+                continue;
+            }
+            nifsVistos.put(registro.getNifCif(), desde + i);
+            emailsVistos.put(email, desde + i);
+            telefonosVistos.put(registro.getTelefono(), desde + i);
 
-        // 3. CONTROL DE EMAIL DUPLICADO
-        String emailGenerado = dto.getNifCif().toLowerCase() + "@mail.com";
-        if (clienteRepository.existsByEmail(emailGenerado)) {
-            throw new RuntimeException("Error: El email " + emailGenerado + " ya está registrado en el sistema.");
+            // persist (no merge): el NIF viene asignado y no hace falta comprobar si existe
+            InfoFiscal info = nuevoRegistro(registro, email);
+            entityManager.persist(info);
+            nifsAlta.add(info.getNifCif());
+            resultados[i] = ResultadoAltaClienteDTO.correcto(desde + i, convertirADTO(info));
         }
 
-        // 4. CREACIÓN Y VINCULACIÓN DE ENTIDADES
+        // 4. Volcado de los lotes de inserción y resúmenes de todo el tramo en una sentencia
+        if (!nifsAlta.isEmpty()) {
+            entityManager.flush();
+            resumenClienteService.crear(nifsAlta);
+            for (ResultadoAltaClienteDTO resultado : resultados) {
+                if (resultado.isExito()) {
+                    cacheClientes.recordar(resultado.getCliente());
+                }
+            }
+        }
+        return List.of(resultados);
+    }
+
+    /**
+     * Crea la información fiscal y el cliente de un registro, vinculados en ambos sentidos.
+     */
+    private InfoFiscal nuevoRegistro(InfoFiscalDTO dto, String email) {
         InfoFiscal info = new InfoFiscal(dto.getNifCif(), dto.getDireccionFiscal(), dto.getTelefono());
         
         Cliente cliente = new Cliente();
         cliente.setNombre(dto.getNombreCliente());
-        cliente.setEmail(emailGenerado);
+        cliente.setEmail(email);
         cliente.setFechaRegistro(LocalDate.now());
 
         // Establecimiento del vínculo bidireccional
         info.setCliente(cliente);
         cliente.setInformacionFiscal(info);
+        return info;
+    }
 
-        // La persistencia del padre (InfoFiscal) arrastra al hijo (Cliente) por CascadeType.ALL
-        infoFiscalRepository.saveAndFlush(info);
-
-        return dto;
+    private ClienteDTO convertirADTO(InfoFiscal info) {
+        Cliente cliente = info.getCliente();
+        return new ClienteDTO(info.getNifCif(), cliente.getNombre(), cliente.getEmail(),
+                cliente.getFechaRegistro(), info.getDireccionFiscal(), info.getTelefono());
     }
 
     /**
-     * Elimina el registro fiscal y, por cascada, el perfil de cliente vinculado.
-     * <p>
-     * Esta operación es irreversible y debe usarse con precaución, ya que la 
-     * integridad referencial de la base de datos eliminará toda la información 
-     * legal del sujeto identificado por el NIF proporcionado.
-     * </p>
-     *
-     * @param nif Identificador fiscal único del registro a eliminar.
-     * @throws RuntimeException Si el NIF no corresponde a ningún registro existente.
+     * Copia del registro con el NIF/CIF en mayúsculas, la forma en que se valida, se 
+     * compara y se almacena (el email generado lo usa en minúsculas).
      */
-    @Transactional
-    public void eliminarInfoFiscal(String nif) {
-        if (!infoFiscalRepository.existsById(nif)) {
-            throw new RuntimeException("Error: No se puede eliminar. No existe información fiscal con NIF: " + nif);
+    private static InfoFiscalDTO normalizar(InfoFiscalDTO dto) {
+        if (dto == null) {
+            return null;
         }
-        infoFiscalRepository.deleteById(nif);
+        String nif = dto.getNifCif() != null ? dto.getNifCif().toUpperCase(Locale.ROOT) : null;
+        return new InfoFiscalDTO(nif, dto.getDireccionFiscal(), dto.getTelefono(), dto.getNombreCliente());
+    }
+
+    /**
+     * Email generado sistemáticamente a partir del NIF/CIF.
+     */
+    private static String emailDe(String nif) {
+        return nif.toLowerCase() + "@mail.com";
+    }
+
+    private static String nifDuplicado(String nif) {
+        return "Error: Ya existe un registro con el NIF " + nif;
+    }
+
+    private static String emailDuplicado(String email) {
+        return "Error: El email " + email + " ya está registrado en el sistema.";
+    }
+
+    private static String telefonoDuplicado(String telefono) {
+        return "Error: El teléfono " + telefono + " ya está registrado en el sistema.";
     }
-}
\ No newline at end of file
+}
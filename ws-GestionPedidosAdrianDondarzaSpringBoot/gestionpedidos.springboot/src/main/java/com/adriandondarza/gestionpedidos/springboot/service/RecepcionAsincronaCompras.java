@@ -0,0 +1,315 @@
+package com.adriandondarza.gestionpedidos.springboot.service;
+
+import com.adriandondarza.gestionpedidos.springboot.dto.CompraRegistroDTO;
+import com.adriandondarza.gestionpedidos.springboot.dto.CompraRespuestaDTO;
+import com.adriandondarza.gestionpedidos.springboot.dto.TicketCompraDTO;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Recepción asíncrona de pedidos con cola acotada y trabajadores en hilos virtuales.
+ * <p>
+ * El llamante recibe un ticket en cuanto el pedido entra en la cola, sin esperar al
+ * acceso a base de datos. Un número fijo de trabajadores (hilos virtuales) extrae los
+ * pedidos y los registra por la misma vía que la recepción síncrona (reintentos
+ * optimistas y, si está activa, confirmación agrupada). El número de trabajadores
+ * limita las conexiones que esta vía puede ocupar a la vez; la capacidad de la cola
+ * limita los pedidos aceptados pendientes, de modo que si la recepción supera a la base
+ * de datos los nuevos pedidos se rechazan al instante en lugar de acumularse sin límite.
+ * </p>
+ * <p>
+ * Los tickets finalizados se conservan durante un tiempo de retención configurable
+ * para su consulta y después se purgan.
+ * </p>
+ *
+ * @author Adrian Dondarza
+ * @version 1.0
+ * @since 2026-10-16
+ */
+@Component
+public class RecepcionAsincronaCompras {
+
+    private static final String PENDIENTE = "PENDIENTE";
+    private static final String EN_PROCESO = "EN_PROCESO";
+    private static final String COMPLETADO = "COMPLETADO";
+    private static final String RECHAZADO = "RECHAZADO";
+
+    @Value("${gestionpedidos.compras.asincrono.capacidad:1000}")
+    private int capacidad;
+
+    @Value("${gestionpedidos.compras.asincrono.trabajadores:8}")
+    private int trabajadores;
+
+    @Value("${gestionpedidos.compras.asincrono.retencion-ms:600000}")
+    private long retencionMs;
+
+    @Autowired
+    private CompraService compraService;
+
+    @Autowired
+    private EjecutorReintentos ejecutorReintentos;
+
+    @Autowired
+    private ConfirmacionAgrupadaCompras confirmacionAgrupada;
+
+    private BlockingQueue<Ticket> cola;
+    private final Map<String, Ticket> tickets = new ConcurrentHashMap<>();
+    private final List<Thread> hilos = new ArrayList<>();
+    private volatile boolean activa;
+
+    private final LongAdder aceptados = new LongAdder();
+    private final LongAdder rechazadosPorCola = new LongAdder();
+    private final LongAdder completados = new LongAdder();
+    private final LongAdder fallidos = new LongAdder();
+    private final LongAdder esperaNanos = new LongAdder();
+    private final LongAdder procesamientoNanos = new LongAdder();
+
+    /**
+     * Pedido recibido junto con su estado de procesamiento y el futuro de su resultado.
+     */
+    private static final class Ticket {
+        private final String id = UUID.randomUUID().toString();
+        private final CompraRegistroDTO pedido;
+        private final long llegada = System.nanoTime();
+        private final CompletableFuture<CompraRespuestaDTO> futuro = new CompletableFuture<>();
+        private volatile String estado = PENDIENTE;
+        private volatile long finalizado;
+
+        private Ticket(CompraRegistroDTO pedido) {
+            this.pedido = pedido;
+        }
+    }
+
+    @PostConstruct
+    void iniciar() {
+        cola = new ArrayBlockingQueue<>(capacidad);
+        activa = true;
+        for (int i = 0; i < trabajadores; i++) {
+            hilos.add(Thread.ofVirtual().name("recepcion-pedidos-" + i).start(this::trabajar));
+        }
+    }
+
+    @PreDestroy
+    void detener() throws InterruptedException {
+        activa = false;
+        for (Thread hilo : hilos) {
+            hilo.interrupt();
+            hilo.join(TimeUnit.SECONDS.toMillis(5));
+        }
+        Ticket pendiente;
+        while ((pendiente = cola.poll()) != null) {
+            finalizar(pendiente, null, new RuntimeException("Servicio de pedidos detenido"));
+        }
+    }
+
+    /**
+     * Acepta un pedido para su registro en segundo plano.
+     *
+     * @param pedido Pedido a registrar.
+     * @return Ticket del pedido en estado PENDIENTE.
+     * @throws RuntimeException Si la cola de pedidos está llena o el servicio detenido.
+     */
+    public TicketCompraDTO enviar(CompraRegistroDTO pedido) {
+        return convertirADTO(encolar(pedido));
+    }
+
+    /**
+     * Acepta un pedido para su registro en segundo plano y notifica su resultado.
+     * <p>
+     * La notificación se ejecuta en el hilo trabajador que procesó el pedido; si la
+     * aplicación de escritorio necesita actualizar su interfaz, debe trasladar la
+     * llamada a su propio hilo de eventos.
+     * </p>
+     *
+     * @param pedido Pedido a registrar.
+     * @param alCompletar Acción que recibe el ticket en estado COMPLETADO o RECHAZADO.
+     * @return Ticket del pedido en estado PENDIENTE.
+     * @throws RuntimeException Si la cola de pedidos está llena o el servicio detenido.
+     */
+    public TicketCompraDTO enviar(CompraRegistroDTO pedido, Consumer<TicketCompraDTO> alCompletar) {
+        Ticket ticket = encolar(pedido);
+        ticket.futuro.whenComplete((respuesta, error) -> alCompletar.accept(convertirADTO(ticket)));
+        return convertirADTO(ticket);
+    }
+
+    /**
+     * Consulta la situación de un pedido enviado de forma asíncrona.
+     *
+     * @param ticket Identificador devuelto al enviar el pedido.
+     * @return Situación actual del pedido.
+     * @throws RuntimeException Si el ticket no existe o ya fue purgado.
+     */
+    public TicketCompraDTO consultar(String ticket) {
+        Ticket t = tickets.get(ticket);
+        if (t == null) {
+            throw new RuntimeException("Ticket de pedido no encontrado: " + ticket);
+        }
+        return convertirADTO(t);
+    }
+
+    /**
+     * Devuelve el futuro del resultado de un pedido enviado de forma asíncrona.
+     *
+     * @param ticket Identificador devuelto al enviar el pedido.
+     * @return Futuro que se completa con la respuesta del pedido o con su error.
+     * @throws RuntimeException Si el ticket no existe o ya fue purgado.
+     */
+    public CompletableFuture<CompraRespuestaDTO> resultado(String ticket) {
+        Ticket t = tickets.get(ticket);
+        if (t == null) {
+            throw new RuntimeException("Ticket de pedido no encontrado: " + ticket);
+        }
+        return t.futuro;
+    }
+
+    /**
+     * @return Pedidos en cola pendientes de un trabajador.
+     */
+    public int getProfundidadCola() {
+        return cola.size();
+    }
+
+    /**
+     * @return Pedidos aceptados en cola desde el arranque.
+     */
+    public long getAceptados() {
+        return aceptados.sum();
+    }
+
+    /**
+     * @return Pedidos rechazados por tener la cola llena.
+     */
+    public long getRechazadosPorCola() {
+        return rechazadosPorCola.sum();
+    }
+
+    /**
+     * @return Pedidos registrados correctamente.
+     */
+    public long getCompletados() {
+        return completados.sum();
+    }
+
+    /**
+     * @return Pedidos procesados con error.
+     */
+    public long getFallidos() {
+        return fallidos.sum();
+    }
+
+    /**
+     * @return Tiempo medio, en milisegundos, que un pedido espera en cola hasta que un trabajador lo toma.
+     */
+    public double getEsperaMediaMs() {
+        long n = completados.sum() + fallidos.sum();
+        return n == 0 ? 0 : esperaNanos.sum() / 1e6 / n;
+    }
+
+    /**
+     * @return Tiempo medio, en milisegundos, de registro de un pedido por un trabajador.
+     */
+    public double getProcesamientoMedioMs() {
+        long n = completados.sum() + fallidos.sum();
+        return n == 0 ? 0 : procesamientoNanos.sum() / 1e6 / n;
+    }
+
+    /**
+     * Elimina los tickets finalizados cuyo tiempo de retención ha vencido.
+     */
+    @Scheduled(fixedDelayString = "${gestionpedidos.compras.asincrono.purga-ms:60000}")
+    public void purgarTickets() {
+        long limite = System.currentTimeMillis() - retencionMs;
+        tickets.values().removeIf(t -> t.finalizado != 0 && t.finalizado < limite);
+    }
+
+    private Ticket encolar(CompraRegistroDTO pedido) {
+        if (!activa) {
+            throw new RuntimeException("Servicio de pedidos detenido");
+        }
+        Ticket ticket = new Ticket(pedido);
+        tickets.put(ticket.id, ticket);
+        if (!cola.offer(ticket)) {
+            tickets.remove(ticket.id);
+            rechazadosPorCola.increment();
+            throw new RuntimeException("Cola de pedidos llena, inténtelo de nuevo más tarde");
+        }
+        aceptados.increment();
+        return ticket;
+    }
+
+    /**
+     * Bucle de cada trabajador: toma pedidos de la cola y los registra uno a uno.
+     * <p>
+     * Cualquier fallo de un pedido, incluidos los {@link Error} (por ejemplo, un desbordamiento 
+     * de pila), rechaza únicamente su ticket: el futuro se completa con el error y el 
+     * trabajador continúa con el siguiente pedido, de modo que ningún ticket queda pendiente 
+     * indefinidamente ni el servicio pierde trabajadores.
+     * </p>
+     */
+    private void trabajar() {
+        while (activa) {
+            Ticket ticket;
+            try {
+                ticket = cola.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            long inicio = System.nanoTime();
+            esperaNanos.add(inicio - ticket.llegada);
+            ticket.estado = EN_PROCESO;
+            try {
+                finalizar(ticket, registrar(ticket.pedido), null);
+            } catch (Throwable e) {
+                finalizar(ticket, null, e);
+            } finally {
+                procesamientoNanos.add(System.nanoTime() - inicio);
+            }
+        }
+    }
+
+    private CompraRespuestaDTO registrar(CompraRegistroDTO pedido) {
+        if (confirmacionAgrupada.isHabilitada()) {
+            return confirmacionAgrupada.procesar(pedido);
+        }
+        return ejecutorReintentos.ejecutar(() -> compraService.procesarCompra(pedido));
+    }
+
+    private void finalizar(Ticket ticket, CompraRespuestaDTO respuesta, Throwable error) {
+        ticket.finalizado = System.currentTimeMillis();
+        if (error == null) {
+            completados.increment();
+            ticket.futuro.complete(respuesta);
+        } else {
+            fallidos.increment();
+            ticket.futuro.completeExceptionally(error);
+        }
+    }
+
+    private TicketCompraDTO convertirADTO(Ticket ticket) {
+        if (!ticket.futuro.isDone()) {
+            return new TicketCompraDTO(ticket.id, ticket.estado, null, null);
+        }
+        if (ticket.futuro.isCompletedExceptionally()) {
+            Throwable error = ticket.futuro.exceptionNow();
+            String mensaje = error.getMessage() != null ? error.getMessage() : error.getClass().getSimpleName();
+            return new TicketCompraDTO(ticket.id, RECHAZADO, null, mensaje);
+        }
+        return new TicketCompraDTO(ticket.id, COMPLETADO, ticket.futuro.resultNow(), null);
+    }
+}
@@ -0,0 +1,302 @@
+package com.adriandondarza.gestionpedidos.springboot.service;
+
+import com.adriandondarza.gestionpedidos.springboot.dto.ResumenClienteDTO;
+import com.adriandondarza.gestionpedidos.springboot.model.EstadoCompra;
+import com.adriandondarza.gestionpedidos.springboot.repository.ClienteRepository;
+import com.adriandondarza.gestionpedidos.springboot.repository.CompraArchivadaRepository;
+import com.adriandondarza.gestionpedidos.springboot.repository.CompraRepository;
+import com.adriandondarza.gestionpedidos.springboot.repository.ResumenClienteRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Servicio que mantiene el resumen de compras por cliente (número de pedidos, gasto
+ * acumulado y última compra).
+ * <p>
+ * El resumen se guarda en la tabla {@code resumen_cliente} y se actualiza de forma
+ * incremental, dentro de la misma transacción que registra o anula cada compra, con
+ * sentencias {@code UPDATE} relativas. Sobre la tabla se mantiene una vista en memoria
+ * que responde las consultas en tiempo constante:
+ * <ul>
+ * <li>Tras cada actualización se lee la fila resultante mientras la transacción aún la
+ * tiene bloqueada, y esa instantánea exacta se publica en memoria tras la confirmación.</li>
+ * <li>Cada instantánea lleva la revisión de la fila; la vista solo acepta revisiones
+ * más recientes que la que ya tiene, de modo que publicaciones concurrentes que lleguen
+ * desordenadas nunca la hacen retroceder.</li>
+ * <li>Un cliente que no esté en memoria (por ejemplo, tras un reinicio) se carga con
+ * una lectura por clave primaria.</li>
+ * <li>Las compras y anulaciones confirmadas por otros procesos sobre la misma base de
+ * datos no se notifican: cada instantánea caduca a los
+ * {@code gestionpedidos.clientes.resumen.ttl-ms} y se vuelve a leer por clave primaria.</li>
+ * </ul>
+ * </p>
+ * <p>
+ * {@link #reconstruir()} recalcula todos los resúmenes desde las compras, en bloques de
+ * clientes procesados en paralelo, para recuperación o puesta en marcha inicial.
+ * </p>
+ *
+ * @author Adrian Dondarza
+ * @version 1.0
+ * @since 2026-10-16
+ */
+@Service
+public class ResumenClienteService {
+
+    @Autowired private ResumenClienteRepository resumenClienteRepository;
+    @Autowired private ClienteRepository clienteRepository;
+    @Autowired private CompraRepository compraRepository;
+    @Autowired private CompraArchivadaRepository compraArchivadaRepository;
+    @Autowired private TransactionTemplate transactionTemplate;
+
+    @Value("${gestionpedidos.clientes.resumen.bloque:500}")
+    private int tamanoBloque;
+
+    @Value("${gestionpedidos.clientes.resumen.paralelismo:4}")
+    private int paralelismo;
+
+    @Value("${gestionpedidos.clientes.resumen.ttl-ms:30000}")
+    private long ttlMs;
+
+    private final Map<String, Entrada> vista = new ConcurrentHashMap<>();
+
+    /**
+     * Instantánea publicada de un resumen junto con la revisión de la fila que la produjo 
+     * y el instante ({@link System#nanoTime()}) en que caduca.
+     */
+    private record Entrada(ResumenClienteDTO resumen, long revision, long caduca) {
+    }
+
+    /**
+     * Consulta el resumen de compras de un cliente.
+     *
+     * @param nif NIF/CIF del cliente.
+     * @return {@link ResumenClienteDTO}; a cero si el cliente no tiene resumen.
+     */
+    public ResumenClienteDTO obtener(String nif) {
+        Entrada entrada = vista.get(nif);
+        if (entrada != null && entrada.caduca() >= System.nanoTime()) {
+            return entrada.resumen();
+        }
+        List<Entrada> leidas = leer(List.of(nif));
+        if (leidas.isEmpty()) {
+            // Cliente eliminado (quizá por otro proceso) o sin resumen
+            if (entrada != null) {
+                vista.remove(nif, entrada);
+            }
+            return new ResumenClienteDTO(nif, 0, BigDecimal.ZERO, null);
+        }
+        publicar(leidas);
+        return vista.getOrDefault(nif, leidas.get(0)).resumen();
+    }
+
+    /**
+     * Crea el resumen a cero de un cliente recién registrado.
+     *
+     * @param nif NIF/CIF del cliente (ya persistido en la transacción actual).
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void crear(String nif) {
+        resumenClienteRepository.crearSiFaltan(List.of(nif));
+    }
+
+    /**
+     * Crea con una sola sentencia los resúmenes a cero de un bloque de clientes recién registrados.
+     *
+     * @param nifs NIF/CIF de los clientes (ya persistidos en la transacción actual, como 
+     * máximo 1000).
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void crear(Collection<String> nifs) {
+        resumenClienteRepository.crearSiFaltan(nifs);
+    }
+
+    /**
+     * Suma una o varias compras al resumen de un cliente dentro de la transacción actual.
+     *
+     * @param nif NIF/CIF del cliente.
+     * @param compras Número de compras registradas.
+     * @param importe Importe total de esas compras.
+     * @param fecha Fecha de la más reciente.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void sumarCompras(String nif, long compras, BigDecimal importe, LocalDateTime fecha) {
+        if (resumenClienteRepository.acumular(nif, compras, importe, fecha) == 0) {
+            // Clientes anteriores a la tabla de resúmenes: se crea la fila y se repite
+            resumenClienteRepository.crearSiFaltan(List.of(nif));
+            resumenClienteRepository.acumular(nif, compras, importe, fecha);
+        }
+        publicarTrasConfirmar(leer(List.of(nif)));
+    }
+
+    /**
+     * Resta una o varias compras anuladas del resumen de un cliente dentro de la 
+     * transacción actual.
+     *
+     * @param nif NIF/CIF del cliente.
+     * @param compras Número de compras anuladas.
+     * @param importe Importe total de esas compras.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void restarCompras(String nif, long compras, BigDecimal importe) {
+        // La última compra no anulada que queda puede estar en la tabla principal o en el archivo
+        LocalDateTime ultima = masReciente(compraRepository.ultimaFecha(nif, EstadoCompra.ANULADA),
+                compraArchivadaRepository.ultimaFecha(nif, EstadoCompra.ANULADA));
+        if (resumenClienteRepository.descontar(nif, compras, importe, ultima) == 0) {
+            // Sin resumen previo: se crea y se calcula desde las compras, que ya reflejan la anulación
+            resumenClienteRepository.crearSiFaltan(List.of(nif));
+            recalcular(List.of(nif));
+        }
+        publicarTrasConfirmar(leer(List.of(nif)));
+    }
+
+    /**
+     * Retira de la vista en memoria el resumen de un cliente eliminado, tras la confirmación.
+     * La fila se elimina en cascada con el cliente.
+     *
+     * @param nif NIF/CIF del cliente.
+     */
+    public void olvidar(String nif) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    vista.remove(nif);
+                }
+            });
+        } else {
+            vista.remove(nif);
+        }
+    }
+
+    /**
+     * Reconstruye desde cero todos los resúmenes a partir de las compras.
+     * <p>
+     * Los clientes se reparten en bloques de {@code gestionpedidos.clientes.resumen.bloque}
+     * que se procesan en paralelo ({@code gestionpedidos.clientes.resumen.paralelismo}
+     * hilos), cada uno en su propia transacción: crea los resúmenes que falten, los
+     * bloquea, agrega las compras del bloque en una consulta y fija los valores. El
+     * bloqueo hace que las compras en curso de esos clientes esperen y se sumen después
+     * sobre el valor reconstruido, por lo que puede ejecutarse con el sistema en marcha.
+     * </p>
+     *
+     * @return Número de clientes reconstruidos.
+     * @throws RuntimeException Si algún bloque falla (los bloques ya confirmados se conservan).
+     */
+    public int reconstruir() {
+        List<String> nifs = clienteRepository.listarNifs();
+        ExecutorService hilos = Executors.newFixedThreadPool(Math.max(1, paralelismo));
+        try {
+            List<Future<?>> bloques = new ArrayList<>();
+            for (int desde = 0; desde < nifs.size(); desde += tamanoBloque) {
+                List<String> bloque = nifs.subList(desde, Math.min(desde + tamanoBloque, nifs.size()));
+                bloques.add(hilos.submit(() -> transactionTemplate.executeWithoutResult(estado -> {
+                    resumenClienteRepository.crearSiFaltan(bloque);
+                    resumenClienteRepository.bloquear(bloque);
+                    recalcular(bloque);
+                    publicarTrasConfirmar(leer(bloque));
+                })));
+            }
+            for (Future<?> bloque : bloques) {
+                bloque.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Reconstrucción de resúmenes interrumpida", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Error al reconstruir los resúmenes de cliente: " + e.getCause().getMessage(),
+                    e.getCause());
+        } finally {
+            hilos.shutdownNow();
+        }
+        return nifs.size();
+    }
+
+    /**
+     * Fija los resúmenes indicados a partir de la agregación de sus compras no anuladas, 
+     * sumando las de la tabla principal y las del archivo.
+     */
+    private void recalcular(Collection<String> nifs) {
+        Map<String, ResumenClienteDTO> agregados = new HashMap<>();
+        List<Object[]> filas = new ArrayList<>(compraRepository.agregarPorCliente(nifs, EstadoCompra.ANULADA));
+        filas.addAll(compraArchivadaRepository.agregarPorCliente(nifs, EstadoCompra.ANULADA));
+        for (Object[] fila : filas) {
+            ResumenClienteDTO parcial = new ResumenClienteDTO((String) fila[0], (Long) fila[1],
+                    fila[2] != null ? (BigDecimal) fila[2] : BigDecimal.ZERO, (LocalDateTime) fila[3]);
+            agregados.merge(parcial.getNifCif(), parcial, (a, b) -> new ResumenClienteDTO(a.getNifCif(),
+                    a.getNumCompras() + b.getNumCompras(), a.getTotalGastado().add(b.getTotalGastado()),
+                    masReciente(a.getUltimaCompra(), b.getUltimaCompra())));
+        }
+        for (String nif : nifs) {
+            ResumenClienteDTO agregado = agregados.get(nif);
+            if (agregado == null) {
+                resumenClienteRepository.fijar(nif, 0, BigDecimal.ZERO, null);
+            } else {
+                resumenClienteRepository.fijar(nif, agregado.getNumCompras(), agregado.getTotalGastado(),
+                        agregado.getUltimaCompra());
+            }
+        }
+    }
+
+    private static LocalDateTime masReciente(LocalDateTime a, LocalDateTime b) {
+        if (a == null) {
+            return b;
+        }
+        return b == null || a.isAfter(b) ? a : b;
+    }
+
+    /**
+     * Lee las filas actuales de los resúmenes indicados.
+     */
+    private List<Entrada> leer(Collection<String> nifs) {
+        List<Entrada> entradas = new ArrayList<>(nifs.size());
+        long caduca = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        for (Object[] fila : resumenClienteRepository.leer(nifs)) {
+            entradas.add(new Entrada(new ResumenClienteDTO((String) fila[0], (Long) fila[1],
+                    (BigDecimal) fila[2], (LocalDateTime) fila[3]), (Long) fila[4], caduca));
+        }
+        return entradas;
+    }
+
+    /**
+     * Publica instantáneas en la vista en memoria cuando la transacción actual se confirme.
+     */
+    private void publicarTrasConfirmar(List<Entrada> entradas) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                publicar(entradas);
+            }
+        });
+    }
+
+    /**
+     * Publica instantáneas en la vista, conservando siempre la de mayor revisión; a igual 
+     * revisión, la nueva lectura renueva la caducidad.
+     */
+    private void publicar(List<Entrada> entradas) {
+        for (Entrada entrada : entradas) {
+            vista.merge(entrada.resumen().getNifCif(), entrada,
+                    (actual, nueva) -> nueva.revision() >= actual.revision() ? nueva : actual);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.adriandondarza.gestionpedidos.springboot.service;
+
+import com.adriandondarza.gestionpedidos.springboot.dto.CambiosDTO;
+import com.adriandondarza.gestionpedidos.springboot.repository.ClienteEliminadoRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Servicio de sincronización por diferencias del catálogo y los clientes.
+ * <p>
+ * Cada inserción o modificación de {@code articulos}, {@code articulo_stock_fragmento}, 
+ * {@code clientes} e {@code informacion_fiscal}, y cada eliminación de un cliente, toma 
+ * mediante trigger una versión nueva de la secuencia {@code seq_cambios}. Una aplicación 
+ * de escritorio guarda la última versión recibida y pide solo lo que ha cambiado desde 
+ * ella, con un coste proporcional a los cambios y no al tamaño del catálogo.
+ * </p>
+ * <p>
+ * La versión se asigna al escribir la fila, no al confirmar: una transacción larga puede 
+ * confirmar una versión menor que otra ya visible. Por eso la versión que se devuelve no 
+ * es la mayor leída, sino un horizonte seguro. Cada {@code gestionpedidos.sincronizacion.muestreo-ms} 
+ * se anota el valor actual de la secuencia; el horizonte es la muestra más reciente con 
+ * una antigüedad de al menos {@code gestionpedidos.sincronizacion.margen-ms}, de modo que 
+ * toda versión menor se asignó hace más que el margen y su transacción ya ha terminado. 
+ * El margen debe superar la duración de la transacción de escritura más larga. Los 
+ * cambios posteriores al horizonte se entregan igualmente y se repiten en la siguiente 
+ * consulta.
+ * </p>
+ * <p>
+ * El muestreo solo consulta la secuencia mientras se usa la sincronización: tras 
+ * {@code gestionpedidos.sincronizacion.inactividad-ms} sin consultas (o si nunca las ha 
+ * habido, como en las aplicaciones de escritorio) se detiene. Una muestra antigua sigue 
+ * siendo un horizonte válido, solo más retrasado, hasta que las nuevas cumplen el margen.
+ * </p>
+ *
+ * @author Adrian Dondarza
+ * @version 1.0
+ * @since 2026-10-16
+ */
+@Service
+public class SincronizacionService {
+
+    @Autowired private ArticuloService articuloService;
+    @Autowired private ClienteService clienteService;
+    @Autowired private ClienteEliminadoRepository clienteEliminadoRepository;
+
+    @Value("${gestionpedidos.sincronizacion.margen-ms:60000}")
+    private long margenMs;
+
+    @Value("${gestionpedidos.sincronizacion.inactividad-ms:600000}")
+    private long inactividadMs;
+
+    /**
+     * Instante ({@code nanoTime}) de la última consulta de cambios, o {@code null} si aún 
+     * no ha habido ninguna.
+     */
+    private volatile Long ultimaConsulta;
+
+    /**
+     * Muestras {@code [instante (nanoTime), valor de seq_cambios]} en orden de toma. Se 
+     * protegen con el monitor del servicio.
+     */
+    private final Deque<long[]> muestras = new ArrayDeque<>();
+
+    /**
+     * Devuelve los cambios posteriores a una versión.
+     *
+     * @param version Versión devuelta por la sincronización anterior ({@code 0} para la carga inicial).
+     * @return {@link CambiosDTO} con los registros cambiados y la versión para la siguiente consulta.
+     * @throws RuntimeException Si la versión es negativa.
+     */
+    @Transactional(readOnly = true)
+    public CambiosDTO cambiosDesde(long version) {
+        if (version < 0) {
+            throw new RuntimeException("Sincronización: La versión de cambio no puede ser negativa.");
+        }
+        ultimaConsulta = System.nanoTime();
+        // El horizonte se fija antes de leer: todo lo que cubre ya está confirmado
+        long siguiente = Math.max(version, horizonte());
+        return new CambiosDTO(siguiente,
+                articuloService.obtenerCambiosDesde(version),
+                clienteService.obtenerCambiosDesde(version),
+                clienteService.obtenerEliminadosDesde(version));
+    }
+
+    /**
+     * Anota el valor actual de {@code seq_cambios} y descarta las muestras que ya no 
+     * pueden ser horizonte. No hace nada si la sincronización no se ha usado recientemente.
+     */
+    @Scheduled(fixedDelayString = "${gestionpedidos.sincronizacion.muestreo-ms:1000}")
+    public void muestrear() {
+        Long ultima = ultimaConsulta;
+        if (ultima == null || System.nanoTime() - ultima > TimeUnit.MILLISECONDS.toNanos(inactividadMs)) {
+            return;
+        }
+        long valor = clienteEliminadoRepository.siguienteVersionCambio();
+        long ahora = System.nanoTime();
+        synchronized (this) {
+            muestras.addLast(new long[] {ahora, valor});
+            descartarAntiguas(ahora);
+        }
+    }
+
+    /**
+     * Versión por debajo de la cual todos los cambios están confirmados, o {@code 0} si 
+     * aún no hay ninguna muestra con la antigüedad del margen (arranque del servidor).
+     */
+    private synchronized long horizonte() {
+        long ahora = System.nanoTime();
+        descartarAntiguas(ahora);
+        long[] primera = muestras.peekFirst();
+        return primera != null && ahora - primera[0] >= TimeUnit.MILLISECONDS.toNanos(margenMs) ? primera[1] : 0;
+    }
+
+    /**
+     * Deja en cabeza la muestra más reciente con la antigüedad del margen.
+     */
+    private void descartarAntiguas(long ahora) {
+        long margen = TimeUnit.MILLISECONDS.toNanos(margenMs);
+        long[] primera = muestras.pollFirst();
+        if (primera == null) {
+            return;
+        }
+        while (!muestras.isEmpty() && ahora - muestras.peekFirst()[0] >= margen) {
+            primera = muestras.pollFirst();
+        }
+        muestras.addFirst(primera);
+    }
+}
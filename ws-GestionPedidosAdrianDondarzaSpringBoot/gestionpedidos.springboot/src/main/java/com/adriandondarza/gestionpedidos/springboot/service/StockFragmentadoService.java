@@ -0,0 +1,337 @@
+package com.adriandondarza.gestionpedidos.springboot.service;
+
+import com.adriandondarza.gestionpedidos.springboot.model.Articulo;
+import com.adriandondarza.gestionpedidos.springboot.model.StockFragmento;
+import com.adriandondarza.gestionpedidos.springboot.model.StockFragmentoId;
+import com.adriandondarza.gestionpedidos.springboot.repository.ArticuloRepository;
+import com.adriandondarza.gestionpedidos.springboot.repository.StockFragmentoRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Servicio de gestión del stock fragmentado para artículos de alta demanda.
+ * <p>
+ * En modo fragmentado el inventario de un artículo se reparte entre varias ranuras 
+ * ({@link StockFragmento}). Cada descuento elige una ranura al azar y solo bloquea esa 
+ * fila, de modo que los pedidos concurrentes sobre un mismo artículo dejan de 
+ * serializarse sobre la fila de {@code articulos}. Un proceso periódico opcional 
+ * reequilibra las ranuras para que ninguna se agote mientras otras conservan unidades.
+ * </p>
+ * <p>
+ * Los cambios de modo y el reequilibrado bloquean la fila del artículo 
+ * ({@link ArticuloRepository#bloquearModoStock}) y después sus ranuras. Los descuentos y 
+ * devoluciones nunca esperan por ese bloqueo (lo harían reteniendo ya filas de ranura): 
+ * si fallan, releen el modo y el stock confirmados y reintentan en el modo vigente.
+ * </p>
+ *
+ * @author Adrian Dondarza
+ * @version 1.0
+ * @since 2026-10-16
+ */
+@Service
+public class StockFragmentadoService {
+
+    /**
+     * Número máximo de ranuras permitido por artículo.
+     */
+    public static final int MAX_FRAGMENTOS = 64;
+
+    @Autowired
+    private ArticuloRepository articuloRepository;
+
+    @Autowired
+    private StockFragmentoRepository stockFragmentoRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${gestionpedidos.stock-fragmentado.reequilibrado-habilitado:false}")
+    private boolean reequilibradoHabilitado;
+
+    /**
+     * Activa (o re-dimensiona) el modo fragmentado de un artículo.
+     * <p>
+     * El stock actual se reparte equitativamente entre las nuevas ranuras y el campo 
+     * {@code stock} del artículo queda a cero.
+     * </p>
+     *
+     * @param articuloId Identificador del artículo.
+     * @param fragmentos Número de ranuras (entre 2 y {@link #MAX_FRAGMENTOS}).
+     * @throws RuntimeException Si el artículo no existe o el número de ranuras no es válido.
+     */
+    @Transactional
+    public void habilitar(Integer articuloId, int fragmentos) {
+        if (fragmentos < 2 || fragmentos > MAX_FRAGMENTOS) {
+            throw new RuntimeException("El número de fragmentos debe estar entre 2 y " + MAX_FRAGMENTOS);
+        }
+        bloquearModo(articuloId);
+        Articulo art = articuloRepository.findById(articuloId)
+                .orElseThrow(() -> new RuntimeException("Artículo no encontrado"));
+
+        long total = art.getFragmentosStock() > 0 ? consolidar(articuloId) : art.getStock();
+
+        List<StockFragmento> ranuras = new ArrayList<>(fragmentos);
+        for (int i = 0; i < fragmentos; i++) {
+            ranuras.add(new StockFragmento(new StockFragmentoId(articuloId, i), cuota(total, fragmentos, i)));
+        }
+        stockFragmentoRepository.saveAll(ranuras);
+
+        art.setStock(0);
+        art.setFragmentosStock(fragmentos);
+    }
+
+    /**
+     * Devuelve un artículo al modo normal consolidando sus ranuras en el campo {@code stock}.
+     *
+     * @param articuloId Identificador del artículo.
+     * @throws RuntimeException Si el artículo no existe.
+     */
+    @Transactional
+    public void deshabilitar(Integer articuloId) {
+        if (bloquearModo(articuloId) == 0) {
+            return;
+        }
+        Articulo art = articuloRepository.findById(articuloId)
+                .orElseThrow(() -> new RuntimeException("Artículo no encontrado"));
+        art.setStock(Math.toIntExact(consolidar(articuloId)));
+        art.setFragmentosStock(0);
+    }
+
+    /**
+     * Descuenta unidades de un artículo en su modo de stock actual.
+     * <p>
+     * Primero se intenta con el modo leído junto al artículo: un {@code UPDATE} condicional 
+     * sobre la fila del artículo o, en modo fragmentado, sobre la primera ranura (empezando 
+     * por una al azar) con unidades suficientes. Si falla, el modo pudo haber cambiado 
+     * (incluso ida y vuelta) desde esa lectura, así que se releen en una única consulta el 
+     * modo y el stock confirmados: si no alcanzan, la falta de stock es real; si alcanzan, 
+     * se reintenta en el modo releído, repartiendo el descuento entre varias ranuras 
+     * bloqueadas cuando ninguna lo cubre por sí sola.
+     * </p>
+     *
+     * @param articulo Artículo afectado, en cualquier modo.
+     * @param unidades Unidades a descontar.
+     * @return {@code true} si el descuento se aplicó, {@code false} si no hay stock suficiente.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean descontar(Articulo articulo, int unidades) {
+        Integer id = articulo.getId();
+        int fragmentos = articulo.getFragmentosStock();
+        boolean cabeEnRanura = true;
+        while (!(cabeEnRanura ? descontarSinBloqueo(id, fragmentos, unidades) : consolidar(id, unidades))) {
+            List<Object[]> estado = articuloRepository.leerEstadoStock(id);
+            if (estado.isEmpty()) {
+                return false;
+            }
+            Object[] e = estado.get(0);
+            fragmentos = ((Number) e[0]).intValue();
+            if (((Number) e[fragmentos == 0 ? 1 : 2]).longValue() < unidades) {
+                return false;
+            }
+            cabeEnRanura = fragmentos == 0 || ((Number) e[3]).longValue() >= unidades;
+        }
+        return true;
+    }
+
+    /**
+     * Devuelve unidades a un artículo en su modo de stock actual.
+     * <p>
+     * Las sentencias solo aplican en el modo leído (la ranura elegida existe, o el artículo 
+     * sigue en modo normal); si un cambio de modo simultáneo las deja sin efecto, se relee 
+     * el modo y se repite. En modo fragmentado se suman a una ranura al azar.
+     * </p>
+     *
+     * @param articuloId Identificador del artículo.
+     * @param unidades Unidades a devolver.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void devolver(Integer articuloId, int unidades) {
+        for (List<Object[]> estado = articuloRepository.leerEstadoStock(articuloId); !estado.isEmpty();
+                estado = articuloRepository.leerEstadoStock(articuloId)) {
+            int fragmentos = ((Number) estado.get(0)[0]).intValue();
+            int filas = fragmentos == 0
+                    ? articuloRepository.devolverStock(articuloId, unidades)
+                    : stockFragmentoRepository.incrementar(articuloId,
+                            ThreadLocalRandom.current().nextInt(fragmentos), unidades);
+            if (filas == 1) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Calcula el stock total de un artículo fragmentado.
+     *
+     * @param articuloId Identificador del artículo.
+     * @return Suma de las unidades de todas sus ranuras.
+     */
+    @Transactional(readOnly = true)
+    public int stockTotal(Integer articuloId) {
+        return Math.toIntExact(stockFragmentoRepository.sumarStock(articuloId));
+    }
+
+    /**
+     * Calcula en una única consulta el stock total de varios artículos fragmentados.
+     *
+     * @param ids Identificadores de los artículos.
+     * @return Mapa de ID de artículo a stock total.
+     */
+    @Transactional(readOnly = true)
+    public Map<Integer, Integer> stockTotales(Collection<Integer> ids) {
+        Map<Integer, Integer> totales = new HashMap<>();
+        if (ids.isEmpty()) {
+            return totales;
+        }
+        for (Object[] fila : stockFragmentoRepository.sumarStockPorArticulo(ids)) {
+            totales.put((Integer) fila[0], ((Number) fila[1]).intValue());
+        }
+        return totales;
+    }
+
+    /**
+     * Artículos fragmentados cuyo stock ha cambiado después de una versión de cambio.
+     * <p>
+     * Los descuentos sobre ranuras no modifican la fila del artículo, por lo que la 
+     * sincronización por diferencias los detecta a través de la versión de cada ranura.
+     * </p>
+     *
+     * @param version Versión de cambio ya sincronizada.
+     * @return Identificadores de los artículos afectados.
+     */
+    @Transactional(readOnly = true)
+    public List<Integer> articulosCambiadosDesde(long version) {
+        return stockFragmentoRepository.buscarArticulosCambiados(version);
+    }
+
+    /**
+     * Reequilibra periódicamente las ranuras de los artículos fragmentados.
+     * <p>
+     * Desactivado por defecto ({@code gestionpedidos.stock-fragmentado.reequilibrado-habilitado}): 
+     * los descuentos que no caben en una ranura ya se resuelven consolidando, así que solo 
+     * reduce la frecuencia de esa vía lenta. Las ranuras se leen sin bloqueo y solo los 
+     * artículos desequilibrados se bloquean, cada uno en su propia transacción.
+     * </p>
+     */
+    @Scheduled(fixedDelayString = "${gestionpedidos.stock-fragmentado.reequilibrado-ms:5000}")
+    public void reequilibrarTodos() {
+        if (!reequilibradoHabilitado) {
+            return;
+        }
+        for (Integer id : articuloRepository.buscarIdsFragmentados()) {
+            if (desequilibrado(stockFragmentoRepository.leerFragmentos(id))) {
+                transactionTemplate.executeWithoutResult(estado -> reequilibrar(id));
+            }
+        }
+    }
+
+    /**
+     * Redistribuye el stock de un artículo si, releído bajo bloqueo, sigue desequilibrado.
+     */
+    private void reequilibrar(Integer articuloId) {
+        Integer fragmentos = articuloRepository.bloquearModoStock(articuloId);
+        if (fragmentos == null || fragmentos == 0) {
+            return;
+        }
+        List<Object[]> ranuras = stockFragmentoRepository.bloquearFragmentos(articuloId);
+        if (!desequilibrado(ranuras)) {
+            return;
+        }
+        long total = ranuras.stream().mapToLong(r -> ((Number) r[1]).longValue()).sum();
+        for (int i = 0; i < ranuras.size(); i++) {
+            stockFragmentoRepository.fijar(articuloId, ((Number) ranuras.get(i)[0]).intValue(),
+                    cuota(total, ranuras.size(), i));
+        }
+    }
+
+    /**
+     * Indica si alguna ranura ha caído por debajo de la mitad de la media.
+     */
+    private static boolean desequilibrado(List<Object[]> ranuras) {
+        if (ranuras.isEmpty()) {
+            return false;
+        }
+        long media = ranuras.stream().mapToLong(r -> ((Number) r[1]).longValue()).sum() / ranuras.size();
+        return ranuras.stream().anyMatch(r -> ((Number) r[1]).longValue() < media / 2);
+    }
+
+    /**
+     * Bloquea la fila del artículo y devuelve su número de ranuras ({@code 0} en modo normal).
+     */
+    private int bloquearModo(Integer articuloId) {
+        Integer fragmentos = articuloRepository.bloquearModoStock(articuloId);
+        if (fragmentos == null) {
+            throw new RuntimeException("Artículo no encontrado");
+        }
+        return fragmentos;
+    }
+
+    /**
+     * Intenta el descuento en el modo indicado con un único {@code UPDATE} condicional.
+     */
+    private boolean descontarSinBloqueo(Integer articuloId, int fragmentos, int unidades) {
+        if (fragmentos == 0) {
+            return articuloRepository.descontarStock(articuloId, unidades) == 1;
+        }
+        int inicio = ThreadLocalRandom.current().nextInt(fragmentos);
+        for (int i = 0; i < fragmentos; i++) {
+            if (stockFragmentoRepository.descontar(articuloId, (inicio + i) % fragmentos, unidades) == 1) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Descuenta bajo bloqueo un pedido que no cabe en una sola ranura, repartiéndolo.
+     *
+     * @return {@code false} si las ranuras actuales no suman unidades suficientes.
+     */
+    private boolean consolidar(Integer articuloId, int unidades) {
+        List<Object[]> ranuras = stockFragmentoRepository.bloquearFragmentos(articuloId);
+        long total = ranuras.stream().mapToLong(r -> ((Number) r[1]).longValue()).sum();
+        if (total < unidades) {
+            return false;
+        }
+        int pendiente = unidades;
+        for (Object[] r : ranuras) {
+            int tomar = Math.min(((Number) r[1]).intValue(), pendiente);
+            if (tomar > 0) {
+                stockFragmentoRepository.descontar(articuloId, ((Number) r[0]).intValue(), tomar);
+                pendiente -= tomar;
+            }
+            if (pendiente == 0) {
+                break;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Bloquea y elimina las ranuras de un artículo devolviendo la suma de sus unidades.
+     */
+    private long consolidar(Integer articuloId) {
+        long total = stockFragmentoRepository.bloquearFragmentos(articuloId).stream()
+                .mapToLong(r -> ((Number) r[1]).longValue()).sum();
+        stockFragmentoRepository.eliminarFragmentos(articuloId);
+        return total;
+    }
+
+    /**
+     * Parte que corresponde a la ranura {@code i} al repartir {@code total} entre {@code n}.
+     */
+    private static int cuota(long total, int n, int i) {
+        return Math.toIntExact(total / n + (i < total % n ? 1 : 0));
+    }
+}
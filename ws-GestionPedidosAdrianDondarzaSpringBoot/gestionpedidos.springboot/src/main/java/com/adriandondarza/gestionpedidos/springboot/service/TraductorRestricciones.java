@@ -0,0 +1,71 @@
+package com.adriandondarza.gestionpedidos.springboot.service;
+
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Traduce las violaciones de restricciones únicas de la base de datos a errores de dominio.
+ * <p>
+ * Las altas de clientes, registros fiscales y artículos insertan directamente, sin consultar
+ * antes si el NIF, el email, el teléfono o el nombre ya existen: la restricción es la única
+ * comprobación libre de condiciones de carrera, y un alta correcta cuesta un solo viaje a la
+ * base de datos. Cada alta indica el mensaje que corresponde a cada restricción que puede
+ * violar, con los nombres de {@code script_db.sql} recogidos en las constantes de esta clase.
+ * </p>
+ * <p>
+ * El nombre informado por el driver se compara sin esquema y sin distinguir mayúsculas
+ * (Oracle lo devuelve como {@code USUARIOS_ADMIN.UK_CLIENTE_EMAIL}; otros motores lo 
+ * acompañan de la tabla y los valores, que se descartan).
+ * </p>
+ *
+ * @author Adrian Dondarza
+ * @version 1.0
+ * @since 2026-10-16
+ */
+@Component
+public class TraductorRestricciones {
+
+    public static final String PK_ARTICULOS = "pk_articulos";
+    public static final String UK_ARTICULO_NOMBRE = "uk_articulo_nombre";
+    public static final String PK_INFORMACION_FISCAL = "pk_informacion_fiscal";
+    public static final String UK_FISCAL_TELEFONO = "uk_fiscal_telefono";
+    public static final String PK_CLIENTES = "pk_clientes";
+    public static final String UK_CLIENTE_EMAIL = "uk_cliente_email";
+    public static final String PK_COMPRAS_IDEMPOTENCIA = "pk_compras_idempotencia";
+
+    /**
+     * Obtiene el error de dominio correspondiente a una violación de integridad.
+     *
+     * @param e Violación producida al volcar la inserción o actualización.
+     * @param mensajes Mensaje de error por nombre de restricción (constantes de esta clase).
+     * @return {@link RuntimeException} con el mensaje de la restricción violada, o la propia
+     * excepción si la restricción no figura en {@code mensajes}.
+     */
+    public RuntimeException traducir(DataIntegrityViolationException e, Map<String, String> mensajes) {
+        String restriccion = restriccionViolada(e);
+        String mensaje = restriccion != null ? mensajes.get(restriccion) : null;
+        return mensaje != null ? new RuntimeException(mensaje, e) : e;
+    }
+
+    /**
+     * Extrae el nombre de la restricción violada.
+     *
+     * @param e Violación de integridad, traducida por Spring o tal como la lanza el 
+     * {@code EntityManager}.
+     * @return Nombre de la restricción en minúsculas y sin esquema, o {@code null} si el
+     * driver no lo informa.
+     */
+    public String restriccionViolada(RuntimeException e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof ConstraintViolationException violacion && violacion.getConstraintName() != null) {
+                String nombre = violacion.getConstraintName().replace("\"", "").trim().split("[\\s(]", 2)[0];
+                return nombre.substring(nombre.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT);
+            }
+        }
+        return null;
+    }
+}
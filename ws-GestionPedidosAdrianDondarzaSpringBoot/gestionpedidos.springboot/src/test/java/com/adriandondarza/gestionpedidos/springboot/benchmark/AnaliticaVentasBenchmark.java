@@ -0,0 +1,166 @@
+package com.adriandondarza.gestionpedidos.springboot.benchmark;
+
+import com.adriandondarza.gestionpedidos.springboot.dto.VentaArticuloDTO;
+import com.adriandondarza.gestionpedidos.springboot.dto.VentaDiariaDTO;
+import com.adriandondarza.gestionpedidos.springboot.model.EstadoCompra;
+import com.adriandondarza.gestionpedidos.springboot.repository.ArticuloCompraArchivadaRepository;
+import com.adriandondarza.gestionpedidos.springboot.repository.ArticuloCompraRepository;
+import com.adriandondarza.gestionpedidos.springboot.repository.CompraArchivadaRepository;
+import com.adriandondarza.gestionpedidos.springboot.repository.CompraRepository;
+import com.adriandondarza.gestionpedidos.springboot.service.AnaliticaVentasService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Bancos de pruebas JMH de las consultas de {@link AnaliticaVentasService}.
+ * <p>
+ * La instantánea se carga una vez por ejecución desde repositorios simulados que generan
+ * {@code lineas} líneas de compra (tres por compra, mil artículos, un año de fechas y
+ * una compra anulada de cada cien), de modo que se mide el recorrido columnar en paralelo
+ * sin la base de datos. No forma parte de la batería de pruebas; se ejecuta con:
+ * </p>
+ * <pre>
+ * mvn -B test-compile dependency:build-classpath -Dmdep.includeScope=test -Dmdep.outputFile=target/cp.txt
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) \
+ *     com.adriandondarza.gestionpedidos.springboot.benchmark.AnaliticaVentasBenchmark
+ * </pre>
+ * <p>
+ * Admite las opciones habituales de JMH (por ejemplo, {@code -p lineas=1000000}).
+ * </p>
+ *
+ * @author Adrian Dondarza
+ * @version 1.0
+ * @since 2026-10-16
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class AnaliticaVentasBenchmark {
+
+    private static final int LINEAS_POR_COMPRA = 3;
+    private static final int ARTICULOS = 1000;
+    private static final LocalDate PRIMER_DIA = LocalDate.of(2025, 1, 1);
+    private static final LocalDate ULTIMO_DIA = LocalDate.of(2025, 12, 31);
+
+    @Param({"1000000", "10000000"})
+    private int lineas;
+
+    private AnaliticaVentasService analitica;
+
+    @Setup(Level.Trial)
+    public void cargar() {
+        BigDecimal[] precios = IntStream.range(0, ARTICULOS)
+                .mapToObj(a -> BigDecimal.valueOf(100 + a * 7L, 2))
+                .toArray(BigDecimal[]::new);
+        int compras = lineas / LINEAS_POR_COMPRA;
+
+        ArticuloCompraRepository lineasRepository = mock(ArticuloCompraRepository.class);
+        when(lineasRepository.recorrerLineas(any(), any())).thenAnswer(invocacion ->
+                generar(compras, precios, invocacion.getArgument(0), invocacion.getArgument(1)));
+        ArticuloCompraArchivadaRepository lineasArchivadas = mock(ArticuloCompraArchivadaRepository.class);
+        when(lineasArchivadas.recorrerLineas(any(), any())).thenAnswer(invocacion -> Stream.empty());
+        CompraRepository comprasRepository = mock(CompraRepository.class);
+        when(comprasRepository.buscarIdsPorEstado(EstadoCompra.ANULADA))
+                .thenReturn(IntStream.rangeClosed(1, compras).filter(c -> c % 100 == 0).boxed().toList());
+        CompraArchivadaRepository comprasArchivadas = mock(CompraArchivadaRepository.class);
+        when(comprasArchivadas.buscarIdsPorEstado(EstadoCompra.ANULADA)).thenReturn(List.of());
+        PlatformTransactionManager transacciones = mock(PlatformTransactionManager.class);
+        when(transacciones.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+
+        analitica = new AnaliticaVentasService();
+        ReflectionTestUtils.setField(analitica, "habilitada", true);
+        ReflectionTestUtils.setField(analitica, "margenConsolidacionMs", 300000L);
+        ReflectionTestUtils.setField(analitica, "articuloCompraRepository", lineasRepository);
+        ReflectionTestUtils.setField(analitica, "articuloCompraArchivadaRepository", lineasArchivadas);
+        ReflectionTestUtils.setField(analitica, "compraRepository", comprasRepository);
+        ReflectionTestUtils.setField(analitica, "compraArchivadaRepository", comprasArchivadas);
+        ReflectionTestUtils.setField(analitica, "transactionTemplate", new TransactionTemplate(transacciones));
+        ReflectionTestUtils.invokeMethod(analitica, "iniciar");
+        analitica.refrescar();
+        if (analitica.getLineas() != (long) compras * LINEAS_POR_COMPRA) {
+            throw new IllegalStateException("Instantánea incompleta: " + analitica.getLineas() + " líneas");
+        }
+    }
+
+    @Benchmark
+    public List<VentaDiariaDTO> ventasPorDiaAnual() {
+        return analitica.ventasPorDia(PRIMER_DIA, ULTIMO_DIA);
+    }
+
+    @Benchmark
+    public List<VentaArticuloDTO> ventasPorArticuloMensual() {
+        return analitica.ventasPorArticulo(LocalDate.of(2025, 6, 1), LocalDate.of(2025, 6, 30));
+    }
+
+    @Benchmark
+    public BigDecimal cestaMediaAnual() {
+        return analitica.cestaMedia(PRIMER_DIA, ULTIMO_DIA);
+    }
+
+    /**
+     * Refresco sin compras nuevas: coste fijo de la lectura de anuladas y la cola reciente.
+     */
+    @Benchmark
+    public long refrescoSinCambios() {
+        analitica.refrescar();
+        return analitica.getLineas();
+    }
+
+    /**
+     * Filas {@code [compraId, fechaRealizada, articuloId, unidades, precioCongelado]} con
+     * fecha en {@code [desde, hasta)}, en orden de compra, generadas bajo demanda.
+     */
+    private static Stream<Object[]> generar(int compras, BigDecimal[] precios, LocalDateTime desde, LocalDateTime hasta) {
+        if (!hasta.isAfter(PRIMER_DIA.atStartOfDay()) || desde.isAfter(ULTIMO_DIA.atTime(12, 0))) {
+            return Stream.empty();
+        }
+        int dias = (int) (ULTIMO_DIA.toEpochDay() - PRIMER_DIA.toEpochDay() + 1);
+        return IntStream.range(0, compras * LINEAS_POR_COMPRA)
+                .mapToObj(i -> {
+                    int compra = i / LINEAS_POR_COMPRA + 1;
+                    LocalDateTime fecha = PRIMER_DIA.plusDays((long) (compra - 1) * dias / compras).atTime(12, 0);
+                    int articulo = (compra * 31 + i % LINEAS_POR_COMPRA * 17) % ARTICULOS;
+                    return new Object[]{compra, fecha, articulo + 1, 1 + i % 4, precios[articulo]};
+                })
+                .filter(fila -> !((LocalDateTime) fila[1]).isBefore(desde) && ((LocalDateTime) fila[1]).isBefore(hasta));
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .include(AnaliticaVentasBenchmark.class.getName())
+                .build()).run();
+    }
+}
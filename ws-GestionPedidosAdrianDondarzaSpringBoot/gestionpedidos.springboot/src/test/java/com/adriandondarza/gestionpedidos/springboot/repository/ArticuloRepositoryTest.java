@@ -0,0 +1,101 @@
+package com.adriandondarza.gestionpedidos.springboot.repository;
+
+import com.adriandondarza.gestionpedidos.springboo.GestionPedidosApplication;
+import com.adriandondarza.gestionpedidos.springboot.model.Articulo;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Pruebas del descuento atómico de stock de {@link ArticuloRepository} sobre una base de
+ * datos embebida (H2 en modo Oracle).
+ * <p>
+ * Cada descuento se confirma en su propia transacción, como en el registro de pedidos,
+ * por lo que la prueba no se ejecuta dentro de la transacción de test.
+ * </p>
+ *
+ * @author Adrian Dondarza
+ * @version 1.0
+ * @since 2026-10-16
+ */
+@DataJpaTest(properties = "spring.profiles.active=test")
+@ContextConfiguration(classes = GestionPedidosApplication.class)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ArticuloRepositoryTest {
+
+    private static final int STOCK_INICIAL = 50;
+    private static final int HILOS = 16;
+    private static final int INTENTOS_POR_HILO = 10;
+
+    @Autowired
+    private ArticuloRepository articuloRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * Varios hilos compiten por un mismo artículo con más intentos que unidades: se aceptan
+     * exactamente tantos descuentos como stock había y el stock termina a cero, nunca negativo.
+     */
+    @Test
+    void descontarStockConcurrenteNoVendeMasDeLoDisponible() throws Exception {
+        TransactionTemplate transaccion = new TransactionTemplate(transactionManager);
+        Integer id = transaccion.execute(estado -> articuloRepository.save(nuevoArticulo()).getId());
+
+        AtomicInteger aceptados = new AtomicInteger();
+        CountDownLatch salida = new CountDownLatch(1);
+        ExecutorService hilos = Executors.newFixedThreadPool(HILOS);
+        try {
+            List<Future<?>> tareas = new ArrayList<>();
+            for (int h = 0; h < HILOS; h++) {
+                tareas.add(hilos.submit(() -> {
+                    salida.await();
+                    for (int i = 0; i < INTENTOS_POR_HILO; i++) {
+                        Integer filas = transaccion.execute(estado -> articuloRepository.descontarStock(id, 1));
+                        if (filas != null && filas == 1) {
+                            aceptados.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            salida.countDown();
+            for (Future<?> tarea : tareas) {
+                tarea.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            hilos.shutdownNow();
+        }
+
+        assertEquals(STOCK_INICIAL, aceptados.get());
+        assertEquals(0, articuloRepository.findById(id).orElseThrow().getStock());
+    }
+
+    private static Articulo nuevoArticulo() {
+        Articulo articulo = new Articulo();
+        articulo.setNombre("Artículo de alta demanda");
+        articulo.setDescripcion("Artículo para la prueba de concurrencia");
+        articulo.setPrecioActual(new BigDecimal("9.99"));
+        articulo.setStock(STOCK_INICIAL);
+        return articulo;
+    }
+}
@@ -0,0 +1,154 @@
+package com.adriandondarza.gestionpedidos.springboot.service;
+
+import com.adriandondarza.gestionpedidos.springboo.GestionPedidosApplication;
+import com.adriandondarza.gestionpedidos.springboot.dto.ArticuloDTO;
+import com.adriandondarza.gestionpedidos.springboot.dto.CompraRegistroDTO;
+import com.adriandondarza.gestionpedidos.springboot.dto.CompraRespuestaDTO;
+import com.adriandondarza.gestionpedidos.springboot.dto.InfoFiscalDTO;
+import com.adriandondarza.gestionpedidos.springboot.dto.LineaCompraDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doThrow;
+
+/**
+ * Pruebas de {@link ConfirmacionAgrupadaCompras} sobre una base de datos embebida (H2 en
+ * modo Oracle).
+ * <p>
+ * La ventana de agrupación es amplia para que los pedidos enviados seguidos caigan en un
+ * mismo lote, lo que se comprueba con el contador de lotes.
+ * </p>
+ *
+ * @author Adrian Dondarza
+ * @version 1.0
+ * @since 2026-10-16
+ */
+@SpringBootTest(classes = GestionPedidosApplication.class, properties = {
+        "spring.profiles.active=test",
+        "spring.datasource.url=jdbc:h2:mem:confirmacion;MODE=Oracle;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000",
+        "gestionpedidos.compras.agrupacion.habilitada=true",
+        "gestionpedidos.compras.agrupacion.ventana-ms=300",
+        "gestionpedidos.compras.agrupacion.espera-maxima-ms=10000"
+})
+class ConfirmacionAgrupadaComprasTest {
+
+    private static final String NIF = "12345678Z";
+    private static final String DIRECCION_FALLIDA = "Dirección que provoca un fallo inesperado";
+
+    @Autowired
+    private ConfirmacionAgrupadaCompras confirmacionAgrupada;
+
+    @Autowired
+    private InfoFiscalService infoFiscalService;
+
+    @Autowired
+    private ArticuloService articuloService;
+
+    @SpyBean
+    private CompraService compraService;
+
+    @BeforeEach
+    void registrarCliente() {
+        try {
+            infoFiscalService.registrarInfoFiscal(new InfoFiscalDTO(NIF, "Calle Mayor 1", "600000001", "Cliente de prueba"));
+        } catch (RuntimeException e) {
+            // Ya registrado por una prueba anterior
+        }
+    }
+
+    /**
+     * Un pedido rechazado se deshace en su savepoint: recibe su propio error y el resto del
+     * lote se confirma.
+     */
+    @Test
+    void pedidoRechazadoNoAfectaAlRestoDelLote() throws Exception {
+        Integer articulo = crearArticulo(10);
+        long lotes = confirmacionAgrupada.getLotes();
+
+        List<CompletableFuture<CompraRespuestaDTO>> validos = new ArrayList<>();
+        validos.add(confirmacionAgrupada.enviar(pedido(NIF, articulo)));
+        CompletableFuture<CompraRespuestaDTO> rechazado = confirmacionAgrupada.enviar(pedido("87654321X", articulo));
+        validos.add(confirmacionAgrupada.enviar(pedido(NIF, articulo)));
+        validos.add(confirmacionAgrupada.enviar(pedido(NIF, articulo)));
+
+        for (CompletableFuture<CompraRespuestaDTO> futuro : validos) {
+            futuro.get(10, TimeUnit.SECONDS);
+        }
+        ExecutionException error = assertThrows(ExecutionException.class, () -> rechazado.get(10, TimeUnit.SECONDS));
+        assertEquals("Cliente no identificado", error.getCause().getMessage());
+        assertEquals(lotes + 1, confirmacionAgrupada.getLotes());
+        assertEquals(7, articuloService.obtenerPorId(articulo).getStock());
+    }
+
+    /**
+     * Dos pedidos con la misma clave de idempotencia en un mismo lote registran una única
+     * compra: el segundo encuentra la del primero, ya volcada en la transacción del lote.
+     */
+    @Test
+    void claveRepetidaEnUnLoteRegistraUnaSolaCompra() throws Exception {
+        Integer articulo = crearArticulo(10);
+        long lotes = confirmacionAgrupada.getLotes();
+
+        CompraRegistroDTO pedido = pedido(NIF, articulo);
+        pedido.setClaveIdempotencia("lote-clave-repetida");
+        CompraRegistroDTO reenvio = pedido(NIF, articulo);
+        reenvio.setClaveIdempotencia("lote-clave-repetida");
+        CompletableFuture<CompraRespuestaDTO> primero = confirmacionAgrupada.enviar(pedido);
+        CompletableFuture<CompraRespuestaDTO> segundo = confirmacionAgrupada.enviar(reenvio);
+
+        assertEquals(primero.get(10, TimeUnit.SECONDS).getId(), segundo.get(10, TimeUnit.SECONDS).getId());
+        assertEquals(lotes + 1, confirmacionAgrupada.getLotes());
+        assertEquals(9, articuloService.obtenerPorId(articulo).getStock());
+        assertEquals(primero.get().getId(), confirmacionAgrupada.procesar(reenvio).getId());
+        assertEquals(9, articuloService.obtenerPorId(articulo).getStock());
+    }
+
+    /**
+     * Un fallo que escapa del lote (aquí, un {@link Error}) responde a todos sus pedidos y
+     * el despachador sigue atendiendo los siguientes.
+     */
+    @Test
+    void loteFallidoRespondeATodosLosPedidosYElDespachadorContinua() throws Exception {
+        Integer articulo = crearArticulo(10);
+        doThrow(new Error("Fallo simulado"))
+                .when(compraService).registrarCompra(argThat(p -> p != null && DIRECCION_FALLIDA.equals(p.getDireccionEnvio())));
+
+        List<CompletableFuture<CompraRespuestaDTO>> lote = new ArrayList<>();
+        lote.add(confirmacionAgrupada.enviar(pedido(NIF, articulo)));
+        CompraRegistroDTO fallido = pedido(NIF, articulo);
+        fallido.setDireccionEnvio(DIRECCION_FALLIDA);
+        lote.add(confirmacionAgrupada.enviar(fallido));
+        lote.add(confirmacionAgrupada.enviar(pedido(NIF, articulo)));
+
+        for (CompletableFuture<CompraRespuestaDTO> futuro : lote) {
+            ExecutionException error = assertThrows(ExecutionException.class, () -> futuro.get(10, TimeUnit.SECONDS));
+            assertEquals("Error: No se pudo confirmar el lote de pedidos", error.getCause().getMessage());
+        }
+        assertEquals(10, articuloService.obtenerPorId(articulo).getStock());
+
+        confirmacionAgrupada.procesar(pedido(NIF, articulo));
+        assertEquals(9, articuloService.obtenerPorId(articulo).getStock());
+    }
+
+    private Integer crearArticulo(int stock) {
+        return articuloService.guardarArticulo(new ArticuloDTO(null, "Artículo de prueba", "Descripción",
+                new BigDecimal("9.99"), stock, true, null)).getId();
+    }
+
+    private static CompraRegistroDTO pedido(String nif, Integer articulo) {
+        return new CompraRegistroDTO(nif, "Calle Mayor 1", List.of(new LineaCompraDTO(articulo, 1)));
+    }
+}
@@ -0,0 +1,138 @@
+package com.adriandondarza.gestionpedidos.springboot.service;
+
+import com.adriandondarza.gestionpedidos.springboo.GestionPedidosApplication;
+import com.adriandondarza.gestionpedidos.springboot.dto.ArticuloDTO;
+import com.adriandondarza.gestionpedidos.springboot.dto.CompraRegistroDTO;
+import com.adriandondarza.gestionpedidos.springboot.dto.InfoFiscalDTO;
+import com.adriandondarza.gestionpedidos.springboot.dto.LineaCompraDTO;
+import com.adriandondarza.gestionpedidos.springboot.dto.TicketCompraDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doThrow;
+
+/**
+ * Pruebas de {@link RecepcionAsincronaCompras} sobre una base de datos embebida (H2 en
+ * modo Oracle).
+ * <p>
+ * Se usan solo dos trabajadores para que unos pocos pedidos fallidos basten para dejar el
+ * servicio sin trabajadores si un fallo no quedara confinado a su ticket.
+ * </p>
+ *
+ * @author Adrian Dondarza
+ * @version 1.0
+ * @since 2026-10-16
+ */
+@SpringBootTest(classes = GestionPedidosApplication.class, properties = {
+        "spring.profiles.active=test",
+        "spring.datasource.url=jdbc:h2:mem:recepcion;MODE=Oracle;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000",
+        "gestionpedidos.compras.asincrono.trabajadores=2"
+})
+class RecepcionAsincronaComprasTest {
+
+    private static final String NIF = "12345678Z";
+    private static final String DIRECCION_FALLIDA = "Dirección que provoca un fallo inesperado";
+
+    @Autowired
+    private RecepcionAsincronaCompras recepcion;
+
+    @Autowired
+    private InfoFiscalService infoFiscalService;
+
+    @Autowired
+    private ArticuloService articuloService;
+
+    @SpyBean
+    private CompraService compraService;
+
+    @BeforeEach
+    void registrarCliente() {
+        try {
+            infoFiscalService.registrarInfoFiscal(new InfoFiscalDTO(NIF, "Calle Mayor 1", "600000001", "Cliente de prueba"));
+        } catch (RuntimeException e) {
+            // Ya registrado por una prueba anterior
+        }
+    }
+
+    /**
+     * Con más pedidos que unidades, cada ticket termina COMPLETADO o RECHAZADO con el error
+     * de su pedido, y se aceptan exactamente tantos como stock había.
+     */
+    @Test
+    void cadaTicketTerminaCompletadoORechazado() throws Exception {
+        Integer articulo = crearArticulo(3);
+        List<TicketCompraDTO> tickets = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            tickets.add(recepcion.enviar(pedido(articulo)));
+        }
+
+        int completados = 0;
+        for (TicketCompraDTO ticket : tickets) {
+            esperar(ticket);
+            TicketCompraDTO estado = recepcion.consultar(ticket.getTicket());
+            if ("COMPLETADO".equals(estado.getEstado())) {
+                completados++;
+            } else {
+                assertEquals("RECHAZADO", estado.getEstado());
+                assertEquals("Stock insuficiente para: Artículo de prueba", estado.getError());
+            }
+        }
+        assertEquals(3, completados);
+        assertEquals(0, articuloService.obtenerPorId(articulo).getStock());
+    }
+
+    /**
+     * Un {@link Error} al registrar un pedido rechaza solo su ticket: con más pedidos
+     * fallidos que trabajadores, el pedido siguiente se sigue registrando.
+     */
+    @Test
+    void errorEnUnPedidoSoloRechazaSuTicket() throws Exception {
+        Integer articulo = crearArticulo(10);
+        doThrow(new StackOverflowError())
+                .when(compraService).procesarCompra(argThat(p -> p != null && DIRECCION_FALLIDA.equals(p.getDireccionEnvio())));
+
+        List<TicketCompraDTO> fallidos = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            CompraRegistroDTO pedido = pedido(articulo);
+            pedido.setDireccionEnvio(DIRECCION_FALLIDA);
+            fallidos.add(recepcion.enviar(pedido));
+        }
+        TicketCompraDTO valido = recepcion.enviar(pedido(articulo));
+
+        for (TicketCompraDTO ticket : fallidos) {
+            esperar(ticket);
+            TicketCompraDTO estado = recepcion.consultar(ticket.getTicket());
+            assertEquals("RECHAZADO", estado.getEstado());
+            assertEquals("StackOverflowError", estado.getError());
+        }
+        esperar(valido);
+        assertEquals("COMPLETADO", recepcion.consultar(valido.getTicket()).getEstado());
+        assertEquals(9, articuloService.obtenerPorId(articulo).getStock());
+    }
+
+    /**
+     * Espera a que el ticket tenga resultado, sea cual sea.
+     */
+    private void esperar(TicketCompraDTO ticket) throws Exception {
+        recepcion.resultado(ticket.getTicket()).handle((respuesta, error) -> null).get(10, TimeUnit.SECONDS);
+    }
+
+    private Integer crearArticulo(int stock) {
+        return articuloService.guardarArticulo(new ArticuloDTO(null, "Artículo de prueba", "Descripción",
+                new BigDecimal("9.99"), stock, true, null)).getId();
+    }
+
+    private static CompraRegistroDTO pedido(Integer articulo) {
+        return new CompraRegistroDTO(NIF, "Calle Mayor 1", List.of(new LineaCompraDTO(articulo, 1)));
+    }
+}
@@ -0,0 +1,193 @@
+package com.adriandondarza.gestionpedidos.springboot.service;
+
+import com.adriandondarza.gestionpedidos.springboo.GestionPedidosApplication;
+import com.adriandondarza.gestionpedidos.springboot.model.Articulo;
+import com.adriandondarza.gestionpedidos.springboot.repository.ArticuloRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Pruebas de concurrencia de {@link StockFragmentadoService} sobre una base de datos
+ * embebida (H2 en modo Oracle).
+ * <p>
+ * Los descuentos se lanzan mientras otro hilo activa y desactiva sin pausa el modo
+ * fragmentado del artículo, de modo que muchos pedidos operan con un modo ya obsoleto.
+ * Cada descuento se confirma en su propia transacción, como en el registro de pedidos.
+ * </p>
+ * <p>
+ * H2, a diferencia de Oracle, deja bloqueadas hasta el final de la transacción las filas
+ * que un {@code UPDATE} condicional ha evaluado sin modificar, lo que puede provocar
+ * interbloqueos entre descuentos y cambios de modo. La transacción elegida como víctima
+ * se deshace por completo y se repite.
+ * </p>
+ *
+ * @author Adrian Dondarza
+ * @version 1.0
+ * @since 2026-10-16
+ */
+@DataJpaTest(properties = "spring.profiles.active=test")
+@ContextConfiguration(classes = GestionPedidosApplication.class)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(StockFragmentadoService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class StockFragmentadoServiceTest {
+
+    private static final int HILOS = 16;
+    private static final int INTENTOS_POR_HILO = 10;
+    private static final int FRAGMENTOS = 4;
+
+    @Autowired
+    private StockFragmentadoService stockFragmentadoService;
+
+    @Autowired
+    private ArticuloRepository articuloRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * Con tantas unidades como intentos, todos los descuentos deben aceptarse aunque el
+     * modo cambie entre la lectura del artículo y el descuento.
+     */
+    @Test
+    void cambioDeModoConcurrenteNoProvocaFaltasDeStockFicticias() throws Exception {
+        int stock = HILOS * INTENTOS_POR_HILO;
+        Integer id = crearArticuloFragmentado(stock);
+
+        assertEquals(stock, descontarCambiandoModo(id));
+        assertEquals(0, stockDisponible(id));
+    }
+
+    /**
+     * Con más intentos que unidades se aceptan exactamente tantos descuentos como stock
+     * había, y el artículo termina a cero, nunca en negativo.
+     */
+    @Test
+    void cambioDeModoConcurrenteNoVendeMasDeLoDisponible() throws Exception {
+        int stock = HILOS * INTENTOS_POR_HILO / 2;
+        Integer id = crearArticuloFragmentado(stock);
+
+        assertEquals(stock, descontarCambiandoModo(id));
+        assertEquals(0, stockDisponible(id));
+        TransactionTemplate transaccion = new TransactionTemplate(transactionManager);
+        Boolean aceptado = transaccion.execute(estado -> stockFragmentadoService.descontar(leer(id), 1));
+        assertEquals(Boolean.FALSE, aceptado);
+    }
+
+    /**
+     * Lanza todos los descuentos de una unidad mientras se alterna el modo del artículo.
+     *
+     * @return Número de descuentos aceptados.
+     */
+    private int descontarCambiandoModo(Integer id) throws Exception {
+        TransactionTemplate transaccion = new TransactionTemplate(transactionManager);
+        AtomicInteger aceptados = new AtomicInteger();
+        AtomicBoolean terminado = new AtomicBoolean();
+        CountDownLatch salida = new CountDownLatch(1);
+        ExecutorService hilos = Executors.newFixedThreadPool(HILOS + 1);
+        try {
+            Future<?> cambios = hilos.submit(() -> {
+                salida.await();
+                for (int i = 0; !terminado.get(); i++) {
+                    int fragmentos = FRAGMENTOS + i % 3;
+                    if (i % 2 == 0) {
+                        repetirSiInterbloqueo(() -> {
+                            stockFragmentadoService.deshabilitar(id);
+                            return null;
+                        });
+                    } else {
+                        repetirSiInterbloqueo(() -> {
+                            stockFragmentadoService.habilitar(id, fragmentos);
+                            return null;
+                        });
+                    }
+                }
+                return null;
+            });
+            List<Future<?>> tareas = new ArrayList<>();
+            for (int h = 0; h < HILOS; h++) {
+                tareas.add(hilos.submit(() -> {
+                    salida.await();
+                    for (int i = 0; i < INTENTOS_POR_HILO; i++) {
+                        if (Boolean.TRUE.equals(repetirSiInterbloqueo(() -> {
+                            Articulo articulo = leer(id);
+                            return transaccion.execute(estado -> stockFragmentadoService.descontar(articulo, 1));
+                        }))) {
+                            aceptados.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            salida.countDown();
+            for (Future<?> tarea : tareas) {
+                tarea.get(60, TimeUnit.SECONDS);
+            }
+            terminado.set(true);
+            cambios.get(60, TimeUnit.SECONDS);
+        } finally {
+            hilos.shutdownNow();
+        }
+        return aceptados.get();
+    }
+
+    /**
+     * Ejecuta una operación transaccional repitiéndola mientras la base de datos la elija
+     * como víctima de un interbloqueo.
+     */
+    private static <T> T repetirSiInterbloqueo(Supplier<T> operacion) {
+        while (true) {
+            try {
+                return operacion.get();
+            } catch (CannotAcquireLockException e) {
+                // Transacción deshecha por completo: se repite
+            }
+        }
+    }
+
+    private Integer crearArticuloFragmentado(int stock) {
+        Articulo articulo = new Articulo();
+        articulo.setNombre("Artículo de alta demanda");
+        articulo.setDescripcion("Artículo para la prueba de cambio de modo");
+        articulo.setPrecioActual(new BigDecimal("9.99"));
+        articulo.setStock(stock);
+        Integer id = articuloRepository.save(articulo).getId();
+        stockFragmentadoService.habilitar(id, FRAGMENTOS);
+        return id;
+    }
+
+    private Articulo leer(Integer id) {
+        return articuloRepository.findById(id).orElseThrow();
+    }
+
+    /**
+     * Unidades disponibles en el modo actual del artículo.
+     */
+    private int stockDisponible(Integer id) {
+        Articulo articulo = leer(id);
+        return articulo.getFragmentosStock() > 0 ? stockFragmentadoService.stockTotal(id) : articulo.getStock();
+    }
+}